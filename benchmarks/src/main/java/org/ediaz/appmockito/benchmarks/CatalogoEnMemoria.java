@@ -0,0 +1,90 @@
+package org.ediaz.appmockito.benchmarks;
+
+import org.ediaz.appmockito.Datos;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.ExamenRepository;
+import org.ediaz.appmockito.repositories.PreguntaRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Repositorios en memoria sin latencia simulada, para medir solo el costo del servicio
+final class CatalogoEnMemoria {
+
+    private static final String[] PALABRAS = {"Analisis", "datos", "Seguridad", "ti", "Marcos",
+            "desarrollo", "sistemas", "Calculo", "integral", "Fisica", "Redes", "Bases"};
+
+    private CatalogoEnMemoria() {
+    }
+
+    static List<Examen> generar(int tamanio) {
+        var random = new Random(7);
+        var examenes = new ArrayList<Examen>(tamanio);
+        for (long id = 1; id <= tamanio; id++) {
+            examenes.add(new Examen(id, PALABRAS[random.nextInt(PALABRAS.length)] + " "
+                    + PALABRAS[random.nextInt(PALABRAS.length)] + " " + id));
+        }
+        return examenes;
+    }
+
+    // Consultas que encuentran un examen con probabilidad tasaAciertos, el resto no existe en el catalogo
+    static String[] consultas(List<Examen> examenes, double tasaAciertos, int cantidad) {
+        var random = new Random(11);
+        var consultas = new String[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            consultas[i] = random.nextDouble() < tasaAciertos
+                    ? examenes.get(random.nextInt(examenes.size())).getNombre()
+                    : "Inexistente " + i;
+        }
+        return consultas;
+    }
+
+    static final String[] TEMAS = {"integrales", "derivadas", "limites", "matrices", "vectores", "grafos",
+            "probabilidades", "estadistica", "algoritmos", "redes", "protocolos", "criptografia",
+            "normalizacion", "transacciones", "indices", "concurrencia"};
+
+    // Preguntas sin latencia que dependen del id: cada examen tiene 3 temas distintos
+    static class PreguntasPorTema implements PreguntaRepository {
+        @Override
+        public List<String> findPreguntasPorExamenId(Long id) {
+            int a = (int) (id % TEMAS.length);
+            int b = (int) ((id / 3) % TEMAS.length);
+            int c = (int) ((id / 7) % TEMAS.length);
+            return List.of("Explique " + TEMAS[a], "Ejercicio de " + TEMAS[b] + " y " + TEMAS[c]);
+        }
+
+        @Override
+        public void guardarVarias(List<String> preguntas) {
+        }
+    }
+
+    static class Examenes implements ExamenRepository {
+        private final List<Examen> examenes;
+
+        Examenes(List<Examen> examenes) {
+            this.examenes = examenes;
+        }
+
+        @Override
+        public List<Examen> findAll() {
+            return examenes;
+        }
+
+        @Override
+        public Examen save(Examen examen) {
+            return examen;
+        }
+    }
+
+    static class Preguntas implements PreguntaRepository {
+        @Override
+        public List<String> findPreguntasPorExamenId(Long id) {
+            return Datos.PREGUNTAS;
+        }
+
+        @Override
+        public void guardarVarias(List<String> preguntas) {
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.ediaz.appmockito.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Ejecuta los benchmarks con el perfilador de GC (tasa de asignacion) y guarda los resultados
+// en JSON para poder compararlos entre versiones. Acepta las mismas opciones que JMH por linea
+// de comandos, por ejemplo un filtro: java -jar target/benchmarks.jar ExamenServiceBenchmark
+// El archivo de resultados se cambia con -Dresultados=ruta.json
+public class EjecutarBenchmarks {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        var opciones = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("resultados", "target/jmh-resultados.json"))
+                .build();
+        new Runner(opciones).run();
+    }
+}
@@ -0,0 +1,48 @@
+package org.ediaz.appmockito.benchmarks;
+
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.ExamenRepositoryPrimitivo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Busqueda por id en el repositorio de arreglos primitivos
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class ExamenRepositoryBenchmark {
+
+    @Param({"100000", "10000000"})
+    private int tamanio;
+
+    private ExamenRepositoryPrimitivo repository;
+    private final SplittableRandom random = new SplittableRandom(3);
+
+    @Setup
+    public void setUp() {
+        repository = new ExamenRepositoryPrimitivo(tamanio);
+        for (long id = 1; id <= tamanio; id++) {
+            repository.save(new Examen(id, "Examen " + id));
+        }
+    }
+
+    @Benchmark
+    public Optional<Examen> findById() {
+        return repository.findById(random.nextLong(1, tamanio + 1L));
+    }
+}
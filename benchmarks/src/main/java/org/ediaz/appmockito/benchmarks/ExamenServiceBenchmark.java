@@ -0,0 +1,76 @@
+package org.ediaz.appmockito.benchmarks;
+
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.services.ExamenService;
+import org.ediaz.appmockito.services.ExamenServiceConFiltroImp;
+import org.ediaz.appmockito.services.ExamenServiceImp;
+import org.ediaz.appmockito.services.ExamenServiceIndexadoImp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Busquedas por nombre sobre catalogos de distintos tamanios y con distinta proporcion de aciertos
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExamenServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int tamanio;
+
+    @Param({"1.0", "0.5", "0.0"})
+    private double tasaAciertos;
+
+    @Param({"recorrido", "indice", "filtro"})
+    private String implementacion;
+
+    private ExamenService service;
+    private String[] consultas;
+    private int siguiente;
+
+    @Setup
+    public void setUp() {
+        var examenes = CatalogoEnMemoria.generar(tamanio);
+        var examenRepository = new CatalogoEnMemoria.Examenes(examenes);
+        var preguntaRepository = new CatalogoEnMemoria.Preguntas();
+        switch (implementacion) {
+            case "indice":
+                service = new ExamenServiceIndexadoImp(examenRepository, preguntaRepository);
+                break;
+            case "filtro":
+                service = new ExamenServiceConFiltroImp(examenRepository, preguntaRepository);
+                break;
+            default:
+                service = new ExamenServiceImp(examenRepository, preguntaRepository);
+        }
+        consultas = CatalogoEnMemoria.consultas(examenes, tasaAciertos, 1024);
+    }
+
+    private String siguienteConsulta() {
+        return consultas[siguiente++ & (consultas.length - 1)];
+    }
+
+    @Benchmark
+    public Optional<Examen> findExamenPorNombre() {
+        return service.findExamenPorNombre(siguienteConsulta());
+    }
+
+    @Benchmark
+    public Examen findExamenPorNombreConPreguntas() {
+        return service.findExamenPorNombreConPreguntas(siguienteConsulta());
+    }
+}
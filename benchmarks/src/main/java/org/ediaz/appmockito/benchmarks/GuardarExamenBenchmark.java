@@ -0,0 +1,49 @@
+package org.ediaz.appmockito.benchmarks;
+
+import org.ediaz.appmockito.Datos;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.services.ExamenService;
+import org.ediaz.appmockito.services.ExamenServiceImp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GuardarExamenBenchmark {
+
+    @Param({"1000", "100000"})
+    private int tamanio;
+
+    private ExamenService service;
+    private List<Examen> examenes;
+    private int siguiente;
+
+    @Setup
+    public void setUp() {
+        examenes = CatalogoEnMemoria.generar(tamanio);
+        examenes.forEach(e -> e.setPreguntas(Datos.PREGUNTAS));
+        service = new ExamenServiceImp(new CatalogoEnMemoria.Examenes(examenes), new CatalogoEnMemoria.Preguntas());
+    }
+
+    @Benchmark
+    public Examen guardarExamen() {
+        var examen = examenes.get(siguiente++ % examenes.size());
+        return service.guardarExamen(examen);
+    }
+}
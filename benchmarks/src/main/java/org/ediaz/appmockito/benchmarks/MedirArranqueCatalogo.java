@@ -0,0 +1,53 @@
+package org.ediaz.appmockito.benchmarks;
+
+import org.ediaz.appmockito.repositories.InstantaneaCatalogo;
+import org.ediaz.appmockito.services.ExamenServiceImp;
+import org.ediaz.appmockito.services.ExamenServiceIndexadoImp;
+
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Compara el arranque en frio (indice de preguntas armado pidiendo las preguntas al origen) con el
+// arranque desde una instantanea: abrir y validar el archivo y la primera busqueda por pregunta.
+// java -Xmx3g -cp target/benchmarks.jar org.ediaz.appmockito.benchmarks.MedirArranqueCatalogo 1000000
+public class MedirArranqueCatalogo {
+
+    public static void main(String[] args) throws Exception {
+        int tamanio = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        var examenes = new CatalogoEnMemoria.Examenes(CatalogoEnMemoria.generar(tamanio));
+        var preguntas = new CatalogoEnMemoria.PreguntasPorTema();
+        var archivo = Files.createTempFile("catalogo", ".bin");
+        try {
+            long inicio = System.nanoTime();
+            InstantaneaCatalogo.escribir(archivo, examenes, preguntas);
+            System.out.printf("Escribir instantanea:        %,8d ms (%,d bytes)%n", milis(inicio), Files.size(archivo));
+
+            inicio = System.nanoTime();
+            var enFrio = new ExamenServiceIndexadoImp(examenes, preguntas);
+            System.out.printf("En frio, indice nombres:     %,8d ms%n", milis(inicio));
+            inicio = System.nanoTime();
+            int encontrados = enFrio.findExamenesPorPregunta("grafos criptografia").size();
+            System.out.printf("En frio, por pregunta:       %,8d ms (%,d examenes)%n", milis(inicio), encontrados);
+
+            inicio = System.nanoTime();
+            var catalogo = InstantaneaCatalogo.abrir(archivo).orElseThrow();
+            System.out.printf("Abrir y validar instantanea: %,8d ms%n", milis(inicio));
+            inicio = System.nanoTime();
+            var sinIndice = new ExamenServiceImp(catalogo, catalogo);
+            sinIndice.findExamenPorNombreConPreguntas("Redes");
+            System.out.printf("Primera consulta por nombre: %,8d ms%n", milis(inicio));
+            inicio = System.nanoTime();
+            var enCaliente = new ExamenServiceIndexadoImp(catalogo, catalogo);
+            System.out.printf("En caliente, indice nombres: %,8d ms%n", milis(inicio));
+            inicio = System.nanoTime();
+            encontrados = enCaliente.findExamenesPorPregunta("grafos criptografia").size();
+            System.out.printf("En caliente, por pregunta:   %,8d ms (%,d examenes)%n", milis(inicio), encontrados);
+        } finally {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    private static long milis(long inicio) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+    }
+}
@@ -0,0 +1,63 @@
+package org.ediaz.appmockito.benchmarks;
+
+import org.ediaz.appmockito.models.DiccionarioPreguntas;
+import org.ediaz.appmockito.models.Examen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Mide el heap retenido por las preguntas de tamanio examenes con 20 preguntas cada uno, tomadas de un
+// banco de 5000 preguntas distintas. Como al leerlas de una base de datos, cada pregunta llega como
+// un String nuevo aunque su texto se repita.
+// java -Xmx3g -cp target/benchmarks.jar org.ediaz.appmockito.benchmarks.MedirMemoriaPreguntas 1000000
+public class MedirMemoriaPreguntas {
+
+    private static final int PREGUNTAS_POR_EXAMEN = 20;
+    private static final int BANCO = 5_000;
+
+    public static void main(String[] args) {
+        int tamanio = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        var banco = new String[BANCO];
+        for (int i = 0; i < BANCO; i++) {
+            banco[i] = "Pregunta numero " + i + " del banco de preguntas de evaluacion";
+        }
+
+        long antes = usada();
+        var examenes = generar(tamanio, banco, null);
+        long bytesCopias = usada() - antes;
+        System.out.printf("ArrayList<String> con copias:  %,8.1f bytes por examen%n", (double) bytesCopias / examenes.size());
+        examenes = null;
+
+        antes = usada();
+        var diccionario = new DiccionarioPreguntas();
+        examenes = generar(tamanio, banco, diccionario);
+        long bytesCodificadas = usada() - antes;
+        System.out.printf("PreguntasCodificadas:          %,8.1f bytes por examen (incluye el diccionario de %,d)%n",
+                (double) bytesCodificadas / examenes.size(), diccionario.tamanio());
+        System.out.printf("Reduccion:                     %,8.1f %%%n", 100.0 * (bytesCopias - bytesCodificadas) / bytesCopias);
+    }
+
+    private static List<Examen> generar(int tamanio, String[] banco, DiccionarioPreguntas diccionario) {
+        var random = new Random(5);
+        List<Examen> examenes = new ArrayList<>(tamanio);
+        for (long id = 1; id <= tamanio; id++) {
+            var examen = new Examen(id, "Examen " + id);
+            List<String> preguntas = new ArrayList<>(PREGUNTAS_POR_EXAMEN);
+            for (int i = 0; i < PREGUNTAS_POR_EXAMEN; i++) {
+                preguntas.add(new String(banco[random.nextInt(banco.length)]));
+            }
+            examen.setPreguntas(diccionario != null ? diccionario.codificar(preguntas) : preguntas);
+            examenes.add(examen);
+        }
+        return examenes;
+    }
+
+    private static long usada() {
+        var runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
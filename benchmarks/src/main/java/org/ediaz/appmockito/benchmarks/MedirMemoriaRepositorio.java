@@ -0,0 +1,42 @@
+package org.ediaz.appmockito.benchmarks;
+
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.ExamenRepositoryPrimitivo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Mide el heap retenido por examen en una lista de Examen y en ExamenRepositoryPrimitivo
+// java -cp target/benchmarks.jar org.ediaz.appmockito.benchmarks.MedirMemoriaRepositorio 1000000
+public class MedirMemoriaRepositorio {
+
+    public static void main(String[] args) {
+        int tamanio = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long antes = usada();
+        List<Examen> lista = new ArrayList<>(tamanio);
+        for (long id = 1; id <= tamanio; id++) {
+            lista.add(new Examen(id, "Examen " + id));
+        }
+        long bytesLista = usada() - antes;
+        System.out.printf("List<Examen>:              %,8.1f bytes por examen%n", (double) bytesLista / lista.size());
+        lista = null;
+
+        antes = usada();
+        var repository = new ExamenRepositoryPrimitivo(tamanio);
+        for (long id = 1; id <= tamanio; id++) {
+            repository.save(new Examen(id, "Examen " + id));
+        }
+        long bytesRepositorio = usada() - antes;
+        System.out.printf("ExamenRepositoryPrimitivo: %,8.1f bytes por examen (calculado %,.1f)%n",
+                (double) bytesRepositorio / repository.tamanio(), repository.getBytesPorExamen());
+    }
+
+    private static long usada() {
+        var runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,75 @@
+package org.ediaz.appmockito.benchmarks;
+
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.services.ExamenService;
+import org.ediaz.appmockito.services.ExamenServiceParaleloImp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Escalabilidad del recorrido en paralelo de findExamenPorNombre segun la cantidad de hilos.
+// "ausente" recorre todo el catalogo, "final" encuentra el examen en el ultimo 10% y "inicio" en la
+// primera particion (mide el costo de repartir y cancelar). Con hilos = 1 es el recorrido secuencial.
+// Los resultados solo son comparables entre hilos si la maquina tiene al menos esa cantidad de nucleos
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class ParaleloBenchmark {
+
+    @Param({"1000000"})
+    private int tamanio;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    private int hilos;
+
+    @Param({"ausente", "final", "inicio"})
+    private String caso;
+
+    private ForkJoinPool pool;
+    private ExamenService service;
+    private String consulta;
+
+    @Setup
+    public void setUp() {
+        var examenes = CatalogoEnMemoria.generar(tamanio);
+        pool = new ForkJoinPool(hilos);
+        service = new ExamenServiceParaleloImp(new CatalogoEnMemoria.Examenes(examenes),
+                new CatalogoEnMemoria.Preguntas(), pool, hilos, ExamenServiceParaleloImp.UMBRAL_POR_DEFECTO);
+        switch (caso) {
+            case "final":
+                consulta = examenes.get(tamanio - tamanio / 10).getNombre();
+                break;
+            case "inicio":
+                consulta = examenes.get(100).getNombre();
+                break;
+            default:
+                consulta = "Inexistente";
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public Optional<Examen> findExamenPorNombre() {
+        return service.findExamenPorNombre(consulta);
+    }
+}
@@ -0,0 +1,66 @@
+package org.ediaz.appmockito.benchmarks;
+
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.services.ExamenService;
+import org.ediaz.appmockito.services.ExamenServiceImp;
+import org.ediaz.appmockito.services.ExamenServiceIndexadoImp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Busqueda por preguntas: recorrido de todas las preguntas del catalogo contra el indice invertido
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreguntasBenchmark {
+
+    @Param({"10000", "100000"})
+    private int tamanio;
+
+    @Param({"recorrido", "indice"})
+    private String implementacion;
+
+    private ExamenService service;
+    private String[] consultas;
+    private int siguiente;
+
+    @Setup
+    public void setUp() {
+        var examenRepository = new CatalogoEnMemoria.Examenes(CatalogoEnMemoria.generar(tamanio));
+        var preguntaRepository = new CatalogoEnMemoria.PreguntasPorTema();
+        service = "indice".equals(implementacion)
+                ? new ExamenServiceIndexadoImp(examenRepository, preguntaRepository)
+                : new ExamenServiceImp(examenRepository, preguntaRepository);
+//        Un termino, dos terminos con AND y dos alternativas con OR
+        var random = new Random(13);
+        var temas = CatalogoEnMemoria.TEMAS;
+        consultas = new String[256];
+        for (int i = 0; i < consultas.length; i++) {
+            var a = temas[random.nextInt(temas.length)];
+            var b = temas[random.nextInt(temas.length)];
+            consultas[i] = i % 3 == 0 ? a : i % 3 == 1 ? a + " " + b : a + " " + b + " OR explique " + b;
+        }
+//        La construccion del indice no forma parte de la medicion
+        service.findExamenesPorPregunta(consultas[0]);
+    }
+
+    @Benchmark
+    public List<Examen> findExamenesPorPregunta() {
+        return service.findExamenesPorPregunta(consultas[siguiente++ & (consultas.length - 1)]);
+    }
+}
@@ -0,0 +1,66 @@
+package org.ediaz.appmockito.benchmarks;
+
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.services.ExamenService;
+import org.ediaz.appmockito.services.ExamenServiceImp;
+import org.ediaz.appmockito.services.ExamenServiceIndexadoImp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Autocompletado: los k mejores por nombre con consultas que crecen letra por letra.
+// La meta es menos de 1 ms por consulta con 1M de examenes usando el indice
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class TopKBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int tamanio;
+
+    @Param({"recorrido", "indice"})
+    private String implementacion;
+
+    @Param({"10"})
+    private int k;
+
+    private ExamenService service;
+    private String[] consultas;
+    private int siguiente;
+
+    @Setup
+    public void setUp() {
+        var examenes = CatalogoEnMemoria.generar(tamanio);
+        var examenRepository = new CatalogoEnMemoria.Examenes(examenes);
+        service = "indice".equals(implementacion)
+                ? new ExamenServiceIndexadoImp(examenRepository, new CatalogoEnMemoria.Preguntas())
+                : new ExamenServiceImp(examenRepository, new CatalogoEnMemoria.Preguntas());
+//        Prefijos de 1 a 12 letras de nombres reales, como los que se escriben en un buscador
+        var random = new Random(17);
+        consultas = new String[1024];
+        for (int i = 0; i < consultas.length; i++) {
+            var nombre = examenes.get(random.nextInt(examenes.size())).getNombre();
+            consultas[i] = nombre.substring(0, 1 + random.nextInt(Math.min(12, nombre.length())));
+        }
+    }
+
+    @Benchmark
+    public List<Examen> findExamenesPorNombre() {
+        return service.findExamenesPorNombre(consultas[siguiente++ & (consultas.length - 1)], k);
+    }
+}
@@ -0,0 +1,34 @@
+package org.ediaz.appmockito.concurrencia;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Executors pensados para correr repositorios bloqueantes detras de las APIs asincronas
+public final class Ejecutores {
+
+    private Ejecutores() {
+    }
+
+    // Un hilo virtual por tarea cuando la JVM lo soporta (Java 21+), el proyecto compila con Java 16
+    // asi que se busca por reflexion. En JVM anteriores se usa un pool elastico de hilos daemon
+    public static ExecutorService paraBloqueantes() {
+        try {
+            Method fabrica = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) fabrica.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(hilosDaemon("bloqueante"));
+        }
+    }
+
+    public static ThreadFactory hilosDaemon(String prefijo) {
+        var contador = new AtomicInteger();
+        return tarea -> {
+            var hilo = new Thread(tarea, prefijo + "-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+}
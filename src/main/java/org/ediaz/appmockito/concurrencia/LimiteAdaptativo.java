@@ -0,0 +1,134 @@
+package org.ediaz.appmockito.concurrencia;
+
+import java.util.function.LongSupplier;
+
+// Limite de concurrencia AIMD (aumento aditivo, disminucion multiplicativa) guiado por la latencia:
+// - La latencia base es la minima observada (min-RTT) en las ultimas dos ventanas de MUESTRAS_VENTANA
+//   llamadas, asi sigue al backend si se vuelve mas lento o mas rapido de forma permanente. Una
+//   llamada es lenta si tarda mas que base * tolerancia: lo que importa es la cola que se forma
+//   delante del backend, no cuanto tarda sin carga
+// - Una llamada que termina a tiempo suma 1/limite, o sea +1 cada vez que se completa un limite
+//   entero de llamadas rapidas. Solo si al menos la mitad del limite estaba en uso, con poca carga
+//   la latencia no dice nada sobre cuanta concurrencia aguanta el backend
+// - Una llamada lenta o con error multiplica el limite por factorDisminucion. Como mucho una vez por
+//   base * tolerancia: las llamadas que ya estaban en vuelo cuando empezo la lentitud reportan tarde
+//   y no deben llevar el limite al minimo de golpe
+// Quien no obtiene permiso no espera, el rechazo rapido es lo que evita que los hilos se acumulen
+public class LimiteAdaptativo {
+
+    public static final double TOLERANCIA_POR_DEFECTO = 2.0;
+    public static final double FACTOR_POR_DEFECTO = 0.9;
+    static final int MUESTRAS_VENTANA = 100;
+
+    private final int minimo;
+    private final int maximo;
+    private final double tolerancia;
+    private final double factorDisminucion;
+    private final LongSupplier reloj;
+
+    // Protegido por el monitor de this
+    private double limite;
+    private int enVuelo;
+    private long minimaVentana = Long.MAX_VALUE;
+    private long minimaAnterior = Long.MAX_VALUE;
+    private int muestrasVentana;
+    private long ultimaDisminucion;
+    private boolean huboDisminucion;
+    private long aumentos;
+    private long disminuciones;
+
+    public LimiteAdaptativo(int inicial, int minimo, int maximo) {
+        this(inicial, minimo, maximo, TOLERANCIA_POR_DEFECTO, FACTOR_POR_DEFECTO, System::nanoTime);
+    }
+
+    public LimiteAdaptativo(int inicial, int minimo, int maximo, double tolerancia,
+                            double factorDisminucion, LongSupplier reloj) {
+        if (minimo <= 0 || minimo > maximo || inicial < minimo || inicial > maximo) {
+            throw new IllegalArgumentException("Se requiere 0 < minimo <= inicial <= maximo");
+        }
+        if (tolerancia <= 1) {
+            throw new IllegalArgumentException("tolerancia debe ser mayor a 1");
+        }
+        if (factorDisminucion <= 0 || factorDisminucion >= 1) {
+            throw new IllegalArgumentException("factorDisminucion debe estar entre 0 y 1");
+        }
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.tolerancia = tolerancia;
+        this.factorDisminucion = factorDisminucion;
+        this.reloj = reloj;
+        this.limite = inicial;
+    }
+
+    public synchronized boolean intentarAdquirir() {
+        if (enVuelo >= (int) limite) {
+            return false;
+        }
+        enVuelo++;
+        return true;
+    }
+
+    // Se llama una vez por cada intentarAdquirir que devolvio true. Las llamadas con error no
+    // cuentan para la latencia base, un fallo rapido no es un backend rapido
+    public synchronized void liberar(long nanos, boolean fallo) {
+        boolean ocupado = enVuelo * 2 >= (int) limite;
+        enVuelo--;
+        if (!fallo) {
+            registrarMuestra(nanos);
+        }
+        long umbral = umbralLentaNanos();
+        if (fallo || nanos > umbral) {
+            long ahora = reloj.getAsLong();
+            if (!huboDisminucion || ahora - ultimaDisminucion >= umbral) {
+                limite = Math.max(minimo, limite * factorDisminucion);
+                ultimaDisminucion = ahora;
+                huboDisminucion = true;
+                disminuciones++;
+            }
+        } else if (ocupado && limite < maximo) {
+            int antes = (int) limite;
+            limite = Math.min(maximo, limite + 1.0 / limite);
+            if ((int) limite > antes) {
+                aumentos++;
+            }
+        }
+    }
+
+    private void registrarMuestra(long nanos) {
+        minimaVentana = Math.min(minimaVentana, nanos);
+        if (++muestrasVentana == MUESTRAS_VENTANA) {
+            minimaAnterior = minimaVentana;
+            minimaVentana = Long.MAX_VALUE;
+            muestrasVentana = 0;
+        }
+    }
+
+    // Sin muestras todavia nada es lento
+    private long umbralLentaNanos() {
+        long base = Math.min(minimaAnterior, minimaVentana);
+        return base == Long.MAX_VALUE ? Long.MAX_VALUE : (long) (base * tolerancia);
+    }
+
+    public synchronized int getLimite() {
+        return (int) limite;
+    }
+
+    public synchronized int getEnVuelo() {
+        return enVuelo;
+    }
+
+    // Latencia minima reciente, -1 sin muestras
+    public synchronized long getLatenciaBaseNanos() {
+        long base = Math.min(minimaAnterior, minimaVentana);
+        return base == Long.MAX_VALUE ? -1 : base;
+    }
+
+    // Veces que el limite entero subio
+    public synchronized long getAumentos() {
+        return aumentos;
+    }
+
+    public synchronized long getDisminuciones() {
+        return disminuciones;
+    }
+}
@@ -0,0 +1,325 @@
+package org.ediaz.appmockito.eventos;
+
+import org.ediaz.appmockito.concurrencia.Ejecutores;
+import org.ediaz.appmockito.models.Examen;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bus de cambios en memoria: un anillo de capacidad fija donde cada evento publicado recibe una
+// secuencia creciente. Publicar nunca espera, si el anillo esta lleno se sobrescribe el evento mas
+// viejo y un suscriptor lento no frena las escrituras. Cada suscripcion tiene su propio hilo que lee
+// desde su posicion en lotes de hasta tamanioLote y llama a procesar fuera del lock.
+//
+// Reanudar: getProcesadoHasta() es la ultima secuencia que el suscriptor termino de procesar. Quien
+// persiste algo derivado guarda ese numero con el y al reiniciar se suscribe desde el siguiente; si
+// esa secuencia ya no esta en el anillo se llama a eventosPerdidos. El bus vive en memoria, asi que al
+// reiniciar el proceso se crea con primeraSecuencia para seguir la numeracion anterior.
+// Si procesar falla la suscripcion se detiene con el error y getProcesadoHasta queda en el ultimo lote
+// completo: suscribirse de nuevo desde ahi reprocesa el lote fallido (entrega al menos una vez)
+public class BusCambios implements AutoCloseable {
+
+    public static final int CAPACIDAD_POR_DEFECTO = 1 << 16;
+
+    private final long primeraSecuencia;
+
+    // Anillo protegido por lock, el evento de la secuencia s esta en s % capacidad
+    private final EventoCambio[] anillo;
+    private long siguiente;
+    private boolean cerrado;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hayEventos = lock.newCondition();
+    private final List<Suscripcion> suscripciones = new CopyOnWriteArrayList<>();
+
+    public BusCambios() {
+        this(CAPACIDAD_POR_DEFECTO, 1);
+    }
+
+    public BusCambios(int capacidad, long primeraSecuencia) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("capacidad debe ser mayor a 0");
+        }
+        if (primeraSecuencia <= 0) {
+            throw new IllegalArgumentException("primeraSecuencia debe ser mayor a 0");
+        }
+        this.anillo = new EventoCambio[capacidad];
+        this.primeraSecuencia = primeraSecuencia;
+        this.siguiente = primeraSecuencia;
+    }
+
+    public long publicarExamen(Examen examen) {
+        return publicarExamenes(List.of(examen));
+    }
+
+    // Todos los examenes del lote quedan con secuencias consecutivas
+    public long publicarExamenes(List<Examen> examenes) {
+        lock.lock();
+        try {
+            for (Examen examen : examenes) {
+                agregar(EventoCambio.Tipo.EXAMEN, examen.getId(), examen, null);
+            }
+            return siguiente - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long publicarPreguntas(Long examenId, List<String> preguntas) {
+        lock.lock();
+        try {
+            agregar(EventoCambio.Tipo.PREGUNTAS, examenId, null, List.copyOf(preguntas));
+            return siguiente - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void agregar(EventoCambio.Tipo tipo, Long examenId, Examen examen, List<String> preguntas) {
+        if (cerrado) {
+            throw new IllegalStateException("El bus de cambios esta cerrado");
+        }
+        anillo[indice(siguiente)] = new EventoCambio(siguiente, tipo, examenId, examen, preguntas);
+        siguiente++;
+        hayEventos.signalAll();
+    }
+
+    // Recibe los eventos publicados desde ahora
+    public Suscripcion suscribir(String nombre, int tamanioLote, SuscriptorCambios suscriptor) {
+        lock.lock();
+        try {
+            return suscribir(nombre, siguiente, tamanioLote, suscriptor);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Recibe los eventos con secuencia >= desde, para reanudar con getProcesadoHasta() + 1
+    public Suscripcion suscribir(String nombre, long desde, int tamanioLote, SuscriptorCambios suscriptor) {
+        if (tamanioLote <= 0) {
+            throw new IllegalArgumentException("tamanioLote debe ser mayor a 0");
+        }
+        Suscripcion suscripcion;
+        lock.lock();
+        try {
+            if (cerrado) {
+                throw new IllegalStateException("El bus de cambios esta cerrado");
+            }
+            if (desde > siguiente) {
+                throw new IllegalArgumentException("La secuencia " + desde + " todavia no se publico, la ultima es " + (siguiente - 1));
+            }
+            suscripcion = new Suscripcion(nombre, desde, tamanioLote, suscriptor);
+            suscripciones.add(suscripcion);
+        } finally {
+            lock.unlock();
+        }
+        suscripcion.hilo.start();
+        return suscripcion;
+    }
+
+    public long getUltimaSecuencia() {
+        lock.lock();
+        try {
+            return siguiente - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Secuencia mas vieja que todavia esta en el anillo
+    public long getPrimeraDisponible() {
+        lock.lock();
+        try {
+            return primeraDisponible();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getPublicados() {
+        lock.lock();
+        try {
+            return siguiente - primeraSecuencia;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacidad() {
+        return anillo.length;
+    }
+
+    // Detiene todas las suscripciones, los eventos que no alcanzaron a procesar se pueden pedir al
+    // reanudar si el proceso sigue vivo, si no hay que reconstruir
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            cerrado = true;
+            hayEventos.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        suscripciones.forEach(Suscripcion::close);
+    }
+
+    private long primeraDisponible() {
+        return Math.max(primeraSecuencia, siguiente - anillo.length);
+    }
+
+    private int indice(long secuencia) {
+        return (int) (secuencia % anillo.length);
+    }
+
+    public final class Suscripcion implements AutoCloseable {
+
+        private final String nombre;
+        private final int tamanioLote;
+        private final SuscriptorCambios suscriptor;
+        private final Thread hilo;
+
+        // Proxima secuencia a leer, protegida por el lock del bus
+        private long posicion;
+        private boolean cerrada;
+
+        private volatile long procesadoHasta;
+        private volatile Throwable error;
+        private final LongAdder lotes = new LongAdder();
+        private final LongAdder eventos = new LongAdder();
+        private final LongAdder perdidos = new LongAdder();
+
+        private Suscripcion(String nombre, long desde, int tamanioLote, SuscriptorCambios suscriptor) {
+            this.nombre = nombre;
+            this.tamanioLote = tamanioLote;
+            this.suscriptor = suscriptor;
+            this.posicion = desde;
+            this.procesadoHasta = desde - 1;
+            this.hilo = Ejecutores.hilosDaemon("bus-cambios-" + nombre).newThread(this::consumir);
+        }
+
+        private void consumir() {
+            while (true) {
+                List<EventoCambio> lote = null;
+                long perdidosDesde = 0;
+                long perdidosHasta = 0;
+                lock.lock();
+                try {
+                    while (!cerrada && !cerrado && posicion >= siguiente) {
+                        hayEventos.awaitUninterruptibly();
+                    }
+                    if (cerrada || cerrado) {
+                        return;
+                    }
+                    long primera = primeraDisponible();
+                    if (posicion < primera) {
+                        perdidosDesde = posicion;
+                        perdidosHasta = primera - 1;
+                        posicion = primera;
+                    } else {
+                        int cantidad = (int) Math.min(tamanioLote, siguiente - posicion);
+                        lote = new ArrayList<>(cantidad);
+                        for (int i = 0; i < cantidad; i++) {
+                            lote.add(anillo[indice(posicion + i)]);
+                        }
+                        posicion += cantidad;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    if (lote == null) {
+                        suscriptor.eventosPerdidos(perdidosDesde, perdidosHasta);
+                        perdidos.add(perdidosHasta - perdidosDesde + 1);
+                        procesado(perdidosHasta);
+                    } else {
+                        suscriptor.procesar(lote);
+                        lotes.increment();
+                        eventos.add(lote.size());
+                        procesado(lote.get(lote.size() - 1).getSecuencia());
+                    }
+                } catch (Throwable e) {
+//                    Tambien un Error: sin registrarlo esperar no se enteraria de que el hilo murio
+                    error = e;
+                    synchronized (this) {
+                        notifyAll();
+                    }
+                    return;
+                }
+            }
+        }
+
+        private synchronized void procesado(long secuencia) {
+            procesadoHasta = secuencia;
+            notifyAll();
+        }
+
+        // Espera a que el suscriptor procese hasta la secuencia dada, por ejemplo la que devolvio
+        // publicar, para leer lo derivado con las escrituras propias incluidas
+        public synchronized boolean esperar(long secuencia, Duration plazo) throws InterruptedException {
+            long limite = System.nanoTime() + plazo.toNanos();
+            while (procesadoHasta < secuencia && error == null) {
+                long restante = limite - System.nanoTime();
+                if (restante <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, restante);
+            }
+            return procesadoHasta >= secuencia;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+
+        public long getProcesadoHasta() {
+            return procesadoHasta;
+        }
+
+        // Eventos publicados que el suscriptor todavia no proceso
+        public long getRetraso() {
+            return Math.max(0, getUltimaSecuencia() - procesadoHasta);
+        }
+
+        public long getLotes() {
+            return lotes.sum();
+        }
+
+        public long getEventos() {
+            return eventos.sum();
+        }
+
+        public long getPerdidos() {
+            return perdidos.sum();
+        }
+
+        // Error con el que se detuvo la suscripcion, o null
+        public Throwable getError() {
+            return error;
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                cerrada = true;
+                hayEventos.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            suscripciones.remove(this);
+            if (Thread.currentThread() != hilo) {
+                try {
+                    hilo.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.ediaz.appmockito.eventos;
+
+import org.ediaz.appmockito.models.Examen;
+
+import java.util.List;
+
+// Cambio publicado en el BusCambios. Lleva el valor escrito para que el suscriptor pueda actualizarse
+// sin volver a leer el repositorio:
+// - EXAMEN: el examen guardado con save o saveAll
+// - PREGUNTAS: las preguntas guardadas. examenId es null cuando vienen de guardarVarias
+public final class EventoCambio {
+
+    public enum Tipo {
+        EXAMEN,
+        PREGUNTAS
+    }
+
+    private final long secuencia;
+    private final Tipo tipo;
+    private final Long examenId;
+    private final Examen examen;
+    private final List<String> preguntas;
+
+    EventoCambio(long secuencia, Tipo tipo, Long examenId, Examen examen, List<String> preguntas) {
+        this.secuencia = secuencia;
+        this.tipo = tipo;
+        this.examenId = examenId;
+        this.examen = examen;
+        this.preguntas = preguntas;
+    }
+
+    public long getSecuencia() {
+        return secuencia;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public Long getExamenId() {
+        return examenId;
+    }
+
+    // Solo en eventos EXAMEN
+    public Examen getExamen() {
+        return examen;
+    }
+
+    // Solo en eventos PREGUNTAS
+    public List<String> getPreguntas() {
+        return preguntas;
+    }
+
+    @Override
+    public String toString() {
+        return "EventoCambio{" +
+                "secuencia=" + secuencia +
+                ", tipo=" + tipo +
+                ", examenId=" + examenId +
+                '}';
+    }
+}
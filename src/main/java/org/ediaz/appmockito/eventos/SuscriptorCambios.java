@@ -0,0 +1,19 @@
+package org.ediaz.appmockito.eventos;
+
+import java.util.List;
+
+// Consumidor de un BusCambios. procesar recibe lotes en orden de secuencia, sin huecos ni repetidos
+// mientras la suscripcion este viva
+@FunctionalInterface
+public interface SuscriptorCambios {
+
+    void procesar(List<EventoCambio> lote);
+
+    // El anillo ya sobrescribio los eventos desde..hasta (el suscriptor quedo muy atras o pidio una
+    // secuencia vieja al reanudar). Lo derivado esta desactualizado y hay que reconstruirlo desde el
+    // repositorio; despues de esta llamada la suscripcion sigue con hasta + 1.
+    // Por defecto falla y la suscripcion se detiene, perder cambios en silencio es peor
+    default void eventosPerdidos(long desde, long hasta) {
+        throw new IllegalStateException("Se perdieron los eventos " + desde + " a " + hasta);
+    }
+}
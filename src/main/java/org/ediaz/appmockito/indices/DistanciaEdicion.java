@@ -0,0 +1,39 @@
+package org.ediaz.appmockito.indices;
+
+// Distancia de edicion (Levenshtein) entre un patron y la subcadena del texto que mejor coincide,
+// es decir cuantas inserciones, borrados o cambios necesita el patron para aparecer dentro del texto.
+// Algoritmo de Sellers: programacion dinamica con O(largo patron) de memoria, termina antes si
+// encuentra el patron exacto
+public final class DistanciaEdicion {
+
+    private DistanciaEdicion() {
+    }
+
+    // Devuelve la distancia o maximo + 1 si es mayor que maximo
+    public static int enSubcadena(String patron, String texto, int maximo) {
+        int m = patron.length();
+        if (m == 0) {
+            return 0;
+        }
+        var anterior = new int[m + 1];
+        var actual = new int[m + 1];
+        for (int i = 0; i <= m; i++) {
+            anterior[i] = i;
+        }
+        int mejor = anterior[m];
+        for (int j = 0; j < texto.length() && mejor > 0; j++) {
+            char c = texto.charAt(j);
+//            La coincidencia puede empezar en cualquier posicion del texto sin costo
+            actual[0] = 0;
+            for (int i = 1; i <= m; i++) {
+                int cambio = anterior[i - 1] + (patron.charAt(i - 1) == c ? 0 : 1);
+                actual[i] = Math.min(cambio, Math.min(anterior[i], actual[i - 1]) + 1);
+            }
+            mejor = Math.min(mejor, actual[m]);
+            var temporal = anterior;
+            anterior = actual;
+            actual = temporal;
+        }
+        return Math.min(mejor, maximo + 1);
+    }
+}
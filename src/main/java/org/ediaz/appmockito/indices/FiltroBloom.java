@@ -0,0 +1,85 @@
+package org.ediaz.appmockito.indices;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Filtro de Bloom sobre claves long: puedeContener(clave) == false significa que la clave nunca se
+// agrego, true puede ser un falso positivo. Se dimensiona para capacidad claves con la tasa de falsos
+// positivos indicada (m = -n ln p / ln2^2 bits y k = m/n ln2 funciones). Las k posiciones salen de
+// dos mezclas de la clave (h1 + i * h2), asi solo se calcula un hash por consulta.
+// Los bits son un AtomicLongArray: agregar y consultar desde varios hilos no necesita lock
+public class FiltroBloom {
+
+    private final AtomicLongArray bits;
+    private final long cantidadBits;
+    private final int funciones;
+    private final LongAdder agregadas = new LongAdder();
+
+    public FiltroBloom(long capacidad, double tasaFalsosPositivos) {
+        if (tasaFalsosPositivos <= 0 || tasaFalsosPositivos >= 1) {
+            throw new IllegalArgumentException("tasaFalsosPositivos debe estar entre 0 y 1");
+        }
+        long n = Math.max(1, capacidad);
+        long m = (long) Math.ceil(-n * Math.log(tasaFalsosPositivos) / (Math.log(2) * Math.log(2)));
+        int palabras = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) >>> 6));
+        this.bits = new AtomicLongArray(palabras);
+        this.cantidadBits = (long) palabras << 6;
+        this.funciones = Math.max(1, (int) Math.round((double) cantidadBits / n * Math.log(2)));
+    }
+
+    public void agregar(long clave) {
+        long h1 = mezclar(clave);
+        long h2 = mezclar(h1) | 1;
+        for (int i = 0; i < funciones; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, cantidadBits);
+            int palabra = (int) (bit >>> 6);
+            long mascara = 1L << bit;
+            long actual = bits.get(palabra);
+            while ((actual & mascara) == 0 && !bits.compareAndSet(palabra, actual, actual | mascara)) {
+                actual = bits.get(palabra);
+            }
+        }
+        agregadas.increment();
+    }
+
+    public boolean puedeContener(long clave) {
+        long h1 = mezclar(clave);
+        long h2 = mezclar(h1) | 1;
+        for (int i = 0; i < funciones; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, cantidadBits);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Tasa de falsos positivos esperada con los bits encendidos ahora: (bits en uno / bits) ^ k
+    public double getTasaEstimada() {
+        long encendidos = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            encendidos += Long.bitCount(bits.get(i));
+        }
+        return Math.pow((double) encendidos / cantidadBits, funciones);
+    }
+
+    // Claves agregadas contando repetidas
+    public long getAgregadas() {
+        return agregadas.sum();
+    }
+
+    public long getBytes() {
+        return cantidadBits / 8;
+    }
+
+    public int getFunciones() {
+        return funciones;
+    }
+
+    // Finalizador de splitmix64
+    private static long mezclar(long valor) {
+        valor = (valor ^ (valor >>> 30)) * 0xBF58476D1CE4E5B9L;
+        valor = (valor ^ (valor >>> 27)) * 0x94D049BB133111EBL;
+        return valor ^ (valor >>> 31);
+    }
+}
@@ -0,0 +1,425 @@
+package org.ediaz.appmockito.indices;
+
+import org.ediaz.appmockito.models.Examen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+
+// Indice de subcadenas sobre Examen.nombre basado en trigramas
+// Cada trigrama guarda las posiciones (en orden de insercion) de los examenes que lo contienen,
+// asi se recorren los candidatos en el mismo orden que la lista original y el primero que
+// contiene la consulta es el mismo que devolveria findAll().stream().filter(...).findFirst()
+//
+// En modo normalizado se indexa la forma sin mayusculas ni acentos de cada nombre (ver Normalizador),
+// calculada una sola vez al agregar el examen; la consulta se normaliza una vez por llamada y la
+// comparacion es un indexOf sobre Strings Latin-1 (un byte[] internamente), que la JVM vectoriza.
+// Ese modo permite ademas la busqueda aproximada por distancia de edicion.
+//
+// Para autocompletar, buscarMejores(consulta, k) devuelve los k mejores resultados: primero los que
+// empiezan con la consulta, luego los mas populares (registrarUso), luego los que la contienen mas
+// cerca del inicio y por ultimo en orden alfabetico. Los prefijos salen de un arreglo de posiciones
+// ordenado por texto (busqueda binaria) que ya esta en el orden del ranking para los no populares,
+// asi basta leer k entradas del rango; lo agregado despues de ordenar queda en pendientes hasta
+// LIMITE_PENDIENTES. Los examenes con algun uso se revisan aparte (populares)
+public class IndiceNombres {
+
+    private static final int N = 3;
+    private static final int LIMITE_PENDIENTES = 4096;
+
+    // Mejor primero: prefijo, mas popular, coincidencia mas cerca del inicio, alfabetico, agregado antes
+    private static final Comparator<Candidato> RANKING = Comparator
+            .comparing((Candidato c) -> c.coincidencia != 0)
+            .thenComparing(Comparator.comparingLong((Candidato c) -> c.popularidad).reversed())
+            .thenComparingInt(c -> c.coincidencia)
+            .thenComparing(c -> c.texto)
+            .thenComparingInt(c -> c.posicion);
+
+    private final List<Examen> examenes = new ArrayList<>();
+    private final List<String> nombres = new ArrayList<>();
+    private final Map<Long, Integer> posicionesPorId = new HashMap<>();
+    private final Map<Long, ListaEnteros> trigramas = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final boolean normalizado;
+
+    // Orden por texto de las posiciones, con el texto que tenian al ordenarse
+    private String[] ordenTextos = new String[0];
+    private int[] ordenPosiciones = new int[0];
+    // Posiciones agregadas o renombradas despues de ordenar, sus entradas anteriores en el orden se ignoran
+    private final ListaEnteros pendientes = new ListaEnteros();
+    private final BitSet fueraDeOrden = new BitSet();
+    private long[] popularidad = new long[16];
+    // Posiciones con popularidad mayor a cero
+    private final ListaEnteros populares = new ListaEnteros();
+
+    public IndiceNombres() {
+        this(false);
+    }
+
+    public IndiceNombres(boolean normalizado) {
+        this.normalizado = normalizado;
+    }
+
+    public IndiceNombres(List<Examen> examenes) {
+        this(examenes, false);
+    }
+
+    public IndiceNombres(List<Examen> examenes, boolean normalizado) {
+        this(normalizado);
+        examenes.forEach(this::indexar);
+        reordenar();
+    }
+
+    public boolean isNormalizado() {
+        return normalizado;
+    }
+
+    // Agrega el examen al final o, si su id ya estaba indexado, lo reemplaza en su misma posicion
+    public void agregar(Examen examen) {
+        lock.writeLock().lock();
+        try {
+            indexar(examen);
+            if (pendientes.tamanio() >= LIMITE_PENDIENTES) {
+                reordenar();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void indexar(Examen examen) {
+        var texto = texto(examen.getNombre());
+        Integer posicion = examen.getId() != null ? posicionesPorId.get(examen.getId()) : null;
+        if (posicion == null) {
+            posicion = examenes.size();
+            examenes.add(examen);
+            nombres.add(texto);
+            if (examen.getId() != null) {
+                posicionesPorId.put(examen.getId(), posicion);
+            }
+        } else {
+            int actual = posicion;
+            recorrerTrigramas(nombres.get(actual), clave -> {
+                var lista = trigramas.get(clave);
+                if (lista != null) {
+                    lista.eliminar(actual);
+                }
+            });
+            examenes.set(actual, examen);
+            nombres.set(actual, texto);
+        }
+        int nueva = posicion;
+        recorrerTrigramas(texto, clave ->
+                trigramas.computeIfAbsent(clave, k -> new ListaEnteros()).agregar(nueva));
+        pendientes.agregar(nueva);
+        fueraDeOrden.set(nueva);
+        if (nueva == popularidad.length) {
+            popularidad = Arrays.copyOf(popularidad, popularidad.length * 2);
+        }
+    }
+
+    // Mezcla las posiciones pendientes con el orden existente descartando las entradas viejas
+    private void reordenar() {
+        var nuevas = new Integer[pendientes.tamanio()];
+        int cantidad = 0;
+        for (int i = 0; i < pendientes.tamanio(); i++) {
+            if (nombres.get(pendientes.get(i)) != null) {
+                nuevas[cantidad++] = pendientes.get(i);
+            }
+        }
+        Arrays.sort(nuevas, 0, cantidad, Comparator.comparing(nombres::get));
+        int vigentes = 0;
+        for (int posicion : ordenPosiciones) {
+            if (!fueraDeOrden.get(posicion)) {
+                vigentes++;
+            }
+        }
+        var textos = new String[vigentes + cantidad];
+        var posiciones = new int[vigentes + cantidad];
+        int i = 0, j = 0, k = 0;
+        while (k < textos.length) {
+            while (i < ordenPosiciones.length && fueraDeOrden.get(ordenPosiciones[i])) {
+                i++;
+            }
+            boolean tomarNueva = i == ordenPosiciones.length
+                    || (j < cantidad && nombres.get(nuevas[j]).compareTo(ordenTextos[i]) < 0);
+            if (tomarNueva) {
+                posiciones[k] = nuevas[j];
+                textos[k] = nombres.get(nuevas[j]);
+                j++;
+            } else {
+                posiciones[k] = ordenPosiciones[i];
+                textos[k] = ordenTextos[i];
+                i++;
+            }
+            k++;
+        }
+        ordenTextos = textos;
+        ordenPosiciones = posiciones;
+        pendientes.limpiar();
+        fueraDeOrden.clear();
+    }
+
+    public Optional<Examen> buscarPrimero(String nombre) {
+        var encontrados = buscar(nombre, 1);
+        return encontrados.isEmpty() ? Optional.empty() : Optional.of(encontrados.get(0));
+    }
+
+    // Todas las coincidencias en el mismo orden en que se agregaron
+    public List<Examen> buscarTodos(String nombre) {
+        return buscar(nombre, Integer.MAX_VALUE);
+    }
+
+    private List<Examen> buscar(String consulta, int limite) {
+        var nombre = texto(consulta);
+        List<Examen> encontrados = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (nombre.length() < N) {
+                // Con consultas cortas no hay trigramas que consultar, se recorre como antes
+                for (int i = 0; i < nombres.size() && encontrados.size() < limite; i++) {
+                    if (nombres.get(i).contains(nombre)) {
+                        encontrados.add(examenes.get(i));
+                    }
+                }
+                return encontrados;
+            }
+            // Se recorre la lista de posiciones mas corta, cualquier coincidencia contiene todos los trigramas
+            var candidatos = candidatos(nombre);
+            for (int i = 0; i < candidatos.tamanio() && encontrados.size() < limite; i++) {
+                int posicion = candidatos.get(i);
+                if (nombres.get(posicion).contains(nombre)) {
+                    encontrados.add(examenes.get(posicion));
+                }
+            }
+            return encontrados;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Los k mejores examenes cuyo nombre contiene la consulta segun RANKING.
+    // Si hay al menos k que empiezan con la consulta el resultado sale solo del rango de prefijos
+    public List<Examen> buscarMejores(String consulta, int k) {
+        var nombre = texto(consulta);
+        lock.readLock().lock();
+        try {
+            var prefijos = new MejoresK<Candidato>(k, RANKING);
+            for (int i = 0; i < populares.tamanio(); i++) {
+                ofrecerPrefijo(prefijos, populares.get(i), nombre);
+            }
+            for (int i = 0; i < pendientes.tamanio(); i++) {
+                ofrecerPrefijo(prefijos, pendientes.get(i), nombre);
+            }
+//            En el rango ordenado los no populares ya vienen en orden de ranking: alcanza con k de ellos,
+//            mas los que empaten en texto con el ultimo porque ahi decide la posicion
+            int ofrecidos = 0;
+            String ultimo = null;
+            for (int i = primerMayorOIgual(nombre); i < ordenTextos.length && ordenTextos[i].startsWith(nombre); i++) {
+                int posicion = ordenPosiciones[i];
+                if (fueraDeOrden.get(posicion) || popularidad[posicion] > 0) {
+                    continue;
+                }
+                if (ofrecidos >= k && !ordenTextos[i].equals(ultimo)) {
+                    break;
+                }
+                prefijos.ofrecer(new Candidato(posicion, 0, 0, ordenTextos[i]));
+                ultimo = ordenTextos[i];
+                ofrecidos++;
+            }
+            if (prefijos.estaCompleto()) {
+                return examenes(prefijos.resultado());
+            }
+            var mejores = new MejoresK<Candidato>(k, RANKING);
+            var candidatos = nombre.length() < N ? null : candidatos(nombre);
+            int total = candidatos == null ? nombres.size() : candidatos.tamanio();
+            for (int i = 0; i < total; i++) {
+                int posicion = candidatos == null ? i : candidatos.get(i);
+                var texto = nombres.get(posicion);
+                int coincidencia = texto == null ? -1 : texto.indexOf(nombre);
+                if (coincidencia >= 0) {
+                    mejores.ofrecer(new Candidato(posicion, coincidencia, popularidad[posicion], texto));
+                }
+            }
+            return examenes(mejores.resultado());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Suma un uso al examen para el ranking de buscarMejores. Devuelve false si el id no esta indexado
+    public boolean registrarUso(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer posicion = posicionesPorId.get(id);
+            if (posicion == null) {
+                return false;
+            }
+            if (popularidad[posicion]++ == 0) {
+                populares.agregar(posicion);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Examenes cuyo nombre contiene la consulta con a lo sumo maximaDistancia ediciones, ordenados por
+    // distancia y luego por orden de insercion. Solo en modo normalizado.
+    // Filtro por trigramas: una coincidencia con k ediciones conserva al menos t - 3k de los t
+    // trigramas distintos de la consulta, asi solo se calcula la distancia de los candidatos
+    public List<Examen> buscarAproximado(String consulta, int maximaDistancia) {
+        if (!normalizado) {
+            throw new IllegalStateException("La busqueda aproximada requiere un indice normalizado");
+        }
+        var nombre = texto(consulta);
+        lock.readLock().lock();
+        try {
+            var claves = new HashSet<Long>();
+            recorrerTrigramas(nombre, claves::add);
+            int minimo = claves.size() - N * maximaDistancia;
+            int[] coincidencias = null;
+            if (minimo > 0) {
+                coincidencias = new int[examenes.size()];
+                for (Long clave : claves) {
+                    var lista = trigramas.get(clave);
+                    for (int i = 0; lista != null && i < lista.tamanio(); i++) {
+                        coincidencias[lista.get(i)]++;
+                    }
+                }
+            }
+            List<long[]> encontrados = new ArrayList<>();
+            for (int posicion = 0; posicion < nombres.size(); posicion++) {
+                if (coincidencias != null && coincidencias[posicion] < minimo) {
+                    continue;
+                }
+                int distancia = DistanciaEdicion.enSubcadena(nombre, nombres.get(posicion), maximaDistancia);
+                if (distancia <= maximaDistancia) {
+                    encontrados.add(new long[]{distancia, posicion});
+                }
+            }
+            encontrados.sort(Comparator.<long[]>comparingLong(e -> e[0]).thenComparingLong(e -> e[1]));
+            List<Examen> resultado = new ArrayList<>(encontrados.size());
+            encontrados.forEach(e -> resultado.add(examenes.get((int) e[1])));
+            return resultado;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Examenes con esos ids en el mismo orden en que se agregaron, los ids desconocidos se ignoran
+    public List<Examen> buscarPorIds(long[] ids) {
+        lock.readLock().lock();
+        try {
+            var posiciones = new int[ids.length];
+            int cantidad = 0;
+            for (long id : ids) {
+                Integer posicion = posicionesPorId.get(id);
+                if (posicion != null) {
+                    posiciones[cantidad++] = posicion;
+                }
+            }
+            Arrays.sort(posiciones, 0, cantidad);
+            List<Examen> encontrados = new ArrayList<>(cantidad);
+            for (int i = 0; i < cantidad; i++) {
+                encontrados.add(examenes.get(posiciones[i]));
+            }
+            return encontrados;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int tamanio() {
+        lock.readLock().lock();
+        try {
+            return examenes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ofrecerPrefijo(MejoresK<Candidato> prefijos, int posicion, String nombre) {
+        var texto = nombres.get(posicion);
+        if (texto != null && texto.startsWith(nombre)) {
+            prefijos.ofrecer(new Candidato(posicion, 0, popularidad[posicion], texto));
+        }
+    }
+
+    // La lista de posiciones del trigrama menos frecuente de la consulta, vacia si alguno no existe
+    private ListaEnteros candidatos(String nombre) {
+        ListaEnteros candidatos = null;
+        for (int i = 0; i + N <= nombre.length(); i++) {
+            var lista = trigramas.get(clave(nombre, i));
+            if (lista == null || lista.tamanio() == 0) {
+                return new ListaEnteros();
+            }
+            if (candidatos == null || lista.tamanio() < candidatos.tamanio()) {
+                candidatos = lista;
+            }
+        }
+        return candidatos;
+    }
+
+    private int primerMayorOIgual(String texto) {
+        int i = Arrays.binarySearch(ordenTextos, texto);
+        if (i < 0) {
+            return -i - 1;
+        }
+//        Con textos repetidos binarySearch puede caer en cualquiera de ellos
+        while (i > 0 && ordenTextos[i - 1].equals(texto)) {
+            i--;
+        }
+        return i;
+    }
+
+    private List<Examen> examenes(List<Candidato> candidatos) {
+        List<Examen> resultado = new ArrayList<>(candidatos.size());
+        candidatos.forEach(c -> resultado.add(examenes.get(c.posicion)));
+        return resultado;
+    }
+
+    private String texto(String nombre) {
+        return normalizado ? Normalizador.normalizar(nombre) : nombre;
+    }
+
+    // Cada trigrama del texto empaquetado en un long, tambien lo usa el filtro de nombres ausentes
+    public static void recorrerTrigramas(String nombre, LongConsumer accion) {
+        if (nombre == null) {
+            return;
+        }
+        for (int i = 0; i + N <= nombre.length(); i++) {
+            accion.accept(clave(nombre, i));
+        }
+    }
+
+    // Empaqueta los 3 caracteres en un long para no crear un String por trigrama
+    private static long clave(String texto, int desde) {
+        return ((long) texto.charAt(desde) << 32)
+                | ((long) texto.charAt(desde + 1) << 16)
+                | texto.charAt(desde + 2);
+    }
+
+    private static final class Candidato {
+        private final int posicion;
+        private final int coincidencia;
+        private final long popularidad;
+        private final String texto;
+
+        Candidato(int posicion, int coincidencia, long popularidad, String texto) {
+            this.posicion = posicion;
+            this.coincidencia = coincidencia;
+            this.popularidad = popularidad;
+            this.texto = texto;
+        }
+    }
+}
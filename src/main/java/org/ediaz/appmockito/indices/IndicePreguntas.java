@@ -0,0 +1,246 @@
+package org.ediaz.appmockito.indices;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Indice invertido sobre las preguntas de cada examen: termino -> ids de los examenes que lo contienen
+// Los terminos son las palabras de las preguntas en minusculas (se separa en todo lo que no es letra
+// o digito) y cada lista de ids va ordenada y comprimida en una ListaPostings.
+//
+// Consultas: los terminos separados por espacios deben estar todos (AND) y la palabra OR en
+// mayusculas separa alternativas, por ejemplo "integrales derivadas OR ecuaciones"
+//
+// escribir/leer guardan las listas tal como estan comprimidas en memoria, asi cargar el indice es
+// copiar bytes sin volver a pedir las preguntas. Lo que no se guarda son los terminos de cada examen
+// (solo sirven para reemplazar preguntas): se reconstruyen desde las listas en la primera
+// modificacion despues de leer
+public class IndicePreguntas {
+
+    private static final String OR = "OR";
+
+    private final Map<String, ListaPostings> postings = new HashMap<>();
+    private final Map<Long, String[]> terminosPorId = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean sinTerminosPorId;
+
+    // Indexa las preguntas del examen reemplazando las que tenia antes
+    public void agregar(long id, Collection<String> preguntas) {
+        var nuevos = terminos(preguntas);
+        lock.writeLock().lock();
+        try {
+            if (sinTerminosPorId) {
+                reconstruirTerminosPorId();
+            }
+            var anteriores = terminosPorId.get(id);
+            if (anteriores != null) {
+                for (String termino : anteriores) {
+                    if (!nuevos.contains(termino)) {
+                        var lista = postings.get(termino);
+                        lista.eliminar(id);
+                        if (lista.tamanio() == 0) {
+                            postings.remove(termino);
+                        }
+                    }
+                }
+            }
+            for (String termino : nuevos) {
+                postings.computeIfAbsent(termino, t -> new ListaPostings()).agregar(id);
+            }
+            if (nuevos.isEmpty()) {
+                terminosPorId.remove(id);
+            } else {
+                terminosPorId.put(id, nuevos.toArray(new String[0]));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void reconstruirTerminosPorId() {
+        Map<Long, List<String>> porId = new HashMap<>();
+        postings.forEach((termino, lista) -> {
+            var cursor = lista.cursor();
+            while (cursor.avanzar()) {
+                porId.computeIfAbsent(cursor.valor(), id -> new ArrayList<>()).add(termino);
+            }
+        });
+        porId.forEach((id, terminos) -> terminosPorId.put(id, terminos.toArray(new String[0])));
+        sinTerminosPorId = false;
+    }
+
+    // Formato: int terminos, (UTF termino, int cantidad de ids, long ultimo id, int largo, bytes) * terminos
+    public void escribir(DataOutput salida) throws IOException {
+        lock.readLock().lock();
+        try {
+            salida.writeInt(postings.size());
+            for (var entrada : postings.entrySet()) {
+                var lista = entrada.getValue();
+                salida.writeUTF(entrada.getKey());
+                salida.writeInt(lista.tamanio());
+                salida.writeLong(lista.ultimo());
+                salida.writeInt(lista.bytes());
+                lista.escribir(salida);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Lee un indice escrito con escribir desde la posicion actual del buffer
+    public static IndicePreguntas leer(ByteBuffer entrada) {
+        var indice = new IndicePreguntas();
+        int terminos = entrada.getInt();
+        for (int i = 0; i < terminos; i++) {
+            var termino = new byte[Short.toUnsignedInt(entrada.getShort())];
+            entrada.get(termino);
+            int tamanio = entrada.getInt();
+            long ultimo = entrada.getLong();
+            var datos = new byte[entrada.getInt()];
+            entrada.get(datos);
+            // writeUTF usa UTF-8 modificado, igual al estandar para terminos sin el caracter 0 ni suplentes
+            indice.postings.put(new String(termino, StandardCharsets.UTF_8), new ListaPostings(datos, tamanio, ultimo));
+        }
+        indice.sinTerminosPorId = true;
+        return indice;
+    }
+
+    // Ids que cumplen la consulta, ordenados de menor a mayor
+    public long[] buscar(String consulta) {
+        var grupos = analizar(consulta);
+        long[] resultado = new long[0];
+        lock.readLock().lock();
+        try {
+            for (Set<String> grupo : grupos) {
+                resultado = unir(resultado, todos(grupo));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return resultado;
+    }
+
+    // AND: se parte de la lista mas corta y se intersecta con las demas de menor a mayor
+    private long[] todos(Set<String> grupo) {
+        List<ListaPostings> listas = new ArrayList<>(grupo.size());
+        for (String termino : grupo) {
+            var lista = postings.get(termino);
+            if (lista == null) {
+                return new long[0];
+            }
+            listas.add(lista);
+        }
+        listas.sort(Comparator.comparingInt(ListaPostings::tamanio));
+        long[] candidatos = listas.get(0).aArreglo();
+        int cantidad = candidatos.length;
+        for (int i = 1; i < listas.size() && cantidad > 0; i++) {
+            cantidad = listas.get(i).intersectar(candidatos, cantidad, candidatos);
+        }
+        return Arrays.copyOf(candidatos, cantidad);
+    }
+
+    // OR: mezcla de dos arreglos ordenados sin repetidos
+    private static long[] unir(long[] a, long[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        var union = new long[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length || j < b.length) {
+            long valor;
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                valor = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                valor = b[j++];
+            } else {
+                valor = a[i++];
+                j++;
+            }
+            union[k++] = valor;
+        }
+        return Arrays.copyOf(union, k);
+    }
+
+    public int getTerminos() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Bytes ocupados por las listas comprimidas, sin contar los terminos ni los mapas
+    public long getBytesPostings() {
+        lock.readLock().lock();
+        try {
+            long total = 0;
+            for (ListaPostings lista : postings.values()) {
+                total += lista.bytes();
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Grupos OR de terminos AND. Los grupos vacios se descartan
+    public static List<Set<String>> analizar(String consulta) {
+        List<Set<String>> grupos = new ArrayList<>();
+        Set<String> grupo = new LinkedHashSet<>();
+        for (String palabra : consulta.trim().split("\\s+")) {
+            if (OR.equals(palabra)) {
+                if (!grupo.isEmpty()) {
+                    grupos.add(grupo);
+                }
+                grupo = new LinkedHashSet<>();
+            } else {
+                grupo.addAll(terminos(List.of(palabra)));
+            }
+        }
+        if (!grupo.isEmpty()) {
+            grupos.add(grupo);
+        }
+        return grupos;
+    }
+
+    public static Set<String> terminos(Collection<String> preguntas) {
+        Set<String> terminos = new LinkedHashSet<>();
+        for (String pregunta : preguntas) {
+            int inicio = -1;
+            for (int i = 0; i <= pregunta.length(); i++) {
+                boolean parte = i < pregunta.length() && Character.isLetterOrDigit(pregunta.charAt(i));
+                if (parte && inicio < 0) {
+                    inicio = i;
+                } else if (!parte && inicio >= 0) {
+                    terminos.add(pregunta.substring(inicio, i).toLowerCase(Locale.ROOT));
+                    inicio = -1;
+                }
+            }
+        }
+        return terminos;
+    }
+
+    // Evaluacion de la consulta sobre los terminos de un examen, para quien no usa el indice
+    public static boolean coincide(List<Set<String>> grupos, Set<String> terminos) {
+        for (Set<String> grupo : grupos) {
+            if (terminos.containsAll(grupo)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
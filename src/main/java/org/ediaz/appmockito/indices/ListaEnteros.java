@@ -0,0 +1,54 @@
+package org.ediaz.appmockito.indices;
+
+import java.util.Arrays;
+
+// Lista ordenada de enteros primitivos, evita el boxing de List<Integer> en las listas de posiciones
+class ListaEnteros {
+    private int[] valores = new int[4];
+    private int tamanio;
+
+    int tamanio() {
+        return tamanio;
+    }
+
+    int get(int i) {
+        return valores[i];
+    }
+
+    void limpiar() {
+        tamanio = 0;
+    }
+
+    void agregar(int valor) {
+        // Lo comun es agregar al final porque las posiciones crecen, solo se busca si llega desordenado
+        if (tamanio == 0 || valores[tamanio - 1] < valor) {
+            asegurarCapacidad();
+            valores[tamanio++] = valor;
+            return;
+        }
+        int i = Arrays.binarySearch(valores, 0, tamanio, valor);
+        if (i >= 0) {
+            return;
+        }
+        int insercion = -i - 1;
+        asegurarCapacidad();
+        System.arraycopy(valores, insercion, valores, insercion + 1, tamanio - insercion);
+        valores[insercion] = valor;
+        tamanio++;
+    }
+
+    void eliminar(int valor) {
+        int i = Arrays.binarySearch(valores, 0, tamanio, valor);
+        if (i < 0) {
+            return;
+        }
+        System.arraycopy(valores, i + 1, valores, i, tamanio - i - 1);
+        tamanio--;
+    }
+
+    private void asegurarCapacidad() {
+        if (tamanio == valores.length) {
+            valores = Arrays.copyOf(valores, valores.length * 2);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.ediaz.appmockito.indices;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Lista ordenada de ids sin repetir comprimida: el primer id en zigzag y el resto como la diferencia
+// con el anterior, todos en varint. Con ids consecutivos cada entrada ocupa 1 byte en lugar de 8
+class ListaPostings {
+    private byte[] datos = new byte[8];
+    private int largo;
+    private int tamanio;
+    private long ultimo;
+
+    ListaPostings() {
+    }
+
+    // Lista ya codificada, por ejemplo leida de una instantanea
+    ListaPostings(byte[] datos, int tamanio, long ultimo) {
+        this.datos = datos;
+        this.largo = datos.length;
+        this.tamanio = tamanio;
+        this.ultimo = ultimo;
+    }
+
+    int tamanio() {
+        return tamanio;
+    }
+
+    int bytes() {
+        return largo;
+    }
+
+    long ultimo() {
+        return ultimo;
+    }
+
+    // Bytes codificados en el mismo formato que lee el constructor
+    void escribir(DataOutput salida) throws IOException {
+        salida.write(datos, 0, largo);
+    }
+
+    void agregar(long id) {
+        // Lo comun es agregar al final porque los ids crecen, solo se recodifica si llega desordenado
+        if (tamanio == 0) {
+            escribir((id << 1) ^ (id >> 63));
+        } else if (id > ultimo) {
+            escribir(id - ultimo);
+        } else {
+            var valores = aArreglo();
+            int i = Arrays.binarySearch(valores, id);
+            if (i >= 0) {
+                return;
+            }
+            int insercion = -i - 1;
+            var nuevos = new long[valores.length + 1];
+            System.arraycopy(valores, 0, nuevos, 0, insercion);
+            nuevos[insercion] = id;
+            System.arraycopy(valores, insercion, nuevos, insercion + 1, valores.length - insercion);
+            recodificar(nuevos);
+            return;
+        }
+        ultimo = id;
+        tamanio++;
+    }
+
+    void eliminar(long id) {
+        var valores = aArreglo();
+        int i = Arrays.binarySearch(valores, id);
+        if (i < 0) {
+            return;
+        }
+        var nuevos = new long[valores.length - 1];
+        System.arraycopy(valores, 0, nuevos, 0, i);
+        System.arraycopy(valores, i + 1, nuevos, i, valores.length - i - 1);
+        recodificar(nuevos);
+    }
+
+    long[] aArreglo() {
+        var valores = new long[tamanio];
+        var cursor = cursor();
+        for (int i = 0; cursor.avanzar(); i++) {
+            valores[i] = cursor.valor();
+        }
+        return valores;
+    }
+
+    // Deja en destino los valores de candidatos que tambien estan en esta lista y devuelve cuantos son.
+    // Recorre ambas en orden sin descomprimir la lista completa
+    int intersectar(long[] candidatos, int cantidad, long[] destino) {
+        var cursor = cursor();
+        int encontrados = 0;
+        boolean hay = cursor.avanzar();
+        for (int i = 0; i < cantidad && hay; i++) {
+            while (hay && cursor.valor() < candidatos[i]) {
+                hay = cursor.avanzar();
+            }
+            if (hay && cursor.valor() == candidatos[i]) {
+                destino[encontrados++] = candidatos[i];
+            }
+        }
+        return encontrados;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    private void recodificar(long[] valores) {
+        largo = 0;
+        tamanio = 0;
+        for (long valor : valores) {
+            agregar(valor);
+        }
+        if (datos.length > 8 && largo < datos.length / 4) {
+            datos = Arrays.copyOf(datos, Math.max(8, largo * 2));
+        }
+    }
+
+    private void escribir(long valor) {
+        if (largo + 10 > datos.length) {
+            datos = Arrays.copyOf(datos, Math.max(datos.length * 2, largo + 10));
+        }
+        while ((valor & ~0x7FL) != 0) {
+            datos[largo++] = (byte) ((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        datos[largo++] = (byte) valor;
+    }
+
+    class Cursor {
+        private int posicion;
+        private int leidos;
+        private long valor;
+
+        boolean avanzar() {
+            if (leidos == tamanio) {
+                return false;
+            }
+            long leido = 0;
+            int desplazamiento = 0;
+            byte b;
+            do {
+                b = datos[posicion++];
+                leido |= (long) (b & 0x7F) << desplazamiento;
+                desplazamiento += 7;
+            } while (b < 0);
+            valor = leidos == 0 ? (leido >>> 1) ^ -(leido & 1) : valor + leido;
+            leidos++;
+            return true;
+        }
+
+        long valor() {
+            return valor;
+        }
+    }
+}
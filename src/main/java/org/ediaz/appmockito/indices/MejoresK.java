@@ -0,0 +1,46 @@
+package org.ediaz.appmockito.indices;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Los k mejores elementos de una secuencia segun un orden, con un heap acotado a k elementos:
+// O(n log k) de tiempo y O(k) de memoria sin importar cuantos elementos se ofrezcan
+public class MejoresK<T> {
+
+    private final int k;
+    private final Comparator<? super T> orden;
+    // El peor de los k queda en la raiz para descartarlo rapido
+    private final PriorityQueue<T> heap;
+
+    // orden: el menor es el mejor
+    public MejoresK(int k, Comparator<? super T> orden) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k no puede ser negativo: " + k);
+        }
+        this.k = k;
+        this.orden = orden;
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1024)), orden.reversed());
+    }
+
+    public void ofrecer(T elemento) {
+        if (heap.size() < k) {
+            heap.add(elemento);
+        } else if (k > 0 && orden.compare(elemento, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(elemento);
+        }
+    }
+
+    public boolean estaCompleto() {
+        return heap.size() == k;
+    }
+
+    // Del mejor al peor
+    public List<T> resultado() {
+        List<T> resultado = new ArrayList<>(heap);
+        resultado.sort(orden);
+        return resultado;
+    }
+}
@@ -0,0 +1,36 @@
+package org.ediaz.appmockito.indices;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+// Forma normalizada de un texto para comparar sin distinguir mayusculas ni acentos:
+// "Análisis de Señales" -> "analisis de senales". Se calcula una vez al indexar y una vez por consulta
+public final class Normalizador {
+
+    private Normalizador() {
+    }
+
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return null;
+        }
+//        Camino rapido: la mayoria de los nombres son ASCII y no hace falta descomponerlos
+        boolean ascii = true;
+        for (int i = 0; i < texto.length() && ascii; i++) {
+            ascii = texto.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            return texto.toLowerCase(Locale.ROOT);
+        }
+//        NFD separa la letra de su tilde o dieresis y las marcas combinantes se descartan
+        var descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        var normalizado = new StringBuilder(descompuesto.length());
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                normalizado.append(Character.toLowerCase(c));
+            }
+        }
+        return normalizado.toString();
+    }
+}
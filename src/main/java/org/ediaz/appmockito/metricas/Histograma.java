@@ -0,0 +1,91 @@
+package org.ediaz.appmockito.metricas;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histograma log-lineal al estilo HDR: cada potencia de dos se divide en 32 sub-buckets, asi el
+// error relativo de los percentiles es menor a 1/32 (~3%) para cualquier magnitud y la memoria es
+// fija (~15 KB) sin importar cuantos valores se registren. Seguro para registrar desde varios hilos
+public class Histograma {
+
+    private static final int BITS_SUB_BUCKET = 5;
+    private static final int SUB_BUCKETS = 1 << BITS_SUB_BUCKET;
+    private static final int BUCKETS = (64 - BITS_SUB_BUCKET) * SUB_BUCKETS;
+
+    private final AtomicLongArray cuentas = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private volatile long maximo;
+
+    public void registrar(long valor) {
+        if (valor < 0) {
+            valor = 0;
+        }
+        cuentas.incrementAndGet(indice(valor));
+        total.increment();
+        suma.add(valor);
+        long actual = maximo;
+        while (valor > actual) {
+            synchronized (this) {
+                if (valor > maximo) {
+                    maximo = valor;
+                }
+                actual = maximo;
+            }
+        }
+    }
+
+    public long getCantidad() {
+        return total.sum();
+    }
+
+    public long getMaximo() {
+        return maximo;
+    }
+
+    public double getPromedio() {
+        long cantidad = total.sum();
+        return cantidad == 0 ? 0.0 : (double) suma.sum() / cantidad;
+    }
+
+    // Devuelve el limite superior del bucket donde cae el percentil (0.0 a 1.0)
+    public long percentil(double percentil) {
+        long cantidad = 0;
+        var foto = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            foto[i] = cuentas.get(i);
+            cantidad += foto[i];
+        }
+        if (cantidad == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(percentil * cantidad));
+        long acumulado = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            acumulado += foto[i];
+            if (acumulado >= objetivo) {
+                return Math.min(limiteSuperior(i), maximo);
+            }
+        }
+        return maximo;
+    }
+
+    static int indice(long valor) {
+        if (valor < SUB_BUCKETS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int sub = (int) (valor >>> (exponente - BITS_SUB_BUCKET)) & (SUB_BUCKETS - 1);
+        return (exponente - BITS_SUB_BUCKET + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long limiteSuperior(int indice) {
+        if (indice < SUB_BUCKETS) {
+            return indice;
+        }
+        int exponente = indice / SUB_BUCKETS + BITS_SUB_BUCKET - 1;
+        long sub = indice % SUB_BUCKETS;
+        long inferior = (1L << exponente) | (sub << (exponente - BITS_SUB_BUCKET));
+        return inferior + (1L << (exponente - BITS_SUB_BUCKET)) - 1;
+    }
+}
@@ -0,0 +1,43 @@
+package org.ediaz.appmockito.metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Mide latencia (en nanosegundos), cantidad de llamadas y errores de una operacion
+public class Medidor {
+
+    private final Histograma latencias = new Histograma();
+    private final LongAdder errores = new LongAdder();
+
+    public <T> T medir(Supplier<T> llamada) {
+        long inicio = System.nanoTime();
+        try {
+            return llamada.get();
+        } catch (Throwable e) {
+            // Tambien los Error (OutOfMemoryError, StackOverflowError), son las fallas que mas interesa ver
+            errores.increment();
+            throw e;
+        } finally {
+            latencias.registrar(System.nanoTime() - inicio);
+        }
+    }
+
+    public void ejecutar(Runnable llamada) {
+        medir(() -> {
+            llamada.run();
+            return null;
+        });
+    }
+
+    public Histograma getLatencias() {
+        return latencias;
+    }
+
+    public long getLlamadas() {
+        return latencias.getCantidad();
+    }
+
+    public long getErrores() {
+        return errores.sum();
+    }
+}
@@ -0,0 +1,36 @@
+package org.ediaz.appmockito.metricas;
+
+import java.util.function.Supplier;
+
+public interface Metricas {
+
+    // Por defecto no se mide nada; los decoradores instrumentados no se aplican con NOOP
+    Metricas NOOP = new Metricas() {
+        private final Medidor medidor = new Medidor() {
+            @Override
+            public <T> T medir(Supplier<T> llamada) {
+                return llamada.get();
+            }
+        };
+        private final Histograma histograma = new Histograma() {
+            @Override
+            public void registrar(long valor) {
+            }
+        };
+
+        @Override
+        public Medidor medidor(String nombre) {
+            return medidor;
+        }
+
+        @Override
+        public Histograma distribucion(String nombre) {
+            return histograma;
+        }
+    };
+
+    Medidor medidor(String nombre);
+
+    // Distribucion de valores que no son tiempos, por ejemplo tamanios de lote
+    Histograma distribucion(String nombre);
+}
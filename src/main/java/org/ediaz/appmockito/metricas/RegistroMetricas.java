@@ -0,0 +1,62 @@
+package org.ediaz.appmockito.metricas;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Registro en memoria del proceso, se puede volcar como texto para revisarlo o exponerlo a un scraper
+public class RegistroMetricas implements Metricas {
+
+    private final ConcurrentMap<String, Medidor> medidores = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histograma> distribuciones = new ConcurrentHashMap<>();
+
+    @Override
+    public Medidor medidor(String nombre) {
+        return medidores.computeIfAbsent(nombre, n -> new Medidor());
+    }
+
+    @Override
+    public Histograma distribucion(String nombre) {
+        return distribuciones.computeIfAbsent(nombre, n -> new Histograma());
+    }
+
+    public Map<String, Medidor> getMedidores() {
+        return Collections.unmodifiableMap(medidores);
+    }
+
+    public Map<String, Histograma> getDistribuciones() {
+        return Collections.unmodifiableMap(distribuciones);
+    }
+
+    // Una linea por valor con el formato "nombre{etiqueta} valor", latencias en nanosegundos
+    public String volcar() {
+        var texto = new StringBuilder();
+        new TreeMap<>(medidores).forEach((nombre, medidor) -> {
+            linea(texto, nombre + "_llamadas", medidor.getLlamadas());
+            linea(texto, nombre + "_errores", medidor.getErrores());
+            percentiles(texto, nombre + "_latencia_ns", medidor.getLatencias());
+        });
+        new TreeMap<>(distribuciones).forEach((nombre, histograma) -> {
+            linea(texto, nombre + "_cantidad", histograma.getCantidad());
+            percentiles(texto, nombre, histograma);
+        });
+        return texto.toString();
+    }
+
+    private static void percentiles(StringBuilder texto, String nombre, Histograma histograma) {
+        linea(texto, nombre + "{p=\"0.5\"}", histograma.percentil(0.5));
+        linea(texto, nombre + "{p=\"0.99\"}", histograma.percentil(0.99));
+        linea(texto, nombre + "{p=\"0.999\"}", histograma.percentil(0.999));
+        linea(texto, nombre + "{p=\"max\"}", histograma.getMaximo());
+    }
+
+    private static void linea(StringBuilder texto, String nombre, long valor) {
+        int etiqueta = nombre.indexOf('{');
+        var base = etiqueta < 0 ? nombre : nombre.substring(0, etiqueta);
+        texto.append(base.replace('.', '_'))
+                .append(etiqueta < 0 ? "" : nombre.substring(etiqueta))
+                .append(' ').append(valor).append('\n');
+    }
+}
@@ -0,0 +1,59 @@
+package org.ediaz.appmockito.models;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Diccionario de preguntas: cada pregunta distinta recibe un id entero y se guarda una sola vez.
+// Los examenes guardan sus preguntas como PreguntasCodificadas (ids en un arreglo primitivo) en lugar
+// de un ArrayList con su propia copia de cada String. Los ids no se reutilizan ni se borran
+public class DiccionarioPreguntas {
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    // Solo crece; se vuelve a publicar en cada alta para que los lectores vean el nuevo elemento
+    private volatile String[] preguntas = new String[64];
+    private int tamanio;
+
+    public int codificar(String pregunta) {
+        Integer id = ids.get(pregunta);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(pregunta);
+            if (id != null) {
+                return id;
+            }
+            var actuales = preguntas;
+            if (tamanio == actuales.length) {
+                actuales = Arrays.copyOf(actuales, actuales.length * 2);
+            }
+            actuales[tamanio] = pregunta;
+            preguntas = actuales;
+            ids.put(pregunta, tamanio);
+            return tamanio++;
+        }
+    }
+
+    // Vista inmutable y compacta de la lista; si ya estaba codificada con este diccionario se reutiliza
+    public PreguntasCodificadas codificar(List<String> preguntas) {
+        if (preguntas instanceof PreguntasCodificadas && ((PreguntasCodificadas) preguntas).esDe(this)) {
+            return (PreguntasCodificadas) preguntas;
+        }
+        var codigos = new int[preguntas.size()];
+        int maximo = 0;
+        for (int i = 0; i < codigos.length; i++) {
+            codigos[i] = codificar(preguntas.get(i));
+            maximo = Math.max(maximo, codigos[i]);
+        }
+        return new PreguntasCodificadas(this, codigos, maximo);
+    }
+
+    public String pregunta(int id) {
+        return preguntas[id];
+    }
+
+    public synchronized int tamanio() {
+        return tamanio;
+    }
+}
@@ -37,4 +37,11 @@ public class Examen {
     public void setPreguntas(List<String> preguntas) {
         this.preguntas = preguntas;
     }
+
+    // Copia con las preguntas indicadas, para hidratar sin modificar la instancia del repositorio
+    public Examen conPreguntas(List<String> preguntas) {
+        var copia = new Examen(this.id, this.nombre);
+        copia.setPreguntas(preguntas);
+        return copia;
+    }
 }
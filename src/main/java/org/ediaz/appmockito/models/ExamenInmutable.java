@@ -0,0 +1,42 @@
+package org.ediaz.appmockito.models;
+
+import java.util.List;
+
+// Vista de solo lectura de un Examen. Los repositorios concurrentes la devuelven para que varios
+// hilos puedan compartir la misma instancia: los setters lanzan UnsupportedOperationException y
+// para hidratar las preguntas se usa conPreguntas(), que devuelve una copia mutable
+public final class ExamenInmutable extends Examen {
+
+    private ExamenInmutable(Long id, String nombre, List<String> preguntas) {
+        super(id, nombre);
+        super.setPreguntas(preguntas instanceof PreguntasCodificadas ? preguntas : List.copyOf(preguntas));
+    }
+
+    public static ExamenInmutable de(Examen examen) {
+        if (examen instanceof ExamenInmutable) {
+            return (ExamenInmutable) examen;
+        }
+        return new ExamenInmutable(examen.getId(), examen.getNombre(), examen.getPreguntas());
+    }
+
+    // Una lista de PreguntasCodificadas ya es inmutable y se comparte sin copiarla
+    public static ExamenInmutable de(Long id, String nombre, List<String> preguntas) {
+        return new ExamenInmutable(id, nombre, preguntas);
+    }
+
+
+    @Override
+    public void setId(Long id) {
+        throw new UnsupportedOperationException("Examen inmutable");
+    }
+
+    @Override
+    public void setNombre(String nombre) {
+        throw new UnsupportedOperationException("Examen inmutable");
+    }
+
+    @Override
+    public void setPreguntas(List<String> preguntas) {
+        throw new UnsupportedOperationException("Examen inmutable");
+    }
+}
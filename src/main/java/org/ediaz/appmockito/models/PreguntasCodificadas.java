@@ -0,0 +1,51 @@
+package org.ediaz.appmockito.models;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+// Lista inmutable de preguntas guardada como ids de un DiccionarioPreguntas. Mientras el diccionario
+// tenga menos de 65536 preguntas cada id ocupa 2 bytes (char[]), despues 4 (int[]).
+// get() resuelve el String en el diccionario al leer, no se crea ninguna copia
+public final class PreguntasCodificadas extends AbstractList<String> implements RandomAccess {
+
+    private static final char[] VACIO = new char[0];
+
+    private final DiccionarioPreguntas diccionario;
+    private final char[] cortos;
+    private final int[] largos;
+
+    PreguntasCodificadas(DiccionarioPreguntas diccionario, int[] ids, int maximo) {
+        this.diccionario = diccionario;
+        if (ids.length == 0) {
+            this.cortos = VACIO;
+            this.largos = null;
+        } else if (maximo <= Character.MAX_VALUE) {
+            this.cortos = new char[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                this.cortos[i] = (char) ids[i];
+            }
+            this.largos = null;
+        } else {
+            this.cortos = null;
+            this.largos = ids;
+        }
+    }
+
+    @Override
+    public String get(int index) {
+        return diccionario.pregunta(id(index));
+    }
+
+    @Override
+    public int size() {
+        return cortos != null ? cortos.length : largos.length;
+    }
+
+    public int id(int index) {
+        return cortos != null ? cortos[index] : largos[index];
+    }
+
+    boolean esDe(DiccionarioPreguntas otro) {
+        return diccionario == otro;
+    }
+}
@@ -0,0 +1,74 @@
+package org.ediaz.appmockito.repositories;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Anillo de hashing consistente: cada nodo ocupa virtuales posiciones del anillo y un id pertenece al
+// primer nodo que aparece desde el hash del id en adelante. Agregar o quitar un nodo solo cambia el
+// duenio de los ids que caen en sus posiciones, alrededor de 1/N del total.
+// Es inmutable, con() y sin() devuelven un anillo nuevo para publicarlo de una vez
+final class AnilloConsistente {
+
+    private final TreeMap<Long, String> posiciones;
+    private final int virtuales;
+
+    AnilloConsistente(Collection<String> nodos, int virtuales) {
+        if (virtuales <= 0) {
+            throw new IllegalArgumentException("virtuales debe ser mayor a 0");
+        }
+        this.virtuales = virtuales;
+        this.posiciones = new TreeMap<>();
+        nodos.forEach(this::ubicar);
+    }
+
+    private AnilloConsistente(TreeMap<Long, String> posiciones, int virtuales) {
+        this.posiciones = posiciones;
+        this.virtuales = virtuales;
+    }
+
+    AnilloConsistente con(String nodo) {
+        var nuevo = new AnilloConsistente(new TreeMap<>(posiciones), virtuales);
+        nuevo.ubicar(nodo);
+        return nuevo;
+    }
+
+    AnilloConsistente sin(String nodo) {
+        var restantes = new TreeMap<>(posiciones);
+        restantes.values().removeIf(nodo::equals);
+        return new AnilloConsistente(restantes, virtuales);
+    }
+
+    String duenio(long id) {
+        if (posiciones.isEmpty()) {
+            throw new IllegalStateException("El anillo no tiene nodos");
+        }
+        Map.Entry<Long, String> entrada = posiciones.ceilingEntry(mezclar(id));
+        return entrada != null ? entrada.getValue() : posiciones.firstEntry().getValue();
+    }
+
+    // Si dos posiciones chocan gana la primera, el nodo queda con una virtual menos
+    private void ubicar(String nodo) {
+        for (int i = 0; i < virtuales; i++) {
+            posiciones.putIfAbsent(mezclar(fnv(nodo + "#" + i)), nodo);
+        }
+    }
+
+    // FNV-1a de 64 bits sobre los bytes UTF-8
+    private static long fnv(String texto) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : texto.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    // Finalizador de splitmix64, reparte ids consecutivos por todo el anillo
+    private static long mezclar(long valor) {
+        valor = (valor ^ (valor >>> 30)) * 0xBF58476D1CE4E5B9L;
+        valor = (valor ^ (valor >>> 27)) * 0x94D049BB133111EBL;
+        return valor ^ (valor >>> 31);
+    }
+}
@@ -0,0 +1,12 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.models.Examen;
+
+import java.util.Optional;
+
+// Capacidad opcional de un ExamenRepository que puede resolver la busqueda por nombre sin que el
+// servicio recorra findAll(). Debe devolver el mismo examen que el primero de findAll() cuyo
+// nombre contiene la consulta
+public interface BusquedaPorNombre {
+    Optional<Examen> findPrimeroPorNombre(String nombre);
+}
@@ -0,0 +1,10 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.indices.IndicePreguntas;
+
+// Capacidad opcional de un PreguntaRepository que ya tiene el indice invertido de sus preguntas (por
+// ejemplo leido de una instantanea), asi el servicio no pide las preguntas de todo el catalogo para
+// construirlo. Cada llamada devuelve un indice nuevo que el servicio puede seguir actualizando
+public interface ConIndicePreguntas {
+    IndicePreguntas indicePreguntas();
+}
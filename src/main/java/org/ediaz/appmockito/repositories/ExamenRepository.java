@@ -2,10 +2,48 @@ package org.ediaz.appmockito.repositories;
 
 import org.ediaz.appmockito.models.Examen;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 public interface ExamenRepository {
     List<Examen> findAll();
 
     Examen save(Examen examen);
+
+    // Por defecto guarda uno por uno, un backend real deberia escribir el lote completo de una vez
+    default List<Examen> saveAll(List<Examen> examenes) {
+        List<Examen> guardados = new ArrayList<>(examenes.size());
+        for (Examen examen : examenes) {
+            guardados.add(save(examen));
+        }
+        return guardados;
+    }
+
+    default Optional<Examen> findById(long id) {
+        return findAll().stream()
+                .filter(e -> e.getId() != null && e.getId() == id)
+                .findFirst();
+    }
+
+    // Paginacion por cursor en el mismo orden que findAll(): devuelve hasta limite examenes despues
+    // del examen con id despuesDeId (desde el inicio si es null). Si ese id no existe la pagina es vacia.
+    // Con un findAll() perezoso la memoria usada depende solo de limite y no del tamanio del catalogo
+    default List<Examen> findAll(Long despuesDeId, int limite) {
+        var iterador = findAll().iterator();
+        if (despuesDeId != null) {
+            boolean encontrado = false;
+            while (!encontrado && iterador.hasNext()) {
+                encontrado = despuesDeId.equals(iterador.next().getId());
+            }
+            if (!encontrado) {
+                return new ArrayList<>();
+            }
+        }
+        List<Examen> pagina = new ArrayList<>(Math.min(limite, 1024));
+        while (pagina.size() < limite && iterador.hasNext()) {
+            pagina.add(iterador.next());
+        }
+        return pagina;
+    }
 }
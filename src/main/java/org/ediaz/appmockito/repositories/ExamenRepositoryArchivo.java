@@ -0,0 +1,448 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.concurrencia.Ejecutores;
+import org.ediaz.appmockito.models.Examen;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+// Almacen persistente de examenes y sus preguntas en un archivo mapeado en memoria (fuera del heap).
+//
+// El archivo es un log de solo agregado: cada save escribe un registro nuevo y el indice en memoria
+// id -> offset apunta siempre a la ultima version. Formato (big endian):
+//   cabecera:  int MAGICO, int VERSION
+//   registro:  int largo, int crc32(datos), datos
+//   datos:     long id, int largo, nombre UTF-8, int cantidad, (int largo, pregunta UTF-8) * cantidad
+//
+// Al cerrar se escribe el indice en <archivo>.idx junto con la posicion del log que cubre; al abrir
+// se carga ese indice y solo se leen los registros escritos despues. Un registro con crc invalido
+// (escritura cortada) marca el final del log.
+//
+// Las preguntas se guardan junto al examen en save. guardarPreguntas agrega un registro nuevo del
+// examen con las preguntas nuevas. guardarVarias no recibe el id del examen, no hay registro al que
+// asociarlas y aqui no escribe nada.
+public class ExamenRepositoryArchivo implements ExamenRepository, PreguntaRepository, Closeable {
+
+    private static final int MAGICO = 0x45584D4E;
+    private static final int VERSION = 1;
+    private static final int CABECERA = 8;
+    private static final int CABECERA_REGISTRO = 8;
+    private static final int CAPACIDAD_INICIAL = 1 << 20;
+
+    private final Path archivo;
+    private final Path archivoIndice;
+    private FileChannel canal;
+    private MappedByteBuffer mapa;
+    private int posicion;
+    private long bytesVivos;
+    private int generacion;
+
+    // Orden de insercion igual al de findAll
+    private final Map<Long, Integer> indice = new LinkedHashMap<>();
+    private ScheduledExecutorService compactador;
+    private ScheduledFuture<?> compactacionPeriodica;
+    private final LongAdder fallosCompactacion = new LongAdder();
+    // No se pudo abrir el log despues de compactar, ver compactar()
+    private UncheckedIOException fallaReapertura;
+
+    public ExamenRepositoryArchivo(Path archivo) {
+        this.archivo = archivo;
+        this.archivoIndice = archivo.resolveSibling(archivo.getFileName() + ".idx");
+        try {
+            abrir();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Vista perezosa sobre una copia de los offsets (4 bytes por examen), cada examen se lee del
+    // archivo al pedirlo, asi un findFirst sobre el stream solo lee hasta la coincidencia.
+    // Los offsets cambian al compactar, por eso la vista deja de ser valida despues de compactar()
+    @Override
+    public synchronized List<Examen> findAll() {
+        var offsets = new int[indice.size()];
+        int i = 0;
+        for (int offset : indice.values()) {
+            offsets[i++] = offset;
+        }
+        int generacionVista = generacion;
+        return new AbstractList<>() {
+            @Override
+            public Examen get(int indice) {
+                synchronized (ExamenRepositoryArchivo.this) {
+                    if (generacion != generacionVista) {
+                        throw new ConcurrentModificationException("El archivo se compacto despues de findAll()");
+                    }
+                    return leer(offsets[indice], false);
+                }
+            }
+
+            @Override
+            public int size() {
+                return offsets.length;
+            }
+        };
+    }
+
+    @Override
+    public synchronized List<Examen> findAll(Long despuesDeId, int limite) {
+        List<Examen> pagina = new ArrayList<>(Math.min(limite, 1024));
+        boolean enPagina = despuesDeId == null;
+        for (var entrada : indice.entrySet()) {
+            if (pagina.size() >= limite) {
+                break;
+            }
+            if (enPagina) {
+                pagina.add(leer(entrada.getValue(), false));
+            } else {
+                enPagina = entrada.getKey().equals(despuesDeId);
+            }
+        }
+        return pagina;
+    }
+
+    @Override
+    public synchronized Optional<Examen> findById(long id) {
+        var offset = indice.get(id);
+        return offset == null ? Optional.empty() : Optional.of(leer(offset, true));
+    }
+
+    @Override
+    public synchronized Examen save(Examen examen) {
+        if (examen.getId() == null) {
+            throw new IllegalArgumentException("El examen debe tener id para guardarse en archivo");
+        }
+        if (fallaReapertura != null) {
+            throw new IllegalStateException("El log no se pudo abrir despues de compactar, se debe reabrir el repositorio", fallaReapertura);
+        }
+        var datos = codificar(examen);
+        var crc = new CRC32();
+        crc.update(datos, 0, datos.length);
+
+        asegurarCapacidad(CABECERA_REGISTRO + datos.length);
+        int offset = posicion;
+        mapa.putInt(offset, datos.length);
+        mapa.putInt(offset + 4, (int) crc.getValue());
+        mapa.put(offset + CABECERA_REGISTRO, datos);
+        posicion += CABECERA_REGISTRO + datos.length;
+
+        var anterior = indice.put(examen.getId(), offset);
+        if (anterior != null) {
+            bytesVivos -= CABECERA_REGISTRO + mapa.getInt(anterior);
+        }
+        bytesVivos += CABECERA_REGISTRO + datos.length;
+        return examen;
+    }
+
+    @Override
+    public synchronized List<String> findPreguntasPorExamenId(Long id) {
+        var offset = indice.get(id);
+        return offset == null ? Collections.emptyList() : leer(offset, true).getPreguntas();
+    }
+
+    @Override
+    public void guardarVarias(List<String> preguntas) {
+    }
+
+    // El examen tiene que estar guardado, el registro necesita el nombre. Si las preguntas no cambiaron
+    // no se escribe nada: ExamenServiceImp llama a save con las preguntas y despues a guardarPreguntas
+    @Override
+    public synchronized void guardarPreguntas(Long examenId, List<String> preguntas) {
+        var offset = indice.get(examenId);
+        if (offset == null) {
+            throw new IllegalArgumentException("El examen " + examenId + " no esta guardado en el archivo");
+        }
+        var examen = leer(offset, true);
+        if (examen.getPreguntas().equals(preguntas)) {
+            return;
+        }
+        examen.setPreguntas(List.copyOf(preguntas));
+        save(examen);
+    }
+
+    // Fuerza a disco los registros escritos hasta ahora
+    public synchronized void flush() {
+        mapa.force();
+    }
+
+    // Proporcion del log ocupada por versiones viejas de examenes
+    public synchronized double getProporcionBasura() {
+        int usados = posicion - CABECERA;
+        return usados == 0 ? 0.0 : 1.0 - (double) bytesVivos / usados;
+    }
+
+    public synchronized long getTamanioLog() {
+        return posicion;
+    }
+
+    // Reescribe el log solo con la ultima version de cada examen y lo reemplaza de forma atomica.
+    // Si algo falla antes del reemplazo el log viejo sigue en uso y el repositorio sigue funcionando.
+    // Si falla al abrir el log nuevo las escrituras se rechazan hasta que otro compactar() lo logre
+    public synchronized void compactar() {
+        var temporal = archivo.resolveSibling(archivo.getFileName() + ".compactando");
+        Map<Long, Integer> nuevoIndice = new LinkedHashMap<>();
+        int nuevaPosicion = CABECERA;
+        try (var destino = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var cabecera = ByteBuffer.allocate(CABECERA).putInt(MAGICO).putInt(VERSION).flip();
+            destino.write(cabecera);
+            for (var entrada : indice.entrySet()) {
+                int offset = entrada.getValue();
+                int largo = CABECERA_REGISTRO + mapa.getInt(offset);
+                destino.write(mapa.slice(offset, largo));
+                nuevoIndice.put(entrada.getKey(), nuevaPosicion);
+                nuevaPosicion += largo;
+            }
+            destino.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            canal.close();
+            // Sin este borrado un corte entre el move y escribirIndice dejaria offsets del log viejo
+            Files.deleteIfExists(archivoIndice);
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // El log viejo sigue en su lugar y el indice en memoria apunta a el, solo falta el canal
+            try {
+                canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            } catch (IOException alReabrir) {
+                e.addSuppressed(alReabrir);
+            }
+            throw new UncheckedIOException(e);
+        }
+        // El indice en memoria se cambia solo con el canal y el mapa del log nuevo abiertos. Si no se
+        // pueden abrir queda todo apuntando al log viejo, que se sigue leyendo desde el mapeo anterior
+        // pero ya no esta en el archivo: se rechazan las escrituras y close no escribe ese indice.
+        // Otro compactar() reescribe ese mismo contenido desde el mapeo y, si abre, vuelve a la normalidad
+        FileChannel nuevoCanal = null;
+        MappedByteBuffer nuevoMapa;
+        try {
+            nuevoCanal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            nuevoMapa = nuevoCanal.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(CAPACIDAD_INICIAL, nuevaPosicion * 2));
+        } catch (IOException e) {
+            if (nuevoCanal != null) {
+                try {
+                    nuevoCanal.close();
+                } catch (IOException alCerrar) {
+                    e.addSuppressed(alCerrar);
+                }
+            }
+            fallaReapertura = new UncheckedIOException(e);
+            throw fallaReapertura;
+        }
+        canal = nuevoCanal;
+        mapa = nuevoMapa;
+        fallaReapertura = null;
+        indice.clear();
+        indice.putAll(nuevoIndice);
+        generacion++;
+        posicion = nuevaPosicion;
+        bytesVivos = nuevaPosicion - CABECERA;
+        try {
+            escribirIndice();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Compacta en segundo plano cada periodo si la basura supera el umbral. Llamarlo de nuevo reemplaza
+    // el periodo y el umbral anteriores. Un fallo no detiene la programacion, se cuenta en
+    // getFallosCompactacion y se vuelve a intentar en el siguiente periodo
+    public synchronized void compactarPeriodicamente(Duration periodo, double umbralBasura) {
+        if (compactador == null) {
+            compactador = Executors.newSingleThreadScheduledExecutor(Ejecutores.hilosDaemon("compactador-examenes"));
+        }
+        if (compactacionPeriodica != null) {
+            compactacionPeriodica.cancel(false);
+        }
+        compactacionPeriodica = compactador.scheduleWithFixedDelay(() -> {
+            try {
+                if (getProporcionBasura() > umbralBasura) {
+                    compactar();
+                }
+            } catch (RuntimeException e) {
+                fallosCompactacion.increment();
+            }
+        }, periodo.toMillis(), periodo.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public long getFallosCompactacion() {
+        return fallosCompactacion.sum();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (compactador != null) {
+            compactador.shutdownNow();
+        }
+        if (fallaReapertura != null) {
+            // Sin .idx al abrir se recorre el log nuevo completo
+            return;
+        }
+        try {
+            mapa.force();
+            escribirIndice();
+            canal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void abrir() throws IOException {
+        boolean nuevo = !Files.exists(archivo) || Files.size(archivo) < CABECERA;
+        canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long tamanio = canal.size();
+        mapear((int) Math.max(CAPACIDAD_INICIAL, tamanio));
+        if (nuevo) {
+            mapa.putInt(0, MAGICO);
+            mapa.putInt(4, VERSION);
+            posicion = CABECERA;
+            return;
+        }
+        if (mapa.getInt(0) != MAGICO || mapa.getInt(4) != VERSION) {
+            throw new IOException("Archivo de examenes con formato desconocido: " + archivo);
+        }
+        posicion = cargarIndice();
+        recorrerLog();
+    }
+
+    // Devuelve la posicion del log hasta donde el indice guardado es valido, o el inicio si no hay
+    private int cargarIndice() throws IOException {
+        if (!Files.exists(archivoIndice)) {
+            return CABECERA;
+        }
+        var datos = ByteBuffer.wrap(Files.readAllBytes(archivoIndice));
+        if (datos.remaining() < 20 || datos.getInt() != MAGICO || datos.getInt() != VERSION) {
+            return CABECERA;
+        }
+        int cubierto = (int) datos.getLong();
+        int cantidad = datos.getInt();
+        if (datos.remaining() != cantidad * 12 || cubierto > mapa.capacity()) {
+            return CABECERA;
+        }
+        for (int i = 0; i < cantidad; i++) {
+            long id = datos.getLong();
+            int offset = datos.getInt();
+            indice.put(id, offset);
+            bytesVivos += CABECERA_REGISTRO + mapa.getInt(offset);
+        }
+        return cubierto;
+    }
+
+    // Lee los registros desde la posicion actual hasta el final valido del log
+    private void recorrerLog() {
+        var crc = new CRC32();
+        while (posicion + CABECERA_REGISTRO <= mapa.capacity()) {
+            int largo = mapa.getInt(posicion);
+            if (largo <= 0 || posicion + CABECERA_REGISTRO + largo > mapa.capacity()) {
+                break;
+            }
+            crc.reset();
+            crc.update(mapa.slice(posicion + CABECERA_REGISTRO, largo));
+            if ((int) crc.getValue() != mapa.getInt(posicion + 4)) {
+                break;
+            }
+            long id = mapa.getLong(posicion + CABECERA_REGISTRO);
+            var anterior = indice.put(id, posicion);
+            if (anterior != null) {
+                bytesVivos -= CABECERA_REGISTRO + mapa.getInt(anterior);
+            }
+            bytesVivos += CABECERA_REGISTRO + largo;
+            posicion += CABECERA_REGISTRO + largo;
+        }
+    }
+
+    private void escribirIndice() throws IOException {
+        var datos = ByteBuffer.allocate(20 + indice.size() * 12)
+                .putInt(MAGICO).putInt(VERSION).putLong(posicion).putInt(indice.size());
+        indice.forEach((id, offset) -> datos.putLong(id).putInt(offset));
+        var temporal = archivoIndice.resolveSibling(archivoIndice.getFileName() + ".tmp");
+        Files.write(temporal, datos.array());
+        Files.move(temporal, archivoIndice, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void asegurarCapacidad(int bytes) {
+        if ((long) posicion + bytes > mapa.capacity()) {
+            long capacidad = Math.max((long) mapa.capacity() * 2, (long) posicion + bytes);
+            if (capacidad > Integer.MAX_VALUE) {
+                throw new IllegalStateException("El archivo de examenes supera 2 GB, se debe compactar");
+            }
+            mapear((int) capacidad);
+        }
+    }
+
+    private void mapear(int capacidad) {
+        try {
+            mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, capacidad);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] codificar(Examen examen) {
+        var nombre = examen.getNombre().getBytes(StandardCharsets.UTF_8);
+        var preguntas = new ArrayList<byte[]>(examen.getPreguntas().size());
+        int largo = Long.BYTES + Integer.BYTES + nombre.length + Integer.BYTES;
+        for (String pregunta : examen.getPreguntas()) {
+            var bytes = pregunta.getBytes(StandardCharsets.UTF_8);
+            preguntas.add(bytes);
+            largo += Integer.BYTES + bytes.length;
+        }
+        var datos = ByteBuffer.allocate(largo)
+                .putLong(examen.getId())
+                .putInt(nombre.length).put(nombre)
+                .putInt(preguntas.size());
+        preguntas.forEach(bytes -> datos.putInt(bytes.length).put(bytes));
+        return datos.array();
+    }
+
+    private Examen leer(int offset, boolean conPreguntas) {
+        int p = offset + CABECERA_REGISTRO;
+        long id = mapa.getLong(p);
+        p += Long.BYTES;
+        var examen = new Examen(id, leerTexto(p));
+        if (conPreguntas) {
+            p += Integer.BYTES + mapa.getInt(p);
+            int cantidad = mapa.getInt(p);
+            p += Integer.BYTES;
+            List<String> preguntas = new ArrayList<>(cantidad);
+            for (int i = 0; i < cantidad; i++) {
+                preguntas.add(leerTexto(p));
+                p += Integer.BYTES + mapa.getInt(p);
+            }
+            examen.setPreguntas(preguntas);
+        }
+        return examen;
+    }
+
+    private String leerTexto(int p) {
+        var bytes = new byte[mapa.getInt(p)];
+        mapa.get(p + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
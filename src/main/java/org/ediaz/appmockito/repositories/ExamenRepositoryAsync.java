@@ -0,0 +1,12 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.models.Examen;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface ExamenRepositoryAsync {
+    CompletableFuture<List<Examen>> findAll();
+
+    CompletableFuture<Examen> save(Examen examen);
+}
@@ -0,0 +1,29 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.models.Examen;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Adapta un ExamenRepository bloqueante ejecutando cada llamada en el executor indicado
+public class ExamenRepositoryAsyncImp implements ExamenRepositoryAsync {
+
+    private final ExamenRepository examenRepository;
+    private final Executor executor;
+
+    public ExamenRepositoryAsyncImp(ExamenRepository examenRepository, Executor executor) {
+        this.examenRepository = examenRepository;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<List<Examen>> findAll() {
+        return CompletableFuture.supplyAsync(examenRepository::findAll, executor);
+    }
+
+    @Override
+    public CompletableFuture<Examen> save(Examen examen) {
+        return CompletableFuture.supplyAsync(() -> examenRepository.save(examen), executor);
+    }
+}
@@ -0,0 +1,72 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.eventos.BusCambios;
+import org.ediaz.appmockito.models.Examen;
+
+import java.util.List;
+import java.util.Optional;
+
+// Decorador que publica en el BusCambios cada examen escrito con save o saveAll, despues de que el
+// delegado lo guardo. Si el delegado falla no se publica nada.
+// El evento lleva lo que devolvio el delegado (con el id asignado). Con dos save concurrentes del
+// mismo id el orden de los eventos puede no ser el de las escrituras; quien necesite certeza vuelve
+// a leer con findById al procesar.
+// Como ExamenRepositoryInstrumentado, solo implementa BusquedaPorNombre si el delegado la tiene
+public class ExamenRepositoryConEventos implements ExamenRepository {
+
+    final ExamenRepository delegado;
+    private final BusCambios bus;
+
+    private ExamenRepositoryConEventos(ExamenRepository delegado, BusCambios bus) {
+        this.delegado = delegado;
+        this.bus = bus;
+    }
+
+    public static ExamenRepository envolver(ExamenRepository delegado, BusCambios bus) {
+        return delegado instanceof BusquedaPorNombre
+                ? new ConBusquedaPorNombre(delegado, bus)
+                : new ExamenRepositoryConEventos(delegado, bus);
+    }
+
+    @Override
+    public List<Examen> findAll() {
+        return delegado.findAll();
+    }
+
+    @Override
+    public List<Examen> findAll(Long despuesDeId, int limite) {
+        return delegado.findAll(despuesDeId, limite);
+    }
+
+    @Override
+    public Optional<Examen> findById(long id) {
+        return delegado.findById(id);
+    }
+
+    @Override
+    public Examen save(Examen examen) {
+        var guardado = delegado.save(examen);
+        bus.publicarExamen(guardado);
+        return guardado;
+    }
+
+    // Un lote queda con secuencias consecutivas, sin eventos de otros hilos en el medio
+    @Override
+    public List<Examen> saveAll(List<Examen> examenes) {
+        var guardados = delegado.saveAll(examenes);
+        bus.publicarExamenes(guardados);
+        return guardados;
+    }
+
+    private static final class ConBusquedaPorNombre extends ExamenRepositoryConEventos implements BusquedaPorNombre {
+
+        ConBusquedaPorNombre(ExamenRepository delegado, BusCambios bus) {
+            super(delegado, bus);
+        }
+
+        @Override
+        public Optional<Examen> findPrimeroPorNombre(String nombre) {
+            return ((BusquedaPorNombre) delegado).findPrimeroPorNombre(nombre);
+        }
+    }
+}
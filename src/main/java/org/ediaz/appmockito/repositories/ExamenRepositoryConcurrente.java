@@ -0,0 +1,233 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.models.DiccionarioPreguntas;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.models.ExamenInmutable;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+// ExamenRepository en memoria seguro para muchos lectores y escritores concurrentes.
+//
+// Lectores: leen una instantanea inmutable publicada en un campo volatile, sin locks. findAll()
+// devuelve una vista de esa instantanea, asi que una lectura nunca ve un save a medias y puede
+// recorrerse mientras otros hilos escriben.
+// Escritores: se serializan con un lock y publican una nueva instantanea por save o saveAll
+// (copy-on-write). Los examenes se guardan en bloques de TAMANIO_BLOQUE, por lo que una escritura
+// copia el directorio de bloques y solo los bloques que toca, no el catalogo completo.
+//
+// Los examenes se guardan como ExamenInmutable: nadie puede modificar la instancia compartida,
+// para hidratar preguntas se usa Examen.conPreguntas(). Para leer-modificar-escribir sin perder
+// actualizaciones entre hilos esta actualizar(id, funcion).
+// Con un DiccionarioPreguntas las preguntas se guardan codificadas (ids) en lugar de copiarse.
+public class ExamenRepositoryConcurrente implements ExamenRepository, BusquedaPorNombre {
+
+    private static final int BITS_BLOQUE = 10;
+    private static final int TAMANIO_BLOQUE = 1 << BITS_BLOQUE;
+
+    private volatile Instantanea actual = new Instantanea(new ExamenInmutable[0][], 0);
+
+    // id -> posicion; una posicion nunca cambia una vez asignada
+    private final ConcurrentHashMap<Long, Integer> posiciones = new ConcurrentHashMap<>();
+    private final AtomicLong secuencia = new AtomicLong();
+    private final ReentrantLock escritura = new ReentrantLock();
+    private final DiccionarioPreguntas diccionario;
+
+    public ExamenRepositoryConcurrente() {
+        this((DiccionarioPreguntas) null);
+    }
+
+    public ExamenRepositoryConcurrente(DiccionarioPreguntas diccionario) {
+        this.diccionario = diccionario;
+    }
+
+    public ExamenRepositoryConcurrente(Collection<? extends Examen> iniciales) {
+        this();
+        saveAll(new ArrayList<>(iniciales));
+    }
+
+    @Override
+    public List<Examen> findAll() {
+        return actual;
+    }
+
+    @Override
+    public Optional<Examen> findById(long id) {
+        var instantanea = actual;
+        Integer posicion = posiciones.get(id);
+//        El indice puede adelantarse a la instantanea que se leyo, en ese caso el examen aun no existe para ella
+        if (posicion == null || posicion >= instantanea.tamanio) {
+            return Optional.empty();
+        }
+        return Optional.of(instantanea.get(posicion));
+    }
+
+    @Override
+    public List<Examen> findAll(Long despuesDeId, int limite) {
+        var instantanea = actual;
+        int desde = 0;
+        if (despuesDeId != null) {
+            Integer posicion = posiciones.get(despuesDeId);
+            if (posicion == null || posicion >= instantanea.tamanio) {
+                return new ArrayList<>();
+            }
+            desde = posicion + 1;
+        }
+        int hasta = (int) Math.min(instantanea.tamanio, (long) desde + limite);
+        return new ArrayList<>(instantanea.subList(desde, hasta));
+    }
+
+    @Override
+    public Optional<Examen> findPrimeroPorNombre(String nombre) {
+        var instantanea = actual;
+        for (int i = 0; i < instantanea.tamanio; i++) {
+            var examen = instantanea.get(i);
+            if (examen.getNombre().contains(nombre)) {
+                return Optional.of(examen);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Sin id se asigna uno nuevo; con un id existente reemplaza el examen en su misma posicion
+    @Override
+    public Examen save(Examen examen) {
+        return saveAll(List.of(examen)).get(0);
+    }
+
+    // Todo el lote se publica en una sola instantanea: los lectores ven todos los examenes o ninguno
+    @Override
+    public List<Examen> saveAll(List<Examen> examenes) {
+        List<Examen> guardados = new ArrayList<>(examenes.size());
+        escritura.lock();
+        try {
+            var edicion = new Edicion(actual, examenes.size());
+            Map<Long, Integer> nuevos = new LinkedHashMap<>();
+            for (Examen examen : examenes) {
+                var guardado = inmutable(examen);
+                Integer posicion = posiciones.get(guardado.getId());
+                if (posicion == null) {
+                    posicion = nuevos.get(guardado.getId());
+                }
+                if (posicion == null) {
+                    nuevos.put(guardado.getId(), edicion.agregar(guardado));
+                } else {
+                    edicion.reemplazar(posicion, guardado);
+                }
+                guardados.add(guardado);
+            }
+            actual = edicion.publicar();
+//            Las posiciones nuevas se registran despues de publicar, findById las valida contra la instantanea
+            posiciones.putAll(nuevos);
+        } finally {
+            escritura.unlock();
+        }
+        return guardados;
+    }
+
+    // Leer-modificar-escribir atomico respecto a otros escritores. Devuelve el examen guardado o
+    // vacio si el id no existe. La funcion no debe cambiar el id
+    public Optional<Examen> actualizar(long id, UnaryOperator<Examen> funcion) {
+        escritura.lock();
+        try {
+            var anterior = findById(id);
+            if (anterior.isEmpty()) {
+                return Optional.empty();
+            }
+            var nuevo = funcion.apply(anterior.get().conPreguntas(anterior.get().getPreguntas()));
+            if (nuevo.getId() == null || nuevo.getId() != id) {
+                throw new IllegalArgumentException("La actualizacion no puede cambiar el id " + id);
+            }
+            return Optional.of(save(nuevo));
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    public int tamanio() {
+        return actual.tamanio;
+    }
+
+    private ExamenInmutable inmutable(Examen examen) {
+        var preguntas = diccionario != null ? diccionario.codificar(examen.getPreguntas()) : examen.getPreguntas();
+        if (examen.getId() == null) {
+            return ExamenInmutable.de(secuencia.incrementAndGet(), examen.getNombre(), preguntas);
+        }
+        secuencia.accumulateAndGet(examen.getId(), Math::max);
+        return diccionario != null ? ExamenInmutable.de(examen.getId(), examen.getNombre(), preguntas) : ExamenInmutable.de(examen);
+    }
+
+    // Vista inmutable del catalogo en un momento dado
+    private static final class Instantanea extends AbstractList<Examen> implements RandomAccess {
+        private final ExamenInmutable[][] bloques;
+        private final int tamanio;
+
+        Instantanea(ExamenInmutable[][] bloques, int tamanio) {
+            this.bloques = bloques;
+            this.tamanio = tamanio;
+        }
+
+        @Override
+        public Examen get(int index) {
+            if (index < 0 || index >= tamanio) {
+                throw new IndexOutOfBoundsException("Indice " + index + ", tamanio " + tamanio);
+            }
+            return bloques[index >>> BITS_BLOQUE][index & (TAMANIO_BLOQUE - 1)];
+        }
+
+        @Override
+        public int size() {
+            return tamanio;
+        }
+    }
+
+    // Construye la siguiente instantanea copiando cada bloque a lo sumo una vez
+    private static final class Edicion {
+        private final ExamenInmutable[][] bloques;
+        private final boolean[] copiados;
+        private int tamanio;
+
+        Edicion(Instantanea base, int agregadosMaximos) {
+            int bloquesNecesarios = (base.tamanio + agregadosMaximos + TAMANIO_BLOQUE - 1) >>> BITS_BLOQUE;
+            this.bloques = Arrays.copyOf(base.bloques, Math.max(base.bloques.length, bloquesNecesarios));
+            this.copiados = new boolean[bloques.length];
+            this.tamanio = base.tamanio;
+        }
+
+        int agregar(ExamenInmutable examen) {
+            int posicion = tamanio++;
+            escribir(posicion, examen);
+            return posicion;
+        }
+
+        void reemplazar(int posicion, ExamenInmutable examen) {
+            escribir(posicion, examen);
+        }
+
+        private void escribir(int posicion, ExamenInmutable examen) {
+            int bloque = posicion >>> BITS_BLOQUE;
+            if (!copiados[bloque]) {
+                bloques[bloque] = bloques[bloque] == null
+                        ? new ExamenInmutable[TAMANIO_BLOQUE]
+                        : bloques[bloque].clone();
+                copiados[bloque] = true;
+            }
+            bloques[bloque][posicion & (TAMANIO_BLOQUE - 1)] = examen;
+        }
+
+        Instantanea publicar() {
+            return new Instantanea(bloques, tamanio);
+        }
+    }
+}
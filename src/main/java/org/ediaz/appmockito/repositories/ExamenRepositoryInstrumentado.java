@@ -0,0 +1,82 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.metricas.Histograma;
+import org.ediaz.appmockito.metricas.Medidor;
+import org.ediaz.appmockito.metricas.Metricas;
+import org.ediaz.appmockito.models.Examen;
+
+import java.util.List;
+import java.util.Optional;
+
+// Decorador que mide cada metodo de ExamenRepository y el tamanio de los lotes de saveAll.
+// Solo implementa BusquedaPorNombre si el delegado la tiene: el servicio usa esa capacidad para
+// decidir como buscar y envolver no debe cambiar esa decision
+public class ExamenRepositoryInstrumentado implements ExamenRepository {
+
+    final ExamenRepository delegado;
+    private final Medidor findAll;
+    private final Medidor findAllPaginado;
+    private final Medidor findById;
+    final Medidor findPrimeroPorNombre;
+    private final Medidor save;
+    private final Medidor saveAll;
+    private final Histograma loteSaveAll;
+
+    private ExamenRepositoryInstrumentado(ExamenRepository delegado, Metricas metricas) {
+        this.delegado = delegado;
+        this.findAll = metricas.medidor("examen.repository.findAll");
+        this.findAllPaginado = metricas.medidor("examen.repository.findAllPaginado");
+        this.findById = metricas.medidor("examen.repository.findById");
+        this.findPrimeroPorNombre = metricas.medidor("examen.repository.findPrimeroPorNombre");
+        this.save = metricas.medidor("examen.repository.save");
+        this.saveAll = metricas.medidor("examen.repository.saveAll");
+        this.loteSaveAll = metricas.distribucion("examen.repository.saveAll.lote");
+    }
+
+    public static ExamenRepository envolver(ExamenRepository delegado, Metricas metricas) {
+        if (metricas == Metricas.NOOP) {
+            return delegado;
+        }
+        return delegado instanceof BusquedaPorNombre
+                ? new ConBusquedaPorNombre(delegado, metricas)
+                : new ExamenRepositoryInstrumentado(delegado, metricas);
+    }
+
+    @Override
+    public List<Examen> findAll() {
+        return findAll.medir(delegado::findAll);
+    }
+
+    @Override
+    public List<Examen> findAll(Long despuesDeId, int limite) {
+        return findAllPaginado.medir(() -> delegado.findAll(despuesDeId, limite));
+    }
+
+    @Override
+    public Optional<Examen> findById(long id) {
+        return findById.medir(() -> delegado.findById(id));
+    }
+
+    @Override
+    public Examen save(Examen examen) {
+        return save.medir(() -> delegado.save(examen));
+    }
+
+    @Override
+    public List<Examen> saveAll(List<Examen> examenes) {
+        loteSaveAll.registrar(examenes.size());
+        return saveAll.medir(() -> delegado.saveAll(examenes));
+    }
+
+    private static final class ConBusquedaPorNombre extends ExamenRepositoryInstrumentado implements BusquedaPorNombre {
+
+        ConBusquedaPorNombre(ExamenRepository delegado, Metricas metricas) {
+            super(delegado, metricas);
+        }
+
+        @Override
+        public Optional<Examen> findPrimeroPorNombre(String nombre) {
+            return findPrimeroPorNombre.medir(() -> ((BusquedaPorNombre) delegado).findPrimeroPorNombre(nombre));
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.concurrencia.Ejecutores;
+import org.ediaz.appmockito.models.Examen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// ExamenRepository y PreguntaRepository repartidos en varios nodos con hashing consistente sobre el
+// id del examen (AnilloConsistente con nodos virtuales).
+// - findById, save y las preguntas de un id van solo al nodo duenio; los lotes (saveAll,
+//   findPreguntasPorExamenIds, guardarPreguntasDeExamenes) se agrupan por nodo y se envian en paralelo
+// - findAll y findPrimeroPorNombre consultan todos los nodos en paralelo (scatter-gather) y mezclan
+//   por id: el orden global es de menor a mayor id, asi "el primero" es el mismo en cualquier reparto
+// - agregarNodo y quitarNodo mueven solo los examenes que cambian de duenio, alrededor de 1/N
+//
+// ExamenRepository no tiene borrado, por eso al mover un examen la copia vieja queda en su nodo
+// anterior. En las consultas a todos los nodos cada nodo solo aporta los ids que le pertenecen segun
+// el anillo vigente, asi esas copias no se ven. Las preguntas se guardan junto al examen en save o con
+// guardarPreguntas en el nodo duenio; guardarVarias lanza UnsupportedOperationException porque sin el
+// id del examen no hay nodo donde guardarlas y descartarlas en silencio perderia datos
+public class ExamenRepositoryParticionado implements ExamenRepository, PreguntaRepository, BusquedaPorNombre {
+
+    public static final int VIRTUALES_POR_DEFECTO = 128;
+    private static final int LOTE_MOVIMIENTO = 500;
+    private static final Comparator<Examen> POR_ID = Comparator.comparing(Examen::getId);
+
+    private final Map<String, Nodo> nodos = new LinkedHashMap<>();
+    private final Executor executor;
+    // Lecturas y escrituras toman el de lectura, el rebalanceo el de escritura
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile AnilloConsistente anillo;
+    private final LongAdder movidos = new LongAdder();
+
+    public ExamenRepositoryParticionado(List<Nodo> nodos) {
+        this(nodos, VIRTUALES_POR_DEFECTO, Ejecutores.paraBloqueantes());
+    }
+
+    public ExamenRepositoryParticionado(List<Nodo> nodos, int virtuales, Executor executor) {
+        if (nodos.isEmpty()) {
+            throw new IllegalArgumentException("Se necesita al menos un nodo");
+        }
+        nodos.forEach(nodo -> this.nodos.put(nodo.nombre, nodo));
+        this.executor = executor;
+        this.anillo = new AnilloConsistente(this.nodos.keySet(), virtuales);
+    }
+
+    // Un nodo es el par de repositorios de un backend, normalmente el mismo objeto
+    public static final class Nodo {
+        private final String nombre;
+        private final ExamenRepository examenes;
+        private final PreguntaRepository preguntas;
+
+        public Nodo(String nombre, ExamenRepository examenes, PreguntaRepository preguntas) {
+            this.nombre = nombre;
+            this.examenes = examenes;
+            this.preguntas = preguntas;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+    }
+
+    @Override
+    public List<Examen> findAll() {
+        lock.readLock().lock();
+        try {
+            var anilloActual = anillo;
+            List<List<Examen>> porNodo = enTodos(nodo -> propios(nodo, anilloActual, nodo.examenes.findAll()));
+            return mezclar(porNodo);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Examen> findPrimeroPorNombre(String nombre) {
+        lock.readLock().lock();
+        try {
+            var anilloActual = anillo;
+            return enTodos(nodo -> nodo.examenes.findAll().stream()
+                    .filter(e -> e.getNombre().contains(nombre) && esDe(nodo, anilloActual, e))
+                    .min(POR_ID))
+                    .stream()
+                    .flatMap(Optional::stream)
+                    .min(POR_ID);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Examen> findById(long id) {
+        lock.readLock().lock();
+        try {
+            return duenio(id).examenes.findById(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Examen save(Examen examen) {
+        if (examen.getId() == null) {
+            throw new IllegalArgumentException("El examen debe tener id para elegir su nodo");
+        }
+        lock.readLock().lock();
+        try {
+            var nodo = duenio(examen.getId());
+            var guardado = nodo.examenes.save(examen);
+            if (!examen.getPreguntas().isEmpty()) {
+                nodo.preguntas.guardarPreguntas(examen.getId(), examen.getPreguntas());
+            }
+            return guardado;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Un saveAll por nodo en paralelo, el resultado respeta el orden de entrada
+    @Override
+    public List<Examen> saveAll(List<Examen> examenes) {
+        for (Examen examen : examenes) {
+            if (examen.getId() == null) {
+                throw new IllegalArgumentException("El examen debe tener id para elegir su nodo");
+            }
+        }
+        lock.readLock().lock();
+        try {
+            Map<Nodo, List<Integer>> posiciones = new LinkedHashMap<>();
+            for (int i = 0; i < examenes.size(); i++) {
+                posiciones.computeIfAbsent(duenio(examenes.get(i).getId()), n -> new ArrayList<>()).add(i);
+            }
+            List<CompletableFuture<Void>> envios = new ArrayList<>();
+            var guardados = new Examen[examenes.size()];
+            posiciones.forEach((nodo, indices) -> envios.add(CompletableFuture.runAsync(() -> {
+                var lote = indices.stream().map(examenes::get).collect(Collectors.toList());
+                var resultado = nodo.examenes.saveAll(lote);
+                for (int i = 0; i < indices.size(); i++) {
+                    guardados[indices.get(i)] = resultado.get(i);
+                }
+                guardarPreguntasDe(nodo, lote);
+            }, executor)));
+            unir(envios);
+            return Arrays.asList(guardados);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> findPreguntasPorExamenId(Long id) {
+        lock.readLock().lock();
+        try {
+            return duenio(id).preguntas.findPreguntasPorExamenId(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Long, List<String>> findPreguntasPorExamenIds(Collection<Long> ids) {
+        lock.readLock().lock();
+        try {
+            Map<Nodo, List<Long>> porNodo = new LinkedHashMap<>();
+            ids.forEach(id -> porNodo.computeIfAbsent(duenio(id), n -> new ArrayList<>()).add(id));
+            List<CompletableFuture<Map<Long, List<String>>>> consultas = new ArrayList<>();
+            porNodo.forEach((nodo, lote) -> consultas.add(
+                    CompletableFuture.supplyAsync(() -> nodo.preguntas.findPreguntasPorExamenIds(lote), executor)));
+            Map<Long, List<String>> encontradas = new LinkedHashMap<>();
+            unir(consultas).forEach(encontradas::putAll);
+            Map<Long, List<String>> preguntas = new LinkedHashMap<>();
+            ids.forEach(id -> preguntas.put(id, encontradas.getOrDefault(id, List.of())));
+            return preguntas;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void guardarVarias(List<String> preguntas) {
+        throw new UnsupportedOperationException("Sin id de examen no se puede elegir el nodo, use guardarPreguntas");
+    }
+
+    @Override
+    public void guardarPreguntas(Long examenId, List<String> preguntas) {
+        lock.readLock().lock();
+        try {
+            duenio(examenId).preguntas.guardarPreguntas(examenId, preguntas);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Un guardarPreguntasDeExamenes por nodo en paralelo
+    @Override
+    public void guardarPreguntasDeExamenes(Map<Long, List<String>> preguntasPorExamen) {
+        lock.readLock().lock();
+        try {
+            Map<Nodo, Map<Long, List<String>>> porNodo = new LinkedHashMap<>();
+            preguntasPorExamen.forEach((id, preguntas) ->
+                    porNodo.computeIfAbsent(duenio(id), n -> new LinkedHashMap<>()).put(id, preguntas));
+            List<CompletableFuture<Void>> envios = new ArrayList<>();
+            porNodo.forEach((nodo, lote) -> envios.add(
+                    CompletableFuture.runAsync(() -> nodo.preguntas.guardarPreguntasDeExamenes(lote), executor)));
+            unir(envios);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Mueve al nodo nuevo los examenes que ahora le pertenecen. Devuelve cuantos se movieron
+    public int agregarNodo(Nodo nuevo) {
+        lock.writeLock().lock();
+        try {
+            if (nodos.containsKey(nuevo.nombre)) {
+                throw new IllegalArgumentException("Ya existe el nodo " + nuevo.nombre);
+            }
+            var anterior = anillo;
+            var siguiente = anterior.con(nuevo.nombre);
+            int movidosAhora = 0;
+            for (Nodo nodo : nodos.values()) {
+                var cambian = nodo.examenes.findAll().stream()
+                        .filter(e -> esDe(nodo, anterior, e) && siguiente.duenio(e.getId()).equals(nuevo.nombre))
+                        .collect(Collectors.toList());
+                movidosAhora += mover(nodo, cambian, e -> nuevo);
+            }
+            nodos.put(nuevo.nombre, nuevo);
+            anillo = siguiente;
+            return movidosAhora;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Reparte los examenes del nodo entre los que quedan y lo saca del anillo
+    public int quitarNodo(String nombre) {
+        lock.writeLock().lock();
+        try {
+            var saliente = nodos.get(nombre);
+            if (saliente == null) {
+                throw new IllegalArgumentException("No existe el nodo " + nombre);
+            }
+            if (nodos.size() == 1) {
+                throw new IllegalStateException("No se puede quitar el ultimo nodo");
+            }
+            var anterior = anillo;
+            var siguiente = anterior.sin(nombre);
+            var propios = propios(saliente, anterior, saliente.examenes.findAll());
+            int movidosAhora = mover(saliente, propios, e -> nodos.get(siguiente.duenio(e.getId())));
+            nodos.remove(nombre);
+            anillo = siguiente;
+            return movidosAhora;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Copia examenes y preguntas por lotes desde el origen a su nodo destino
+    private int mover(Nodo origen, List<Examen> examenes, Function<Examen, Nodo> destino) {
+        for (int desde = 0; desde < examenes.size(); desde += LOTE_MOVIMIENTO) {
+            var lote = examenes.subList(desde, Math.min(desde + LOTE_MOVIMIENTO, examenes.size()));
+            var preguntas = origen.preguntas.findPreguntasPorExamenIds(
+                    lote.stream().map(Examen::getId).collect(Collectors.toList()));
+            Map<Nodo, List<Examen>> porDestino = new LinkedHashMap<>();
+            lote.forEach(e -> porDestino.computeIfAbsent(destino.apply(e), n -> new ArrayList<>())
+                    .add(e.conPreguntas(preguntas.getOrDefault(e.getId(), List.of()))));
+//            findAll no trae preguntas: el examen se guarda con las suyas por si el nodo persiste
+//            examen y preguntas juntos (ExamenRepositoryArchivo), y se guardan aparte para los que no
+            porDestino.forEach((nodo, deNodo) -> {
+                nodo.examenes.saveAll(deNodo);
+                guardarPreguntasDe(nodo, deNodo);
+            });
+        }
+        movidos.add(examenes.size());
+        return examenes.size();
+    }
+
+    // Las preguntas de un lote de examenes del nodo en una sola escritura
+    private static void guardarPreguntasDe(Nodo nodo, List<Examen> examenes) {
+        Map<Long, List<String>> porExamen = new LinkedHashMap<>();
+        examenes.stream()
+                .filter(e -> !e.getPreguntas().isEmpty())
+                .forEach(e -> porExamen.put(e.getId(), e.getPreguntas()));
+        if (!porExamen.isEmpty()) {
+            nodo.preguntas.guardarPreguntasDeExamenes(porExamen);
+        }
+    }
+
+    // Nodo al que pertenece el id con el reparto actual
+    public String nodoDe(long id) {
+        return anillo.duenio(id);
+    }
+
+    // Examenes movidos por todos los rebalanceos
+    public long getMovidos() {
+        return movidos.sum();
+    }
+
+    private Nodo duenio(long id) {
+        return nodos.get(anillo.duenio(id));
+    }
+
+    private static boolean esDe(Nodo nodo, AnilloConsistente anillo, Examen examen) {
+        return examen.getId() != null && anillo.duenio(examen.getId()).equals(nodo.nombre);
+    }
+
+    private static List<Examen> propios(Nodo nodo, AnilloConsistente anillo, List<Examen> examenes) {
+        return examenes.stream()
+                .filter(e -> esDe(nodo, anillo, e))
+                .sorted(POR_ID)
+                .collect(Collectors.toList());
+    }
+
+    private <T> List<T> enTodos(Function<Nodo, T> consulta) {
+        List<CompletableFuture<T>> consultas = new ArrayList<>(nodos.size());
+        for (Nodo nodo : nodos.values()) {
+            consultas.add(CompletableFuture.supplyAsync(() -> consulta.apply(nodo), executor));
+        }
+        return unir(consultas);
+    }
+
+    private static <T> List<T> unir(List<CompletableFuture<T>> futuros) {
+        try {
+            return futuros.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // Mezcla de k listas ordenadas por id con un heap de k cabezas
+    private static List<Examen> mezclar(List<List<Examen>> listas) {
+        int total = listas.stream().mapToInt(List::size).sum();
+        List<Examen> resultado = new ArrayList<>(total);
+        var cabezas = new PriorityQueue<int[]>(Comparator.comparing((int[] c) -> listas.get(c[0]).get(c[1]).getId()));
+        for (int i = 0; i < listas.size(); i++) {
+            if (!listas.get(i).isEmpty()) {
+                cabezas.add(new int[]{i, 0});
+            }
+        }
+        while (!cabezas.isEmpty()) {
+            var cabeza = cabezas.poll();
+            var lista = listas.get(cabeza[0]);
+            resultado.add(lista.get(cabeza[1]));
+            if (++cabeza[1] < lista.size()) {
+                cabezas.add(cabeza);
+            }
+        }
+        return resultado;
+    }
+}
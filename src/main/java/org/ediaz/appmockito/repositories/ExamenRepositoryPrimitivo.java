@@ -0,0 +1,353 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.models.Examen;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// ExamenRepository en memoria para catalogos grandes (decenas de millones de examenes).
+// No guarda objetos Examen: los datos viven en arreglos paralelos (struct-of-arrays) y los
+// Examen solo se crean al devolverlos.
+//
+// Memoria aproximada por examen, sin contar el nombre:
+//   ids (long)                           8 bytes
+//   inicio y largo del nombre (int x2)   8 bytes
+//   tabla id -> posicion (long + int)   12 bytes / factor de carga entre 0.25 y 0.5 = 24 a 48 bytes
+//   total                              ~40 a 64 bytes + el nombre en UTF-8 (1 byte por caracter ASCII)
+// Comparado con un Examen + Long + String + ArrayList vacio (~150 bytes sin contar los caracteres).
+// getBytesPorExamen() calcula el valor real segun la capacidad actual de los arreglos.
+public class ExamenRepositoryPrimitivo implements ExamenRepository, BusquedaPorNombre {
+
+    public static final long NO_ENCONTRADO = Long.MIN_VALUE;
+
+    private static final int VACIO = -1;
+    // Los arreglos de Java no pasan de Integer.MAX_VALUE y algunas JVM reservan unos bytes de cabecera
+    private static final int MAXIMO_NOMBRES = Integer.MAX_VALUE - 8;
+    // Se compacta antes de crecer si mas de la mitad de los bytes de nombres son basura
+    private static final double UMBRAL_BASURA = 0.5;
+
+    // Posiciones en orden de insercion
+    private long[] ids;
+    private int[] inicioNombre;
+    private int[] largoNombre;
+    private int tamanio;
+
+    // Todos los nombres concatenados en UTF-8. Al renombrar, si el nombre nuevo entra se escribe en
+    // el lugar del anterior; si no se agrega al final y el anterior queda como basura
+    private byte[] nombres;
+    private int finNombres;
+    private long basuraNombres;
+
+    // Tabla de direccionamiento abierto id -> posicion con sondeo lineal
+    private long[] claves;
+    private int[] posiciones;
+    private int mascara;
+
+    private long maximoId;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ExamenRepositoryPrimitivo() {
+        this(1024);
+    }
+
+    public ExamenRepositoryPrimitivo(int capacidadInicial) {
+        int capacidad = Math.max(16, capacidadInicial);
+        ids = new long[capacidad];
+        inicioNombre = new int[capacidad];
+        largoNombre = new int[capacidad];
+        nombres = new byte[(int) Math.min(MAXIMO_NOMBRES, (long) capacidad * 16)];
+        int tabla = Integer.highestOneBit(capacidad * 2 - 1) << 1;
+        claves = new long[tabla];
+        posiciones = new int[tabla];
+        Arrays.fill(posiciones, VACIO);
+        mascara = tabla - 1;
+    }
+
+    @Override
+    public List<Examen> findAll() {
+        // Vista perezosa: cada get crea el Examen de esa posicion, no se copia el catalogo
+        return new AbstractList<>() {
+            @Override
+            public Examen get(int indice) {
+                lock.readLock().lock();
+                try {
+                    if (indice < 0 || indice >= tamanio) {
+                        throw new IndexOutOfBoundsException(indice);
+                    }
+                    return crear(indice);
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+
+            @Override
+            public int size() {
+                return tamanio();
+            }
+        };
+    }
+
+    @Override
+    public List<Examen> findAll(Long despuesDeId, int limite) {
+        lock.readLock().lock();
+        try {
+            int desde = 0;
+            if (despuesDeId != null) {
+                int posicion = buscarPosicion(despuesDeId);
+                if (posicion == VACIO) {
+                    return new ArrayList<>();
+                }
+                desde = posicion + 1;
+            }
+            int hasta = (int) Math.min(tamanio, (long) desde + limite);
+            List<Examen> pagina = new ArrayList<>(Math.max(0, hasta - desde));
+            for (int i = desde; i < hasta; i++) {
+                pagina.add(crear(i));
+            }
+            return pagina;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Un examen sin id recibe el siguiente id libre, igual que lo haria una secuencia en base de datos
+    @Override
+    public Examen save(Examen examen) {
+        lock.writeLock().lock();
+        try {
+            if (examen.getId() == null) {
+                examen.setId(maximoId + 1);
+            }
+            long id = examen.getId();
+            byte[] nombre = examen.getNombre().getBytes(StandardCharsets.UTF_8);
+            int posicion = buscarPosicion(id);
+            if (posicion != VACIO && nombre.length <= largoNombre[posicion]) {
+                System.arraycopy(nombre, 0, nombres, inicioNombre[posicion], nombre.length);
+                basuraNombres += largoNombre[posicion] - nombre.length;
+                largoNombre[posicion] = nombre.length;
+                return examen;
+            }
+            if (posicion == VACIO) {
+                posicion = tamanio++;
+                asegurarCapacidad();
+                ids[posicion] = id;
+                insertarEnTabla(id, posicion);
+                maximoId = Math.max(maximoId, id);
+            } else {
+                basuraNombres += largoNombre[posicion];
+                largoNombre[posicion] = 0;
+            }
+            asegurarEspacioNombres(nombre.length);
+            System.arraycopy(nombre, 0, nombres, finNombres, nombre.length);
+            inicioNombre[posicion] = finNombres;
+            largoNombre[posicion] = nombre.length;
+            finNombres += nombre.length;
+            return examen;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Examen> findById(long id) {
+        lock.readLock().lock();
+        try {
+            int posicion = buscarPosicion(id);
+            return posicion == VACIO ? Optional.empty() : Optional.of(crear(posicion));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Examen> findPrimeroPorNombre(String nombre) {
+        lock.readLock().lock();
+        try {
+            int posicion = primeraPosicion(nombre.getBytes(StandardCharsets.UTF_8));
+            return posicion == VACIO ? Optional.empty() : Optional.of(crear(posicion));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Recorrido sin asignaciones: compara bytes directamente sobre el arreglo de nombres y solo
+    // devuelve el id (NO_ENCONTRADO si no hay coincidencia)
+    public long findIdPrimeroPorNombre(byte[] nombreUtf8) {
+        lock.readLock().lock();
+        try {
+            int posicion = primeraPosicion(nombreUtf8);
+            return posicion == VACIO ? NO_ENCONTRADO : ids[posicion];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int tamanio() {
+        lock.readLock().lock();
+        try {
+            return tamanio;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Bytes del arreglo de nombres que ya no pertenecen a ningun examen
+    public long getBasuraNombres() {
+        lock.readLock().lock();
+        try {
+            return basuraNombres;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public double getBytesPorExamen() {
+        lock.readLock().lock();
+        try {
+            if (tamanio == 0) {
+                return 0.0;
+            }
+            long bytes = (long) ids.length * Long.BYTES
+                    + (long) inicioNombre.length * Integer.BYTES
+                    + (long) largoNombre.length * Integer.BYTES
+                    + (long) claves.length * Long.BYTES
+                    + (long) posiciones.length * Integer.BYTES
+                    + nombres.length;
+            return (double) bytes / tamanio;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Examen crear(int posicion) {
+        return new Examen(ids[posicion],
+                new String(nombres, inicioNombre[posicion], largoNombre[posicion], StandardCharsets.UTF_8));
+    }
+
+    private int primeraPosicion(byte[] consulta) {
+        for (int i = 0; i < tamanio; i++) {
+            if (contiene(inicioNombre[i], largoNombre[i], consulta)) {
+                return i;
+            }
+        }
+        return VACIO;
+    }
+
+    // Una subcadena en UTF-8 coincide byte a byte con la subcadena en caracteres, por eso se puede
+    // comparar sin decodificar
+    private boolean contiene(int inicio, int largo, byte[] consulta) {
+        int ultimo = largo - consulta.length;
+        if (consulta.length == 0) {
+            return true;
+        }
+        byte primero = consulta[0];
+        for (int i = 0; i <= ultimo; i++) {
+            if (nombres[inicio + i] != primero) {
+                continue;
+            }
+            int j = 1;
+            while (j < consulta.length && nombres[inicio + i + j] == consulta[j]) {
+                j++;
+            }
+            if (j == consulta.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int buscarPosicion(long id) {
+        int i = dispersar(id) & mascara;
+        while (posiciones[i] != VACIO) {
+            if (claves[i] == id) {
+                return posiciones[i];
+            }
+            i = (i + 1) & mascara;
+        }
+        return VACIO;
+    }
+
+    private void insertarEnTabla(long id, int posicion) {
+        // Factor de carga maximo 0.5 para que el sondeo lineal sea corto
+        if (tamanio * 2 > claves.length) {
+            redimensionarTabla();
+        }
+        int i = dispersar(id) & mascara;
+        while (posiciones[i] != VACIO) {
+            i = (i + 1) & mascara;
+        }
+        claves[i] = id;
+        posiciones[i] = posicion;
+    }
+
+    private void redimensionarTabla() {
+        var clavesAnteriores = claves;
+        var posicionesAnteriores = posiciones;
+        claves = new long[clavesAnteriores.length * 2];
+        posiciones = new int[clavesAnteriores.length * 2];
+        Arrays.fill(posiciones, VACIO);
+        mascara = claves.length - 1;
+        for (int j = 0; j < clavesAnteriores.length; j++) {
+            if (posicionesAnteriores[j] != VACIO) {
+                int i = dispersar(clavesAnteriores[j]) & mascara;
+                while (posiciones[i] != VACIO) {
+                    i = (i + 1) & mascara;
+                }
+                claves[i] = clavesAnteriores[j];
+                posiciones[i] = posicionesAnteriores[j];
+            }
+        }
+    }
+
+    private void asegurarEspacioNombres(int largo) {
+        if ((long) finNombres + largo <= nombres.length) {
+            return;
+        }
+        if (basuraNombres > finNombres * UMBRAL_BASURA) {
+            compactarNombres();
+            if ((long) finNombres + largo <= nombres.length) {
+                return;
+            }
+        }
+        long necesario = (long) finNombres + largo;
+        if (necesario > MAXIMO_NOMBRES) {
+            throw new IllegalStateException("Los nombres ocupan mas de " + MAXIMO_NOMBRES + " bytes");
+        }
+        nombres = Arrays.copyOf(nombres, (int) Math.min(MAXIMO_NOMBRES, Math.max((long) nombres.length * 2, necesario)));
+    }
+
+    // Copia los nombres vivos al principio de un arreglo nuevo, en orden de posicion
+    private void compactarNombres() {
+        var compactos = new byte[nombres.length];
+        int fin = 0;
+        for (int i = 0; i < tamanio; i++) {
+            System.arraycopy(nombres, inicioNombre[i], compactos, fin, largoNombre[i]);
+            inicioNombre[i] = fin;
+            fin += largoNombre[i];
+        }
+        nombres = compactos;
+        finNombres = fin;
+        basuraNombres = 0;
+    }
+
+    private void asegurarCapacidad() {
+        if (tamanio > ids.length) {
+            int capacidad = ids.length + (ids.length >> 1);
+            ids = Arrays.copyOf(ids, capacidad);
+            inicioNombre = Arrays.copyOf(inicioNombre, capacidad);
+            largoNombre = Arrays.copyOf(largoNombre, capacidad);
+        }
+    }
+
+    // Mezcla los bits del id para que ids consecutivos no caigan en posiciones consecutivas
+    private static int dispersar(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,413 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.concurrencia.Ejecutores;
+import org.ediaz.appmockito.indices.IndicePreguntas;
+import org.ediaz.appmockito.models.Examen;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Instantanea del catalogo hidratado (examenes, preguntas e indice de preguntas) para arrancar en
+// caliente. escribir() la genera desde los repositorios de origen y abrir() la mapea en memoria y
+// valida version y crc sin materializar nada: los examenes y preguntas se leen del archivo al pedirlos,
+// asi el servicio queda disponible en milisegundos sin ningun viaje al origen.
+// Despues reconciliar() recorre el origen por lotes y aplica solo lo que cambio desde la instantanea.
+//
+// Formato (big endian):
+//   cabecera:   int MAGICO, int VERSION, int cantidad, int offsetPosiciones, int offsetPorId,
+//               int offsetPreguntas, int largo, long crc32(bytes desde CABECERA hasta largo)
+//   registros:  long id, int largo, nombre UTF-8, int cantidad, (int largo, pregunta UTF-8) * cantidad
+//   posiciones: int offset del registro * cantidad, en el orden de findAll() del origen
+//   porId:      (long id, int offset del registro) * cantidad, ordenado por id para busqueda binaria
+//   preguntas:  IndicePreguntas.escribir
+//
+// El archivo es de solo lectura: lo guardado despues de abrir (save, guardarPreguntas, reconciliar)
+// queda en memoria encima de la instantanea hasta el siguiente guardar(). Igual que en
+// ExamenRepositoryArchivo las preguntas se guardan junto al examen en save o con guardarPreguntas y
+// guardarVarias no escribe nada porque no recibe el id del examen. El nombre no se indexa aqui:
+// IndiceNombres se arma en el servicio leyendo solo los nombres del archivo, lo caro de un arranque en
+// frio es traer las preguntas
+public class InstantaneaCatalogo implements ExamenRepository, PreguntaRepository, ConIndicePreguntas {
+
+    private static final int MAGICO = 0x43415441;
+    private static final int VERSION = 1;
+    private static final int CABECERA = 7 * Integer.BYTES + Long.BYTES;
+    private static final int ENTRADA_POR_ID = Long.BYTES + Integer.BYTES;
+    private static final int LOTE = 500;
+
+    private final MappedByteBuffer mapa;
+    private final int cantidad;
+    private final int offsetPosiciones;
+    private final int offsetPorId;
+    private final int offsetPreguntas;
+
+    // Cambios posteriores a la instantanea. Los examenes cuyo id no esta en el archivo van al final de findAll()
+    private final Map<Long, Examen> cambiados = new ConcurrentHashMap<>();
+    private final Map<Long, List<String>> preguntasCambiadas = new ConcurrentHashMap<>();
+    private final List<Long> agregados = new ArrayList<>();
+    private final LongAdder reconciliados = new LongAdder();
+
+    private InstantaneaCatalogo(MappedByteBuffer mapa) {
+        this.mapa = mapa;
+        this.cantidad = mapa.getInt(8);
+        this.offsetPosiciones = mapa.getInt(12);
+        this.offsetPorId = mapa.getInt(16);
+        this.offsetPreguntas = mapa.getInt(20);
+    }
+
+    // Recorre el origen una sola vez pidiendo las preguntas por lotes y reemplaza el archivo de forma atomica
+    public static void escribir(Path archivo, ExamenRepository origen, PreguntaRepository origenPreguntas) {
+        var temporal = archivo.resolveSibling(archivo.getFileName() + ".escribiendo");
+        try (var canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            canal.position(CABECERA);
+            var crc = new CRC32();
+            var salida = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 16), crc));
+            var indice = new IndicePreguntas();
+            long[] ids = new long[1024];
+            int[] offsets = new int[1024];
+            int escritos = 0;
+
+            List<Examen> lote = new ArrayList<>(LOTE);
+            var iterador = origen.findAll().iterator();
+            while (iterador.hasNext() || !lote.isEmpty()) {
+                if (iterador.hasNext()) {
+                    var examen = iterador.next();
+                    if (examen.getId() == null) {
+                        throw new IllegalArgumentException("Todos los examenes deben tener id para la instantanea");
+                    }
+                    lote.add(examen);
+                }
+                if (lote.size() < LOTE && iterador.hasNext()) {
+                    continue;
+                }
+                var preguntas = origenPreguntas.findPreguntasPorExamenIds(lote.stream().map(Examen::getId).toList());
+                for (Examen examen : lote) {
+                    var dePreguntas = Objects.requireNonNullElse(preguntas.get(examen.getId()), Collections.<String>emptyList());
+                    if (escritos == ids.length) {
+                        ids = Arrays.copyOf(ids, escritos * 2);
+                        offsets = Arrays.copyOf(offsets, escritos * 2);
+                    }
+                    ids[escritos] = examen.getId();
+                    offsets[escritos] = CABECERA + salida.size();
+                    escritos++;
+                    escribirRegistro(salida, examen.getId(), examen.getNombre(), dePreguntas);
+                    indice.agregar(examen.getId(), dePreguntas);
+                }
+                lote.clear();
+            }
+
+            int offsetPosiciones = CABECERA + salida.size();
+            for (int i = 0; i < escritos; i++) {
+                salida.writeInt(offsets[i]);
+            }
+            int offsetPorId = CABECERA + salida.size();
+            var orden = new Integer[escritos];
+            Arrays.setAll(orden, i -> i);
+            var idsOrden = ids;
+            Arrays.sort(orden, (a, b) -> Long.compare(idsOrden[a], idsOrden[b]));
+            for (int i : orden) {
+                salida.writeLong(ids[i]);
+                salida.writeInt(offsets[i]);
+            }
+            int offsetPreguntas = CABECERA + salida.size();
+            indice.escribir(salida);
+            salida.flush();
+            if ((long) CABECERA + salida.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("La instantanea del catalogo supera 2 GB");
+            }
+
+            var cabecera = ByteBuffer.allocate(CABECERA)
+                    .putInt(MAGICO).putInt(VERSION).putInt(escritos)
+                    .putInt(offsetPosiciones).putInt(offsetPorId).putInt(offsetPreguntas)
+                    .putInt(CABECERA + salida.size()).putLong(crc.getValue())
+                    .flip();
+            canal.write(cabecera, 0);
+            canal.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Mapea y valida la instantanea. Si no existe, es de otra version o no coincide el crc devuelve
+    // vacio y quien llama arranca en frio desde el origen
+    public static Optional<InstantaneaCatalogo> abrir(Path archivo) {
+        if (!Files.exists(archivo)) {
+            return Optional.empty();
+        }
+        MappedByteBuffer mapa;
+        try (var canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamanio = canal.size();
+            if (tamanio < CABECERA || tamanio > Integer.MAX_VALUE) {
+                return Optional.empty();
+            }
+            mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanio);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return valida(mapa) ? Optional.of(new InstantaneaCatalogo(mapa)) : Optional.empty();
+    }
+
+    private static boolean valida(MappedByteBuffer mapa) {
+        if (mapa.getInt(0) != MAGICO || mapa.getInt(4) != VERSION || mapa.getInt(24) != mapa.capacity()) {
+            return false;
+        }
+        int cantidad = mapa.getInt(8);
+        int offsetPosiciones = mapa.getInt(12);
+        int offsetPorId = mapa.getInt(16);
+        int offsetPreguntas = mapa.getInt(20);
+        if (cantidad < 0 || offsetPosiciones < CABECERA
+                || offsetPorId != offsetPosiciones + (long) cantidad * Integer.BYTES
+                || offsetPreguntas != offsetPorId + (long) cantidad * ENTRADA_POR_ID
+                || offsetPreguntas > mapa.capacity()) {
+            return false;
+        }
+        var crc = new CRC32();
+        crc.update(mapa.slice(CABECERA, mapa.capacity() - CABECERA));
+        return crc.getValue() == mapa.getLong(28);
+    }
+
+    // Escribe el estado actual, instantanea mas cambios, por ejemplo al apagar el servicio
+    public void guardar(Path archivo) {
+        escribir(archivo, this, this);
+    }
+
+    // Guarda al terminar la JVM. Devuelve el hook por si se quiere quitar con Runtime.removeShutdownHook
+    public Thread guardarAlApagar(Path archivo) {
+        var hook = Ejecutores.hilosDaemon("guardar-instantanea").newThread(() -> guardar(archivo));
+        Runtime.getRuntime().addShutdownHook(hook);
+        return hook;
+    }
+
+    // Vista perezosa: cada examen de la instantanea se lee del archivo al pedirlo
+    @Override
+    public List<Examen> findAll() {
+        int deAgregados;
+        synchronized (agregados) {
+            deAgregados = agregados.size();
+        }
+        int total = cantidad + deAgregados;
+        return new AbstractList<>() {
+            @Override
+            public Examen get(int indice) {
+                Objects.checkIndex(indice, total);
+                if (indice >= cantidad) {
+                    Long id;
+                    synchronized (agregados) {
+                        id = agregados.get(indice - cantidad);
+                    }
+                    return cambiados.get(id);
+                }
+                int offset = mapa.getInt(offsetPosiciones + indice * Integer.BYTES);
+                if (!cambiados.isEmpty()) {
+                    var cambiado = cambiados.get(mapa.getLong(offset));
+                    if (cambiado != null) {
+                        return cambiado;
+                    }
+                }
+                return leerExamen(offset);
+            }
+
+            @Override
+            public int size() {
+                return total;
+            }
+        };
+    }
+
+    @Override
+    public Optional<Examen> findById(long id) {
+        var cambiado = cambiados.get(id);
+        if (cambiado != null) {
+            return Optional.of(cambiado);
+        }
+        int offset = buscarOffset(id);
+        return offset < 0 ? Optional.empty() : Optional.of(leerExamen(offset));
+    }
+
+    @Override
+    public synchronized Examen save(Examen examen) {
+        if (examen.getId() == null) {
+            throw new IllegalArgumentException("El examen debe tener id para guardarse en la instantanea");
+        }
+        if (cambiados.put(examen.getId(), examen) == null && buscarOffset(examen.getId()) < 0) {
+            synchronized (agregados) {
+                agregados.add(examen.getId());
+            }
+        }
+        if (!examen.getPreguntas().isEmpty()) {
+            preguntasCambiadas.put(examen.getId(), List.copyOf(examen.getPreguntas()));
+        }
+        return examen;
+    }
+
+    @Override
+    public List<String> findPreguntasPorExamenId(Long id) {
+        var cambiadas = preguntasCambiadas.get(id);
+        if (cambiadas != null) {
+            return cambiadas;
+        }
+        int offset = buscarOffset(id);
+        return offset < 0 ? Collections.emptyList() : leerPreguntas(offset);
+    }
+
+    @Override
+    public void guardarVarias(List<String> preguntas) {
+    }
+
+    @Override
+    public void guardarPreguntas(Long examenId, List<String> preguntas) {
+        preguntasCambiadas.put(examenId, List.copyOf(preguntas));
+    }
+
+    // Indice leido del archivo con los cambios posteriores aplicados encima
+    @Override
+    public IndicePreguntas indicePreguntas() {
+        var indice = IndicePreguntas.leer(mapa.duplicate().position(offsetPreguntas));
+        preguntasCambiadas.forEach(indice::agregar);
+        return indice;
+    }
+
+    // Compara el origen con lo que hay aqui por lotes de ids y aplica solo las diferencias (nombre o
+    // preguntas). Cada examen cambiado se pasa ya hidratado a alCambiar, por ejemplo guardarExamen de
+    // un ExamenServiceIndexadoImp para que actualice sus indices. Devuelve cuantos cambiaron
+    public int reconciliar(ExamenRepository origen, PreguntaRepository origenPreguntas, Consumer<Examen> alCambiar) {
+        int cambios = 0;
+        List<Examen> lote = new ArrayList<>(LOTE);
+        var iterador = origen.findAll().iterator();
+        while (iterador.hasNext() || !lote.isEmpty()) {
+            if (iterador.hasNext()) {
+                lote.add(iterador.next());
+            }
+            if (lote.size() < LOTE && iterador.hasNext()) {
+                continue;
+            }
+            var preguntas = origenPreguntas.findPreguntasPorExamenIds(lote.stream().map(Examen::getId).toList());
+            for (Examen examen : lote) {
+                var nuevas = Objects.requireNonNullElse(preguntas.get(examen.getId()), Collections.<String>emptyList());
+                var actual = findById(examen.getId());
+                if (actual.isPresent() && actual.get().getNombre().equals(examen.getNombre())
+                        && findPreguntasPorExamenId(examen.getId()).equals(nuevas)) {
+                    continue;
+                }
+                save(new Examen(examen.getId(), examen.getNombre()));
+                guardarPreguntas(examen.getId(), nuevas);
+                reconciliados.increment();
+                cambios++;
+                alCambiar.accept(examen.conPreguntas(nuevas));
+            }
+            lote.clear();
+        }
+        return cambios;
+    }
+
+    public CompletableFuture<Integer> reconciliarEnSegundoPlano(ExamenRepository origen, PreguntaRepository origenPreguntas,
+                                                                Consumer<Examen> alCambiar) {
+        var resultado = new CompletableFuture<Integer>();
+        Ejecutores.hilosDaemon("reconciliar-catalogo").newThread(() -> {
+            try {
+                resultado.complete(reconciliar(origen, origenPreguntas, alCambiar));
+            } catch (RuntimeException e) {
+                resultado.completeExceptionally(e);
+            }
+        }).start();
+        return resultado;
+    }
+
+    // Examenes leidos de la instantanea al abrirla
+    public int getTamanioInstantanea() {
+        return cantidad;
+    }
+
+    public long getReconciliados() {
+        return reconciliados.sum();
+    }
+
+    // Busqueda binaria en la seccion porId, devuelve el offset del registro o -1
+    private int buscarOffset(long id) {
+        int desde = 0;
+        int hasta = cantidad - 1;
+        while (desde <= hasta) {
+            int medio = (desde + hasta) >>> 1;
+            long actual = mapa.getLong(offsetPorId + medio * ENTRADA_POR_ID);
+            if (actual < id) {
+                desde = medio + 1;
+            } else if (actual > id) {
+                hasta = medio - 1;
+            } else {
+                return mapa.getInt(offsetPorId + medio * ENTRADA_POR_ID + Long.BYTES);
+            }
+        }
+        return -1;
+    }
+
+    private static void escribirRegistro(DataOutputStream salida, long id, String nombre, List<String> preguntas)
+            throws IOException {
+        salida.writeLong(id);
+        escribirTexto(salida, nombre);
+        salida.writeInt(preguntas.size());
+        for (String pregunta : preguntas) {
+            escribirTexto(salida, pregunta);
+        }
+    }
+
+    private static void escribirTexto(DataOutputStream salida, String texto) throws IOException {
+        var bytes = texto.getBytes(StandardCharsets.UTF_8);
+        salida.writeInt(bytes.length);
+        salida.write(bytes);
+    }
+
+    private Examen leerExamen(int offset) {
+        return new Examen(mapa.getLong(offset), leerTexto(offset + Long.BYTES));
+    }
+
+    private List<String> leerPreguntas(int offset) {
+        int p = offset + Long.BYTES;
+        p += Integer.BYTES + mapa.getInt(p);
+        int total = mapa.getInt(p);
+        p += Integer.BYTES;
+        List<String> preguntas = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            preguntas.add(leerTexto(p));
+            p += Integer.BYTES + mapa.getInt(p);
+        }
+        return preguntas;
+    }
+
+    private String leerTexto(int p) {
+        var bytes = new byte[mapa.getInt(p)];
+        mapa.get(p + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
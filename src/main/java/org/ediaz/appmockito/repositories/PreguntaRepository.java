@@ -1,9 +1,34 @@
 package org.ediaz.appmockito.repositories;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public interface PreguntaRepository {
     List<String> findPreguntasPorExamenId(Long id);
 
     void guardarVarias(List<String> preguntas);
+
+    // Guarda las preguntas de un examen conocido. Por defecto es guardarVarias; los decoradores lo
+    // reenvian para que el id llegue hasta quien pueda usarlo (cache, write-behind)
+    default void guardarPreguntas(Long examenId, List<String> preguntas) {
+        guardarVarias(preguntas);
+    }
+
+    // Guarda las preguntas de varios examenes conocidos. Por defecto una guardarPreguntas por examen;
+    // los backends lo sobreescriben para escribir el lote en un solo viaje y los decoradores lo reenvian
+    default void guardarPreguntasDeExamenes(Map<Long, List<String>> preguntasPorExamen) {
+        preguntasPorExamen.forEach(this::guardarPreguntas);
+    }
+
+    // Por defecto hace una llamada por id, las implementaciones con acceso a un backend real
+    // deberian sobreescribirlo para resolver todos los ids en un solo viaje
+    default Map<Long, List<String>> findPreguntasPorExamenIds(Collection<Long> ids) {
+        Map<Long, List<String>> preguntas = new LinkedHashMap<>();
+        for (Long id : ids) {
+            preguntas.put(id, findPreguntasPorExamenId(id));
+        }
+        return preguntas;
+    }
 }
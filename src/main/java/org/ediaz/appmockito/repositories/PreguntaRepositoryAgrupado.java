@@ -0,0 +1,154 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.concurrencia.Ejecutores;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Estilo DataLoader: las llamadas individuales que llegan dentro de la misma ventana de tiempo
+// se juntan en una sola llamada a findPreguntasPorExamenIds del repositorio delegado.
+// El lote se despacha al cerrar la ventana o antes si llega a maxLote ids
+public class PreguntaRepositoryAgrupado implements PreguntaRepository, AutoCloseable {
+
+    private final PreguntaRepository delegado;
+    private final long ventanaNanos;
+    private final int maxLote;
+    private final ScheduledExecutorService planificador;
+    private final ExecutorService cargas;
+
+    // Lote abierto, protegido por el monitor de this
+    private Lote pendiente = new Lote();
+
+    private final LongAdder lotes = new LongAdder();
+    private final LongAdder solicitudes = new LongAdder();
+
+    public PreguntaRepositoryAgrupado(PreguntaRepository delegado, Duration ventana, int maxLote) {
+        if (maxLote <= 0) {
+            throw new IllegalArgumentException("maxLote debe ser mayor a 0");
+        }
+        this.delegado = delegado;
+        this.ventanaNanos = ventana.toNanos();
+        this.maxLote = maxLote;
+        this.planificador = Executors.newSingleThreadScheduledExecutor(Ejecutores.hilosDaemon("agrupador-preguntas"));
+        this.cargas = Ejecutores.paraBloqueantes();
+    }
+
+    @Override
+    public List<String> findPreguntasPorExamenId(Long id) {
+        solicitudes.increment();
+        CompletableFuture<List<String>> futuro;
+        Lote lleno = null;
+        synchronized (this) {
+            futuro = pendiente.futuros.get(id);
+            if (futuro == null) {
+                futuro = new CompletableFuture<>();
+                if (pendiente.futuros.isEmpty()) {
+                    // El primer id de la ventana programa el despacho
+                    var lote = pendiente;
+                    planificador.schedule(() -> despachar(lote), ventanaNanos, TimeUnit.NANOSECONDS);
+                }
+                pendiente.futuros.put(id, futuro);
+                if (pendiente.futuros.size() >= maxLote) {
+                    lleno = pendiente;
+                }
+            }
+        }
+        if (lleno != null) {
+            despachar(lleno);
+        }
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // Las llamadas que ya vienen en lote no se retrasan
+    @Override
+    public Map<Long, List<String>> findPreguntasPorExamenIds(Collection<Long> ids) {
+        return delegado.findPreguntasPorExamenIds(ids);
+    }
+
+    @Override
+    public void guardarVarias(List<String> preguntas) {
+        delegado.guardarVarias(preguntas);
+    }
+
+    @Override
+    public void guardarPreguntas(Long examenId, List<String> preguntas) {
+        delegado.guardarPreguntas(examenId, preguntas);
+    }
+
+    @Override
+    public void guardarPreguntasDeExamenes(Map<Long, List<String>> preguntasPorExamen) {
+        delegado.guardarPreguntasDeExamenes(preguntasPorExamen);
+    }
+
+    public long getLotes() {
+        return lotes.sum();
+    }
+
+    public long getSolicitudes() {
+        return solicitudes.sum();
+    }
+
+    @Override
+    public void close() {
+        Lote ultimo;
+        synchronized (this) {
+            ultimo = pendiente;
+        }
+        despachar(ultimo);
+        planificador.shutdownNow();
+        cargas.shutdown();
+    }
+
+    private void despachar(Lote lote) {
+        synchronized (this) {
+            // El lote puede llegar aqui por tiempo y por tamanio, solo se despacha una vez
+            if (lote.despachado) {
+                return;
+            }
+            lote.despachado = true;
+            if (lote == pendiente) {
+                pendiente = new Lote();
+            }
+            if (lote.futuros.isEmpty()) {
+                return;
+            }
+        }
+        lotes.increment();
+        cargas.execute(() -> {
+            try {
+                var preguntas = delegado.findPreguntasPorExamenIds(new ArrayList<>(lote.futuros.keySet()));
+                // Un id que el delegado no devolvio es un examen sin preguntas, como en findPreguntasPorExamenId
+                lote.futuros.forEach((id, futuro) -> futuro.complete(preguntas.getOrDefault(id, List.of())));
+            } catch (Throwable e) {
+                // Tambien los Error, quienes esperan el lote hacen join sin plazo
+                lote.futuros.values().forEach(futuro -> futuro.completeExceptionally(e));
+            }
+        });
+    }
+
+    private static class Lote {
+        private final Map<Long, CompletableFuture<List<String>>> futuros = new LinkedHashMap<>();
+        private boolean despachado;
+    }
+}
@@ -0,0 +1,88 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.concurrencia.LimiteAdaptativo;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Bulkhead para las lecturas de preguntas: a lo sumo getLimite() llamadas al delegado a la vez y el
+// resto se rechaza de inmediato con PreguntasNoDisponiblesException, sin ocupar el hilo esperando.
+// Asi un backend lento de preguntas no consume todos los hilos de quien atiende las peticiones y las
+// busquedas por nombre, que no lo tocan, mantienen su latencia.
+// El limite se ajusta con LimiteAdaptativo segun la latencia que se observa en el delegado.
+// Las escrituras pasan sin limite: rechazarlas perderia datos y guardarExamen no tiene como degradarse
+public class PreguntaRepositoryAislado implements PreguntaRepository {
+
+    private final PreguntaRepository delegado;
+    private final LimiteAdaptativo limite;
+
+    private final LongAdder admitidas = new LongAdder();
+    private final LongAdder rechazadas = new LongAdder();
+
+    public PreguntaRepositoryAislado(PreguntaRepository delegado, LimiteAdaptativo limite) {
+        this.delegado = delegado;
+        this.limite = limite;
+    }
+
+    @Override
+    public List<String> findPreguntasPorExamenId(Long id) {
+        return aislar(() -> delegado.findPreguntasPorExamenId(id));
+    }
+
+    // Un lote ocupa un solo permiso, es un solo viaje al backend
+    @Override
+    public Map<Long, List<String>> findPreguntasPorExamenIds(Collection<Long> ids) {
+        return aislar(() -> delegado.findPreguntasPorExamenIds(ids));
+    }
+
+    @Override
+    public void guardarVarias(List<String> preguntas) {
+        delegado.guardarVarias(preguntas);
+    }
+
+    @Override
+    public void guardarPreguntas(Long examenId, List<String> preguntas) {
+        delegado.guardarPreguntas(examenId, preguntas);
+    }
+
+    @Override
+    public void guardarPreguntasDeExamenes(Map<Long, List<String>> preguntasPorExamen) {
+        delegado.guardarPreguntasDeExamenes(preguntasPorExamen);
+    }
+
+    private <T> T aislar(Supplier<T> llamada) {
+        if (!limite.intentarAdquirir()) {
+            rechazadas.increment();
+            throw new PreguntasNoDisponiblesException("Limite de " + limite.getLimite() + " consultas de preguntas alcanzado");
+        }
+        admitidas.increment();
+        long inicio = System.nanoTime();
+        boolean fallo = true;
+        try {
+            var resultado = llamada.get();
+            fallo = false;
+            return resultado;
+        } finally {
+            limite.liberar(System.nanoTime() - inicio, fallo);
+        }
+    }
+
+    public int getLimite() {
+        return limite.getLimite();
+    }
+
+    public int getEnVuelo() {
+        return limite.getEnVuelo();
+    }
+
+    public long getAdmitidas() {
+        return admitidas.sum();
+    }
+
+    public long getRechazadas() {
+        return rechazadas.sum();
+    }
+}
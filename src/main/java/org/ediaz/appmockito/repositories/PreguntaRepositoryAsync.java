@@ -0,0 +1,15 @@
+package org.ediaz.appmockito.repositories;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface PreguntaRepositoryAsync {
+    CompletableFuture<List<String>> findPreguntasPorExamenId(Long id);
+
+    CompletableFuture<Void> guardarVarias(List<String> preguntas);
+
+    // Como PreguntaRepository.guardarPreguntas, por defecto es guardarVarias
+    default CompletableFuture<Void> guardarPreguntas(Long examenId, List<String> preguntas) {
+        return guardarVarias(preguntas);
+    }
+}
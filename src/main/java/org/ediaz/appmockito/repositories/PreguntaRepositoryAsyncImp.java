@@ -0,0 +1,32 @@
+package org.ediaz.appmockito.repositories;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Adapta un PreguntaRepository bloqueante ejecutando cada llamada en el executor indicado
+public class PreguntaRepositoryAsyncImp implements PreguntaRepositoryAsync {
+
+    private final PreguntaRepository preguntaRepository;
+    private final Executor executor;
+
+    public PreguntaRepositoryAsyncImp(PreguntaRepository preguntaRepository, Executor executor) {
+        this.preguntaRepository = preguntaRepository;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<List<String>> findPreguntasPorExamenId(Long id) {
+        return CompletableFuture.supplyAsync(() -> preguntaRepository.findPreguntasPorExamenId(id), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> guardarVarias(List<String> preguntas) {
+        return CompletableFuture.runAsync(() -> preguntaRepository.guardarVarias(preguntas), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> guardarPreguntas(Long examenId, List<String> preguntas) {
+        return CompletableFuture.runAsync(() -> preguntaRepository.guardarPreguntas(examenId, preguntas), executor);
+    }
+}
@@ -0,0 +1,335 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.eventos.EventoCambio;
+import org.ediaz.appmockito.eventos.SuscriptorCambios;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Decorador de lectura con cache por id de examen sobre cualquier PreguntaRepository
+// - Desalojo LRU cuando se supera maxEntradas
+// - Expiracion por TTL desde el momento de la carga
+// - Una sola carga por id aunque lleguen varios fallos concurrentes (single-flight), tambien entre
+//   findPreguntasPorExamenId y findPreguntasPorExamenIds
+public class PreguntaRepositoryCache implements PreguntaRepository {
+
+    private final PreguntaRepository delegado;
+    private final int maxEntradas;
+    private final long ttlNanos;
+    private final LongSupplier reloj;
+
+    // LinkedHashMap en orden de acceso, protegido por su propio monitor
+    private final Map<Long, Entrada> entradas;
+    private final Map<Long, CompletableFuture<List<String>>> cargando = new ConcurrentHashMap<>();
+    // Cada invalidacion cambia la version para no guardar cargas que empezaron antes de ella
+    private final AtomicLong version = new AtomicLong();
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder cargas = new LongAdder();
+    private final LongAdder erroresCarga = new LongAdder();
+    private final LongAdder nanosCarga = new LongAdder();
+    private final LongAdder desalojos = new LongAdder();
+
+    public PreguntaRepositoryCache(PreguntaRepository delegado, int maxEntradas, Duration ttl) {
+        this(delegado, maxEntradas, ttl, System::nanoTime);
+    }
+
+    PreguntaRepositoryCache(PreguntaRepository delegado, int maxEntradas, Duration ttl, LongSupplier reloj) {
+        if (maxEntradas <= 0) {
+            throw new IllegalArgumentException("maxEntradas debe ser mayor a 0");
+        }
+        this.delegado = delegado;
+        this.maxEntradas = maxEntradas;
+        this.ttlNanos = ttl.toNanos();
+        this.reloj = reloj;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entrada> eldest) {
+                if (size() > PreguntaRepositoryCache.this.maxEntradas) {
+                    desalojos.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public List<String> findPreguntasPorExamenId(Long id) {
+        var preguntas = leer(id);
+        if (preguntas != null) {
+            aciertos.increment();
+            return preguntas;
+        }
+        fallos.increment();
+
+        var nueva = new CompletableFuture<List<String>>();
+        var enCurso = cargando.putIfAbsent(id, nueva);
+        if (enCurso != null) {
+            return esperar(enCurso);
+        }
+        long versionInicial = version.get();
+        long inicio = reloj.getAsLong();
+        try {
+            preguntas = delegado.findPreguntasPorExamenId(id);
+            nanosCarga.add(reloj.getAsLong() - inicio);
+            cargas.increment();
+            // La version se compara con el monitor tomado: una invalidacion que llegue despues del
+            // put ya encuentra la entrada y la quita
+            synchronized (entradas) {
+                if (version.get() == versionInicial) {
+                    entradas.put(id, new Entrada(preguntas, reloj.getAsLong() + ttlNanos));
+                }
+            }
+            nueva.complete(preguntas);
+            return preguntas;
+        } catch (Throwable e) {
+            // Tambien los Error: quienes esperan esta carga quedarian bloqueados para siempre
+            erroresCarga.increment();
+            nueva.completeExceptionally(e);
+            throw e;
+        } finally {
+            cargando.remove(id, nueva);
+        }
+    }
+
+    // Los aciertos se responden desde la cache y todos los fallos se piden en un solo lote. Los ids
+    // que ya esta cargando otro hilo no se vuelven a pedir, se espera esa carga despues del lote propio
+    @Override
+    public Map<Long, List<String>> findPreguntasPorExamenIds(Collection<Long> ids) {
+        Map<Long, List<String>> resultado = new LinkedHashMap<>();
+        Map<Long, CompletableFuture<List<String>>> propias = new LinkedHashMap<>();
+        Map<Long, CompletableFuture<List<String>>> ajenas = new LinkedHashMap<>();
+        for (Long id : ids) {
+            var preguntas = leer(id);
+            if (preguntas != null) {
+                aciertos.increment();
+                resultado.put(id, preguntas);
+                continue;
+            }
+            fallos.increment();
+            resultado.put(id, null); // Reserva la posicion para conservar el orden de ids
+            var nueva = new CompletableFuture<List<String>>();
+            var enCurso = cargando.putIfAbsent(id, nueva);
+            if (enCurso == null) {
+                propias.put(id, nueva);
+            } else {
+                ajenas.put(id, enCurso);
+            }
+        }
+        if (!propias.isEmpty()) {
+            cargarLote(propias, resultado);
+        }
+        ajenas.forEach((id, carga) -> resultado.put(id, esperar(carga)));
+        resultado.values().removeIf(preguntas -> preguntas == null);
+        return resultado;
+    }
+
+    // Un id que el delegado no devuelve queda fuera del resultado; quien esperaba solo ese id recibe
+    // la lista vacia, como de findPreguntasPorExamenId
+    private void cargarLote(Map<Long, CompletableFuture<List<String>>> propias, Map<Long, List<String>> resultado) {
+        long versionInicial = version.get();
+        long inicio = reloj.getAsLong();
+        try {
+            var cargadas = delegado.findPreguntasPorExamenIds(new ArrayList<>(propias.keySet()));
+            nanosCarga.add(reloj.getAsLong() - inicio);
+            cargas.increment();
+            synchronized (entradas) {
+                if (version.get() == versionInicial) {
+                    long expira = reloj.getAsLong() + ttlNanos;
+                    cargadas.forEach((id, preguntas) -> entradas.put(id, new Entrada(preguntas, expira)));
+                }
+            }
+            propias.forEach((id, carga) -> carga.complete(cargadas.getOrDefault(id, List.of())));
+            resultado.putAll(cargadas);
+        } catch (Throwable e) {
+            // Igual que en findPreguntasPorExamenId, los Error tambien despiertan a quienes esperan
+            erroresCarga.increment();
+            propias.values().forEach(carga -> carga.completeExceptionally(e));
+            throw e;
+        } finally {
+            propias.forEach(cargando::remove);
+        }
+    }
+
+    // guardarVarias no recibe el id del examen, por lo que no se puede saber que entradas
+    // quedan desactualizadas y se invalida toda la cache
+    @Override
+    public void guardarVarias(List<String> preguntas) {
+        delegado.guardarVarias(preguntas);
+        invalidarTodo();
+    }
+
+    // Con el id solo queda desactualizada la entrada de ese examen
+    @Override
+    public void guardarPreguntas(Long examenId, List<String> preguntas) {
+        delegado.guardarPreguntas(examenId, preguntas);
+        invalidar(examenId);
+    }
+
+    @Override
+    public void guardarPreguntasDeExamenes(Map<Long, List<String>> preguntasPorExamen) {
+        delegado.guardarPreguntasDeExamenes(preguntasPorExamen);
+        version.incrementAndGet();
+        synchronized (entradas) {
+            entradas.keySet().removeAll(preguntasPorExamen.keySet());
+        }
+    }
+
+    public void invalidar(Long id) {
+        version.incrementAndGet();
+        synchronized (entradas) {
+            entradas.remove(id);
+        }
+    }
+
+    public void invalidarTodo() {
+        version.incrementAndGet();
+        synchronized (entradas) {
+            entradas.clear();
+        }
+    }
+
+    // Para cuando las escrituras no pasan por esta cache (otra instancia escribe en el delegado):
+    // invalida con los eventos de un BusCambios. Una pregunta sin id o eventos perdidos invalidan todo
+    public SuscriptorCambios invalidador() {
+        return new SuscriptorCambios() {
+            @Override
+            public void procesar(List<EventoCambio> lote) {
+                for (EventoCambio evento : lote) {
+                    if (evento.getTipo() != EventoCambio.Tipo.PREGUNTAS) {
+                        continue;
+                    }
+                    if (evento.getExamenId() == null) {
+                        invalidarTodo();
+                        return;
+                    }
+                    invalidar(evento.getExamenId());
+                }
+            }
+
+            @Override
+            public void eventosPerdidos(long desde, long hasta) {
+                invalidarTodo();
+            }
+        };
+    }
+
+    public int tamanio() {
+        synchronized (entradas) {
+            return entradas.size();
+        }
+    }
+
+    public Estadisticas getEstadisticas() {
+        return new Estadisticas(aciertos.sum(), fallos.sum(), cargas.sum(), erroresCarga.sum(),
+                nanosCarga.sum(), desalojos.sum());
+    }
+
+    private List<String> leer(Long id) {
+        synchronized (entradas) {
+            var entrada = entradas.get(id);
+            if (entrada == null) {
+                return null;
+            }
+            if (reloj.getAsLong() - entrada.expira >= 0) {
+                entradas.remove(id);
+                return null;
+            }
+            return entrada.preguntas;
+        }
+    }
+
+    private static List<String> esperar(CompletableFuture<List<String>> carga) {
+        try {
+            return carga.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class Entrada {
+        private final List<String> preguntas;
+        private final long expira;
+
+        private Entrada(List<String> preguntas, long expira) {
+            this.preguntas = preguntas;
+            this.expira = expira;
+        }
+    }
+
+    public static class Estadisticas {
+        private final long aciertos;
+        private final long fallos;
+        private final long cargas;
+        private final long erroresCarga;
+        private final long nanosCarga;
+        private final long desalojos;
+
+        public Estadisticas(long aciertos, long fallos, long cargas, long erroresCarga, long nanosCarga, long desalojos) {
+            this.aciertos = aciertos;
+            this.fallos = fallos;
+            this.cargas = cargas;
+            this.erroresCarga = erroresCarga;
+            this.nanosCarga = nanosCarga;
+            this.desalojos = desalojos;
+        }
+
+        public long getAciertos() {
+            return aciertos;
+        }
+
+        public long getFallos() {
+            return fallos;
+        }
+
+        public long getCargas() {
+            return cargas;
+        }
+
+        public long getErroresCarga() {
+            return erroresCarga;
+        }
+
+        public long getNanosCarga() {
+            return nanosCarga;
+        }
+
+        public long getDesalojos() {
+            return desalojos;
+        }
+
+        public double getTasaAciertos() {
+            long total = aciertos + fallos;
+            return total == 0 ? 0.0 : (double) aciertos / total;
+        }
+
+        public double getPromedioCargaNanos() {
+            return cargas == 0 ? 0.0 : (double) nanosCarga / cargas;
+        }
+
+        @Override
+        public String toString() {
+            return "Estadisticas{aciertos=" + aciertos + ", fallos=" + fallos + ", cargas=" + cargas
+                    + ", erroresCarga=" + erroresCarga + ", promedioCargaNanos=" + getPromedioCargaNanos()
+                    + ", desalojos=" + desalojos + '}';
+        }
+    }
+}
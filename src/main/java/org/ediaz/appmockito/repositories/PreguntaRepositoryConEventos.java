@@ -0,0 +1,50 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.eventos.BusCambios;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Decorador que publica en el BusCambios las preguntas escritas, despues de que el delegado las guardo.
+// guardarVarias no tiene id de examen y su evento va con examenId null: un suscriptor que no puede
+// ubicar el cambio tiene que tratarlo como "todo puede haber cambiado" (ver PreguntaRepositoryCache)
+public class PreguntaRepositoryConEventos implements PreguntaRepository {
+
+    private final PreguntaRepository delegado;
+    private final BusCambios bus;
+
+    public PreguntaRepositoryConEventos(PreguntaRepository delegado, BusCambios bus) {
+        this.delegado = delegado;
+        this.bus = bus;
+    }
+
+    @Override
+    public List<String> findPreguntasPorExamenId(Long id) {
+        return delegado.findPreguntasPorExamenId(id);
+    }
+
+    @Override
+    public Map<Long, List<String>> findPreguntasPorExamenIds(Collection<Long> ids) {
+        return delegado.findPreguntasPorExamenIds(ids);
+    }
+
+    @Override
+    public void guardarVarias(List<String> preguntas) {
+        delegado.guardarVarias(preguntas);
+        bus.publicarPreguntas(null, preguntas);
+    }
+
+    @Override
+    public void guardarPreguntas(Long examenId, List<String> preguntas) {
+        delegado.guardarPreguntas(examenId, preguntas);
+        bus.publicarPreguntas(examenId, preguntas);
+    }
+
+    // Una escritura al delegado y un evento por examen
+    @Override
+    public void guardarPreguntasDeExamenes(Map<Long, List<String>> preguntasPorExamen) {
+        delegado.guardarPreguntasDeExamenes(preguntasPorExamen);
+        preguntasPorExamen.forEach(bus::publicarPreguntas);
+    }
+}
@@ -0,0 +1,327 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.concurrencia.Ejecutores;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write-behind: guardarVarias y guardarPreguntas dejan la escritura en un buffer circular acotado y
+// vuelven de inmediato. Un hilo en segundo plano vacia el buffer en lotes cuando junta tamanioLote
+// escrituras o cuando la mas antigua lleva intervalo esperando, y los combina:
+// - todas las preguntas de guardarVarias del lote van en una sola llamada
+// - de varias guardarPreguntas del mismo examen solo se escribe la ultima, y las de todos los
+//   examenes del lote van en una sola guardarPreguntasDeExamenes
+//
+// Durabilidad: flush() espera a que todo lo aceptado hasta ese momento este en el delegado y close()
+// hace flush y detiene el hilo. Si el buffer esta lleno quien escribe espera (backpressure).
+// Lectura de lo escrito: findPreguntasPorExamenId devuelve lo ultimo guardado con guardarPreguntas
+// aunque siga en el buffer. guardarVarias no tiene id de examen, eso solo se ve despues de vaciarse.
+// Si el delegado falla el hilo se detiene y el error se lanza en la siguiente escritura, flush o close
+public class PreguntaRepositoryDiferido implements PreguntaRepository, AutoCloseable {
+
+    private final PreguntaRepository delegado;
+    private final int tamanioLote;
+    private final long intervaloNanos;
+
+    // Buffer circular protegido por lock
+    private final Escritura[] anillo;
+    private int cabeza;
+    private int cantidad;
+    private long ultimaSecuencia;
+    private long escritoHasta;
+    private boolean vaciarYa;
+    private boolean cerrado;
+    private RuntimeException error;
+    // Ultima guardarPreguntas de cada examen que todavia no llega al delegado
+    private final Map<Long, Escritura> pendientesPorId = new HashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hayDatos = lock.newCondition();
+    private final Condition hayEspacio = lock.newCondition();
+    private final Condition escrito = lock.newCondition();
+    private final Thread vaciador;
+
+    private final LongAdder escrituras = new LongAdder();
+    private final LongAdder lotes = new LongAdder();
+    private final LongAdder esperasPorLleno = new LongAdder();
+
+    public PreguntaRepositoryDiferido(PreguntaRepository delegado, int capacidad, int tamanioLote, Duration intervalo) {
+        if (capacidad <= 0 || tamanioLote <= 0) {
+            throw new IllegalArgumentException("capacidad y tamanioLote deben ser mayores a 0");
+        }
+        this.delegado = delegado;
+        this.anillo = new Escritura[capacidad];
+        this.tamanioLote = Math.min(tamanioLote, capacidad);
+        this.intervaloNanos = intervalo.toNanos();
+        this.vaciador = Ejecutores.hilosDaemon("write-behind-preguntas").newThread(this::vaciarEnSegundoPlano);
+        this.vaciador.start();
+    }
+
+    @Override
+    public List<String> findPreguntasPorExamenId(Long id) {
+        lock.lock();
+        try {
+            var pendiente = pendientesPorId.get(id);
+            if (pendiente != null) {
+                return pendiente.preguntas;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return delegado.findPreguntasPorExamenId(id);
+    }
+
+    @Override
+    public Map<Long, List<String>> findPreguntasPorExamenIds(Collection<Long> ids) {
+        Map<Long, List<String>> pendientes = new HashMap<>();
+        lock.lock();
+        try {
+            for (Long id : ids) {
+                var pendiente = pendientesPorId.get(id);
+                if (pendiente != null) {
+                    pendientes.put(id, pendiente.preguntas);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        List<Long> restantes = new ArrayList<>();
+        ids.forEach(id -> {
+            if (!pendientes.containsKey(id)) {
+                restantes.add(id);
+            }
+        });
+        var guardadas = restantes.isEmpty() ? Map.<Long, List<String>>of() : delegado.findPreguntasPorExamenIds(restantes);
+        Map<Long, List<String>> preguntas = new LinkedHashMap<>();
+        for (Long id : ids) {
+            preguntas.put(id, pendientes.containsKey(id) ? pendientes.get(id) : guardadas.get(id));
+        }
+        return preguntas;
+    }
+
+    @Override
+    public void guardarVarias(List<String> preguntas) {
+        encolar(null, preguntas);
+    }
+
+    @Override
+    public void guardarPreguntas(Long examenId, List<String> preguntas) {
+        encolar(examenId, preguntas);
+    }
+
+    private void encolar(Long examenId, List<String> preguntas) {
+        var copia = List.copyOf(preguntas);
+        lock.lock();
+        try {
+            verificarAbierto();
+            if (cantidad == anillo.length) {
+                esperasPorLleno.increment();
+                while (cantidad == anillo.length) {
+                    hayEspacio.await();
+                    verificarAbierto();
+                }
+            }
+            var escritura = new Escritura(++ultimaSecuencia, examenId, copia, System.nanoTime());
+            anillo[(cabeza + cantidad) % anillo.length] = escritura;
+            cantidad++;
+            if (examenId != null) {
+                pendientesPorId.put(examenId, escritura);
+            }
+            escrituras.increment();
+            if (cantidad == 1 || cantidad >= tamanioLote) {
+                hayDatos.signal();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando espacio en el buffer", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Espera a que todas las escrituras aceptadas hasta ahora lleguen al delegado
+    public void flush() {
+        lock.lock();
+        try {
+            long objetivo = ultimaSecuencia;
+            vaciarYa = true;
+            hayDatos.signal();
+            while (escritoHasta < objetivo && error == null) {
+                escrito.await();
+            }
+            if (error != null) {
+                throw error;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando el flush", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (cerrado) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flush();
+        } finally {
+            lock.lock();
+            try {
+                cerrado = true;
+                hayDatos.signal();
+                hayEspacio.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void vaciarEnSegundoPlano() {
+        while (true) {
+            List<Escritura> lote;
+            lock.lock();
+            try {
+                while (!cerrado && error == null && !listoParaVaciar()) {
+                    if (cantidad == 0) {
+                        hayDatos.await();
+                    } else {
+                        hayDatos.awaitNanos(anillo[cabeza].aceptada + intervaloNanos - System.nanoTime());
+                    }
+                }
+                if (error != null || (cerrado && cantidad == 0)) {
+                    return;
+                }
+                lote = sacar(Math.min(cantidad, tamanioLote));
+                hayEspacio.signalAll();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            // Tambien los Error: si el hilo muriera sin registrarlo flush y los escritores esperarian para siempre
+            Throwable fallo = null;
+            try {
+                escribir(lote);
+                lotes.increment();
+            } catch (Throwable e) {
+                fallo = e;
+            }
+
+            lock.lock();
+            try {
+                escritoHasta = lote.get(lote.size() - 1).secuencia;
+                for (Escritura escritura : lote) {
+                    if (escritura.examenId != null) {
+                        pendientesPorId.remove(escritura.examenId, escritura);
+                    }
+                }
+                if (cantidad == 0) {
+                    vaciarYa = false;
+                }
+                if (fallo != null) {
+                    error = new IllegalStateException("Fallo el write-behind de preguntas", fallo);
+                    hayEspacio.signalAll();
+                }
+                escrito.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private boolean listoParaVaciar() {
+        return cantidad >= tamanioLote
+                || (cantidad > 0 && (vaciarYa || System.nanoTime() - anillo[cabeza].aceptada >= intervaloNanos));
+    }
+
+    private List<Escritura> sacar(int n) {
+        List<Escritura> lote = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            lote.add(anillo[cabeza]);
+            anillo[cabeza] = null;
+            cabeza = (cabeza + 1) % anillo.length;
+        }
+        cantidad -= n;
+        return lote;
+    }
+
+    private void escribir(List<Escritura> lote) {
+        List<String> sinExamen = new ArrayList<>();
+        Map<Long, List<String>> porExamen = new LinkedHashMap<>();
+        for (Escritura escritura : lote) {
+            if (escritura.examenId == null) {
+                sinExamen.addAll(escritura.preguntas);
+            } else {
+                porExamen.put(escritura.examenId, escritura.preguntas);
+            }
+        }
+        if (!sinExamen.isEmpty()) {
+            delegado.guardarVarias(sinExamen);
+        }
+        if (!porExamen.isEmpty()) {
+            delegado.guardarPreguntasDeExamenes(porExamen);
+        }
+    }
+
+    private void verificarAbierto() {
+        if (error != null) {
+            throw error;
+        }
+        if (cerrado) {
+            throw new IllegalStateException("El repositorio ya fue cerrado");
+        }
+    }
+
+    public long getEscrituras() {
+        return escrituras.sum();
+    }
+
+    public long getLotes() {
+        return lotes.sum();
+    }
+
+    public long getEsperasPorLleno() {
+        return esperasPorLleno.sum();
+    }
+
+    public int getPendientes() {
+        lock.lock();
+        try {
+            return cantidad;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Escritura {
+        private final long secuencia;
+        private final Long examenId;
+        private final List<String> preguntas;
+        private final long aceptada;
+
+        Escritura(long secuencia, Long examenId, List<String> preguntas, long aceptada) {
+            this.secuencia = secuencia;
+            this.examenId = examenId;
+            this.preguntas = preguntas;
+            this.aceptada = aceptada;
+        }
+    }
+}
@@ -2,14 +2,17 @@ package org.ediaz.appmockito.repositories;
 
 import org.ediaz.appmockito.Datos;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+// Las llamadas se observan con PreguntaRepositoryInstrumentado en lugar de imprimir en consola
 public class PreguntaRepositoryImp implements PreguntaRepository {
 
     @Override
     public List<String> findPreguntasPorExamenId(Long id) {
-        System.out.println("PreguntaRepositoryImp.findPreguntasPorExamenId");
         try {
             TimeUnit.SECONDS.sleep(2L);
         } catch (InterruptedException e) {
@@ -18,8 +21,24 @@ public class PreguntaRepositoryImp implements PreguntaRepository {
         return Datos.PREGUNTAS;
     }
 
+    @Override
+    public Map<Long, List<String>> findPreguntasPorExamenIds(Collection<Long> ids) {
+        try {
+            TimeUnit.SECONDS.sleep(2L); // Un solo viaje para todo el lote
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        Map<Long, List<String>> preguntas = new LinkedHashMap<>();
+        ids.forEach(id -> preguntas.put(id, Datos.PREGUNTAS));
+        return preguntas;
+    }
+
     @Override
     public void guardarVarias(List<String> preguntas) {
-        System.out.println("PreguntaRepositoryImp.guardarVarias");
+    }
+
+    // Igual que guardarVarias, un solo viaje para todo el lote
+    @Override
+    public void guardarPreguntasDeExamenes(Map<Long, List<String>> preguntasPorExamen) {
     }
 }
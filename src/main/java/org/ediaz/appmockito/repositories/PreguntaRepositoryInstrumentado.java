@@ -0,0 +1,93 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.indices.IndicePreguntas;
+import org.ediaz.appmockito.metricas.Histograma;
+import org.ediaz.appmockito.metricas.Medidor;
+import org.ediaz.appmockito.metricas.Metricas;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Decorador que mide cada metodo de PreguntaRepository y el tamanio de los lotes.
+// Como ExamenRepositoryInstrumentado, solo implementa ConIndicePreguntas si el delegado la tiene
+public class PreguntaRepositoryInstrumentado implements PreguntaRepository {
+
+    final PreguntaRepository delegado;
+    private final Medidor findPreguntasPorExamenId;
+    private final Medidor findPreguntasPorExamenIds;
+    private final Medidor guardarVarias;
+    private final Medidor guardarPreguntas;
+    private final Medidor guardarPreguntasDeExamenes;
+    final Medidor indicePreguntas;
+    private final Histograma loteFindPreguntasPorExamenIds;
+    private final Histograma loteGuardarVarias;
+    private final Histograma loteGuardarPreguntas;
+    private final Histograma loteGuardarPreguntasDeExamenes;
+
+    private PreguntaRepositoryInstrumentado(PreguntaRepository delegado, Metricas metricas) {
+        this.delegado = delegado;
+        this.findPreguntasPorExamenId = metricas.medidor("pregunta.repository.findPreguntasPorExamenId");
+        this.findPreguntasPorExamenIds = metricas.medidor("pregunta.repository.findPreguntasPorExamenIds");
+        this.guardarVarias = metricas.medidor("pregunta.repository.guardarVarias");
+        this.guardarPreguntas = metricas.medidor("pregunta.repository.guardarPreguntas");
+        this.guardarPreguntasDeExamenes = metricas.medidor("pregunta.repository.guardarPreguntasDeExamenes");
+        this.indicePreguntas = metricas.medidor("pregunta.repository.indicePreguntas");
+        this.loteFindPreguntasPorExamenIds = metricas.distribucion("pregunta.repository.findPreguntasPorExamenIds.lote");
+        this.loteGuardarVarias = metricas.distribucion("pregunta.repository.guardarVarias.lote");
+        this.loteGuardarPreguntas = metricas.distribucion("pregunta.repository.guardarPreguntas.lote");
+        // Cantidad de examenes por llamada
+        this.loteGuardarPreguntasDeExamenes = metricas.distribucion("pregunta.repository.guardarPreguntasDeExamenes.lote");
+    }
+
+    public static PreguntaRepository envolver(PreguntaRepository delegado, Metricas metricas) {
+        if (metricas == Metricas.NOOP) {
+            return delegado;
+        }
+        return delegado instanceof ConIndicePreguntas
+                ? new ConIndice(delegado, metricas)
+                : new PreguntaRepositoryInstrumentado(delegado, metricas);
+    }
+
+    @Override
+    public List<String> findPreguntasPorExamenId(Long id) {
+        return findPreguntasPorExamenId.medir(() -> delegado.findPreguntasPorExamenId(id));
+    }
+
+    @Override
+    public Map<Long, List<String>> findPreguntasPorExamenIds(Collection<Long> ids) {
+        loteFindPreguntasPorExamenIds.registrar(ids.size());
+        return findPreguntasPorExamenIds.medir(() -> delegado.findPreguntasPorExamenIds(ids));
+    }
+
+    @Override
+    public void guardarVarias(List<String> preguntas) {
+        loteGuardarVarias.registrar(preguntas.size());
+        guardarVarias.ejecutar(() -> delegado.guardarVarias(preguntas));
+    }
+
+    @Override
+    public void guardarPreguntas(Long examenId, List<String> preguntas) {
+        loteGuardarPreguntas.registrar(preguntas.size());
+        guardarPreguntas.ejecutar(() -> delegado.guardarPreguntas(examenId, preguntas));
+    }
+
+    // Se reenvia entero para no partir en una escritura por examen el lote que el delegado hace de una vez
+    @Override
+    public void guardarPreguntasDeExamenes(Map<Long, List<String>> preguntasPorExamen) {
+        loteGuardarPreguntasDeExamenes.registrar(preguntasPorExamen.size());
+        guardarPreguntasDeExamenes.ejecutar(() -> delegado.guardarPreguntasDeExamenes(preguntasPorExamen));
+    }
+
+    private static final class ConIndice extends PreguntaRepositoryInstrumentado implements ConIndicePreguntas {
+
+        ConIndice(PreguntaRepository delegado, Metricas metricas) {
+            super(delegado, metricas);
+        }
+
+        @Override
+        public IndicePreguntas indicePreguntas() {
+            return indicePreguntas.medir(() -> ((ConIndicePreguntas) delegado).indicePreguntas());
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.ediaz.appmockito.repositories;
+
+public class PreguntasNoDisponiblesException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PreguntasNoDisponiblesException(String message) {
+        super(message);
+    }
+}
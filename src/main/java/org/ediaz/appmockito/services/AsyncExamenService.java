@@ -0,0 +1,14 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.models.Examen;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncExamenService {
+    CompletableFuture<Optional<Examen>> findExamenPorNombre(String nombre);
+
+    CompletableFuture<Examen> findExamenPorNombreConPreguntas(String nombre);
+
+    CompletableFuture<Examen> guardarExamen(Examen examen);
+}
@@ -0,0 +1,56 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.ExamenRepositoryAsync;
+import org.ediaz.appmockito.repositories.PreguntaRepositoryAsync;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+// Misma logica que ExamenServiceImp pero encadenando futuros, ningun hilo queda bloqueado
+// esperando a los repositorios
+public class AsyncExamenServiceImp implements AsyncExamenService {
+
+    private final ExamenRepositoryAsync examenRepository;
+    private final PreguntaRepositoryAsync preguntaRepository;
+
+    public AsyncExamenServiceImp(ExamenRepositoryAsync examenRepository, PreguntaRepositoryAsync preguntaRepository) {
+        this.examenRepository = examenRepository;
+        this.preguntaRepository = preguntaRepository;
+    }
+
+    @Override
+    public CompletableFuture<Optional<Examen>> findExamenPorNombre(String nombre) {
+        return this.examenRepository.findAll()
+                .thenApply(examenes -> examenes.stream()
+                        .filter(e -> e.getNombre().contains(nombre))
+                        .findFirst());
+    }
+
+    @Override
+    public CompletableFuture<Examen> findExamenPorNombreConPreguntas(String nombre) {
+        return this.findExamenPorNombre(nombre).thenCompose(examenOptional -> {
+            if (examenOptional.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            var examen = examenOptional.orElseThrow();
+            return this.preguntaRepository.findPreguntasPorExamenId(examen.getId())
+                    .thenApply(examen::conPreguntas);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Examen> guardarExamen(Examen examen) {
+        if (examen.getPreguntas().isEmpty()) {
+            return examenRepository.save(examen);
+        }
+//        Igual que en la version sincrona primero el examen y luego sus preguntas con el id asignado
+        return examenRepository.save(examen).thenCompose(guardado -> {
+            var id = guardado != null && guardado.getId() != null ? guardado.getId() : examen.getId();
+            var preguntas = id != null
+                    ? preguntaRepository.guardarPreguntas(id, examen.getPreguntas())
+                    : preguntaRepository.guardarVarias(examen.getPreguntas());
+            return preguntas.thenApply(nada -> guardado);
+        });
+    }
+}
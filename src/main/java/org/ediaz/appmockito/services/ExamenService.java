@@ -2,12 +2,28 @@ package org.ediaz.appmockito.services;
 
 import org.ediaz.appmockito.models.Examen;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface ExamenService {
     Optional<Examen> findExamenPorNombre(String nombre);
 
+    // Hasta k examenes cuyo nombre contiene la consulta, del mejor al peor: primero los que empiezan
+    // con ella, luego los que la contienen mas cerca del inicio y a igual posicion en orden alfabetico
+    List<Examen> findExamenesPorNombre(String nombre, int k);
+
     Examen findExamenPorNombreConPreguntas(String nombre);
 
+    List<Examen> findExamenesPorNombreConPreguntas(String nombre);
+
+    // Examenes cuyo nombre contiene la consulta con a lo sumo maximaDistancia ediciones, sin distinguir
+    // mayusculas ni acentos, del mas parecido al menos parecido
+    List<Examen> findExamenesPorNombreAproximado(String nombre, int maximaDistancia);
+
+    // Examenes cuyas preguntas contienen los terminos de la consulta, ver IndicePreguntas para la sintaxis
+    List<Examen> findExamenesPorPregunta(String consulta);
+
     Examen guardarExamen(Examen examen);
+
+    List<Examen> guardarExamenes(Iterable<Examen> examenes);
 }
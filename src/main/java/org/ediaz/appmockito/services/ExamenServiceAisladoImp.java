@@ -0,0 +1,96 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.concurrencia.LimiteAdaptativo;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.ExamenRepository;
+import org.ediaz.appmockito.repositories.PreguntaRepository;
+import org.ediaz.appmockito.repositories.PreguntaRepositoryAislado;
+import org.ediaz.appmockito.repositories.PreguntasNoDisponiblesException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+// ExamenServiceImp con las consultas de preguntas detras de un bulkhead (PreguntaRepositoryAislado).
+// Cuando el limite esta lleno findExamenPorNombreConPreguntas y findExamenesPorNombreConPreguntas
+// responden degradado: el examen sin preguntas, igual que un examen que no las tiene; getDegradadas
+// cuenta cuantas veces paso. findExamenesPorPregunta no tiene respuesta parcial con sentido y deja
+// pasar PreguntasNoDisponiblesException
+public class ExamenServiceAisladoImp extends ExamenServiceImp {
+
+    public static final int LIMITE_INICIAL = 8;
+    public static final int LIMITE_MAXIMO = 64;
+
+    private final PreguntaRepositoryAislado preguntaRepository;
+    private final LongAdder degradadas = new LongAdder();
+
+    public ExamenServiceAisladoImp(ExamenRepository examenRepository, PreguntaRepository preguntaRepository) {
+        this(examenRepository, preguntaRepository, new LimiteAdaptativo(LIMITE_INICIAL, 1, LIMITE_MAXIMO));
+    }
+
+    public ExamenServiceAisladoImp(ExamenRepository examenRepository, PreguntaRepository preguntaRepository,
+                                   LimiteAdaptativo limite) {
+        this(examenRepository, new PreguntaRepositoryAislado(preguntaRepository, limite));
+    }
+
+    private ExamenServiceAisladoImp(ExamenRepository examenRepository, PreguntaRepositoryAislado preguntaRepository) {
+        super(examenRepository, preguntaRepository);
+        this.preguntaRepository = preguntaRepository;
+    }
+
+    @Override
+    public Examen findExamenPorNombreConPreguntas(String nombre) {
+        var examenOptional = this.findExamenPorNombre(nombre);
+        if (examenOptional.isEmpty()) {
+            return null;
+        }
+        var examen = examenOptional.orElseThrow();
+        try {
+            return examen.conPreguntas(this.preguntaRepository.findPreguntasPorExamenId(examen.getId()));
+        } catch (PreguntasNoDisponiblesException e) {
+            degradadas.increment();
+            return examen.conPreguntas(Collections.emptyList());
+        }
+    }
+
+    @Override
+    public List<Examen> findExamenesPorNombreConPreguntas(String nombre) {
+        var examenes = this.buscarTodos(nombre);
+        if (examenes.isEmpty()) {
+            return examenes;
+        }
+        try {
+            var ids = examenes.stream().map(Examen::getId).collect(Collectors.toList());
+            var preguntas = this.preguntaRepository.findPreguntasPorExamenIds(ids);
+            return examenes.stream()
+                    .map(e -> e.conPreguntas(preguntas.getOrDefault(e.getId(), Collections.emptyList())))
+                    .collect(Collectors.toList());
+        } catch (PreguntasNoDisponiblesException e) {
+            degradadas.increment();
+            return examenes.stream()
+                    .map(examen -> examen.conPreguntas(Collections.emptyList()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public long getDegradadas() {
+        return degradadas.sum();
+    }
+
+    public long getRechazadas() {
+        return preguntaRepository.getRechazadas();
+    }
+
+    public long getAdmitidas() {
+        return preguntaRepository.getAdmitidas();
+    }
+
+    public int getLimite() {
+        return preguntaRepository.getLimite();
+    }
+
+    public int getEnVuelo() {
+        return preguntaRepository.getEnVuelo();
+    }
+}
@@ -0,0 +1,506 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.concurrencia.Ejecutores;
+import org.ediaz.appmockito.eventos.EventoCambio;
+import org.ediaz.appmockito.eventos.SuscriptorCambios;
+import org.ediaz.appmockito.indices.FiltroBloom;
+import org.ediaz.appmockito.indices.IndiceNombres;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.BusquedaPorNombre;
+import org.ediaz.appmockito.repositories.ExamenRepository;
+import org.ediaz.appmockito.repositories.PreguntaRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+// ExamenServiceImp con filtros de Bloom para responder rapido lo que seguro no existe:
+// - nombres: los trigramas de todos los nombres. Si algun trigrama de la consulta no esta en el
+//   filtro ningun nombre la contiene y no se recorre el catalogo. Consultas de menos de 3 letras
+//   no se pueden descartar y siguen el camino normal
+// - preguntas: los ids de los examenes que tienen preguntas. Si el id no esta el examen se devuelve
+//   con la lista vacia sin consultar el PreguntaRepository
+//
+// Un falso negativo devolveria un resultado incorrecto, asi que toda escritura tiene que pasar por el
+// filtro antes de llegar al repositorio:
+// - guardarExamen y guardarExamenes del servicio
+// - examenesSincronizados() y preguntasSincronizadas(): decoradores de los repositorios para quien
+//   escribe sin pasar por el servicio. Agregan al filtro y despues delegan; si el delegado falla
+//   queda un falso positivo, nunca un falso negativo
+// - actualizador(): suscriptor del BusCambios para lo que escriben otras instancias. Hasta que el
+//   evento se procesa la busqueda puede no ver lo escrito, como cualquier lector del bus
+// Un filtro de Bloom no permite quitar, asi que renombres o preguntas borradas solo se reflejan al
+// reconstruir (reconstruir() o reconstruirPeriodicamente), que ademas redimensiona los filtros.
+// Falso positivo: el filtro dijo "puede estar" y la busqueda no encontro nada. La tasa observada es
+// falsos positivos / (descartadas + falsos positivos), la proporcion de ausentes que no se descarto.
+// En nombres incluye las consultas cuyos trigramas existen todos pero en nombres distintos
+public class ExamenServiceConFiltroImp extends ExamenServiceImp implements AutoCloseable {
+
+    public static final double TASA_POR_DEFECTO = 0.01;
+    private static final int LOTE_PREGUNTAS = 500;
+    // Se dimensiona para el doble de lo que hay al reconstruir, asi lo que se guarde despues no sube la tasa
+    private static final int MARGEN = 2;
+    private static final int CAPACIDAD_MINIMA = 1024;
+
+    private final ExamenRepository examenRepository;
+    private final PreguntaRepository preguntaRepository;
+    private final double tasaFalsosPositivos;
+
+    private final Object lock = new Object();
+    private volatile Filtros filtros;
+    // Examenes e ids con preguntas guardados mientras se reconstruye, se agregan a los filtros nuevos
+    // antes de publicarlos
+    private List<Examen> guardadosDuranteReconstruccion;
+    private List<Long> conPreguntasDuranteReconstruccion;
+    private ScheduledExecutorService reconstructor;
+    private ScheduledFuture<?> reconstruccionPeriodica;
+
+    private final LongAdder consultasNombre = new LongAdder();
+    private final LongAdder descartadasNombre = new LongAdder();
+    private final LongAdder falsosPositivosNombre = new LongAdder();
+    private final LongAdder consultasPreguntas = new LongAdder();
+    private final LongAdder descartadasPreguntas = new LongAdder();
+    private final LongAdder falsosPositivosPreguntas = new LongAdder();
+    private final LongAdder reconstrucciones = new LongAdder();
+    private final LongAdder fallosReconstruccion = new LongAdder();
+
+    public ExamenServiceConFiltroImp(ExamenRepository examenRepository, PreguntaRepository preguntaRepository) {
+        this(examenRepository, preguntaRepository, TASA_POR_DEFECTO);
+    }
+
+    public ExamenServiceConFiltroImp(ExamenRepository examenRepository, PreguntaRepository preguntaRepository,
+                                     double tasaFalsosPositivos) {
+        super(examenRepository, preguntaRepository);
+        this.examenRepository = examenRepository;
+        this.preguntaRepository = preguntaRepository;
+        this.tasaFalsosPositivos = tasaFalsosPositivos;
+        reconstruir();
+    }
+
+    @Override
+    public Optional<Examen> findExamenPorNombre(String nombre) {
+        if (nombreAusente(nombre)) {
+            return Optional.empty();
+        }
+        var examen = super.findExamenPorNombre(nombre);
+        registrarNombre(nombre, examen.isEmpty());
+        return examen;
+    }
+
+    @Override
+    public List<Examen> findExamenesPorNombre(String nombre, int k) {
+        if (nombreAusente(nombre)) {
+            return new ArrayList<>();
+        }
+        var examenes = super.findExamenesPorNombre(nombre, k);
+        registrarNombre(nombre, examenes.isEmpty());
+        return examenes;
+    }
+
+    @Override
+    protected List<Examen> buscarTodos(String nombre) {
+        if (nombreAusente(nombre)) {
+            return new ArrayList<>();
+        }
+        var examenes = super.buscarTodos(nombre);
+        registrarNombre(nombre, examenes.isEmpty());
+        return examenes;
+    }
+
+    @Override
+    public Examen findExamenPorNombreConPreguntas(String nombre) {
+        var examenOptional = this.findExamenPorNombre(nombre);
+        if (examenOptional.isEmpty()) {
+            return null;
+        }
+        var examen = examenOptional.orElseThrow();
+        if (!puedeTenerPreguntas(examen.getId())) {
+            return examen.conPreguntas(Collections.emptyList());
+        }
+        var preguntas = this.preguntaRepository.findPreguntasPorExamenId(examen.getId());
+        if (preguntas.isEmpty()) {
+            falsosPositivosPreguntas.increment();
+        }
+        return examen.conPreguntas(preguntas);
+    }
+
+    // Solo se piden al repositorio los ids que el filtro no descarta
+    @Override
+    public List<Examen> findExamenesPorNombreConPreguntas(String nombre) {
+        var examenes = this.buscarTodos(nombre);
+        if (examenes.isEmpty()) {
+            return examenes;
+        }
+        var ids = examenes.stream()
+                .map(Examen::getId)
+                .filter(this::puedeTenerPreguntas)
+                .collect(Collectors.toList());
+        var preguntas = ids.isEmpty() ? Map.<Long, List<String>>of() : this.preguntaRepository.findPreguntasPorExamenIds(ids);
+        for (Long id : ids) {
+            var dePreguntas = preguntas.get(id);
+            if (dePreguntas == null || dePreguntas.isEmpty()) {
+                falsosPositivosPreguntas.increment();
+            }
+        }
+        return examenes.stream()
+                .map(e -> e.conPreguntas(preguntas.getOrDefault(e.getId(), Collections.emptyList())))
+                .collect(Collectors.toList());
+    }
+
+    // Se agrega otra vez lo guardado porque el id puede asignarlo el repositorio y sin id no entra al
+    // filtro de preguntas
+    @Override
+    public Examen guardarExamen(Examen examen) {
+        agregar(List.of(examen));
+        var guardado = super.guardarExamen(examen);
+        if (guardado != null) {
+            agregar(List.of(guardado));
+        }
+        return guardado;
+    }
+
+    // El Iterable puede ser de una sola pasada, se agrega antes de guardar una copia
+    @Override
+    public List<Examen> guardarExamenes(Iterable<Examen> examenes) {
+        List<Examen> lote = new ArrayList<>();
+        examenes.forEach(lote::add);
+        agregar(lote);
+        var guardados = super.guardarExamenes(lote);
+        agregar(guardados);
+        return guardados;
+    }
+
+    // El ExamenRepository del servicio con save y saveAll sincronizados con los filtros. Solo
+    // implementa BusquedaPorNombre si el repositorio la tiene, como ExamenRepositoryConEventos
+    public ExamenRepository examenesSincronizados() {
+        return this.examenRepository instanceof BusquedaPorNombre
+                ? new ExamenesSincronizadosConBusqueda()
+                : new ExamenesSincronizados();
+    }
+
+    // El PreguntaRepository del servicio con las escrituras por id sincronizadas con el filtro de
+    // preguntas. guardarVarias no tiene id de examen y no cambia lo que el filtro puede responder
+    public PreguntaRepository preguntasSincronizadas() {
+        return new PreguntasSincronizadas();
+    }
+
+    // Suscriptor para el BusCambios de ExamenRepositoryConEventos y PreguntaRepositoryConEventos.
+    // Si se perdieron eventos no se sabe que falta y se reconstruye
+    public SuscriptorCambios actualizador() {
+        return new SuscriptorCambios() {
+            @Override
+            public void procesar(List<EventoCambio> lote) {
+                for (EventoCambio evento : lote) {
+                    if (evento.getTipo() == EventoCambio.Tipo.EXAMEN) {
+                        agregar(List.of(evento.getExamen()));
+                    } else if (evento.getExamenId() != null && !evento.getPreguntas().isEmpty()) {
+                        agregarConPreguntas(List.of(evento.getExamenId()));
+                    }
+                }
+            }
+
+            @Override
+            public void eventosPerdidos(long desde, long hasta) {
+                reconstruir();
+            }
+        };
+    }
+
+    // Arma filtros nuevos desde los repositorios y los publica de una vez. Las busquedas siguen
+    // usando los anteriores mientras tanto
+    public void reconstruir() {
+        synchronized (lock) {
+            if (guardadosDuranteReconstruccion != null) {
+                return;
+            }
+            guardadosDuranteReconstruccion = new ArrayList<>();
+            conPreguntasDuranteReconstruccion = new ArrayList<>();
+        }
+        Filtros nuevos = null;
+        try {
+            nuevos = construir();
+        } finally {
+            synchronized (lock) {
+                if (nuevos != null) {
+                    guardadosDuranteReconstruccion.forEach(nuevos::agregar);
+                    conPreguntasDuranteReconstruccion.forEach(nuevos.preguntas::agregar);
+                    filtros = nuevos;
+                    reconstrucciones.increment();
+                }
+                guardadosDuranteReconstruccion = null;
+                conPreguntasDuranteReconstruccion = null;
+            }
+        }
+    }
+
+    // Llamarlo de nuevo reemplaza el periodo anterior. Un fallo al leer los repositorios no detiene la
+    // programacion, se cuenta en getFallosReconstruccion y se sigue con los filtros anteriores
+    public synchronized void reconstruirPeriodicamente(Duration periodo) {
+        if (reconstructor == null) {
+            reconstructor = Executors.newSingleThreadScheduledExecutor(Ejecutores.hilosDaemon("filtro-bloom"));
+        }
+        if (reconstruccionPeriodica != null) {
+            reconstruccionPeriodica.cancel(false);
+        }
+        reconstruccionPeriodica = reconstructor.scheduleWithFixedDelay(() -> {
+            try {
+                reconstruir();
+            } catch (RuntimeException e) {
+                fallosReconstruccion.increment();
+            }
+        }, periodo.toMillis(), periodo.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (reconstructor != null) {
+            reconstructor.shutdownNow();
+        }
+    }
+
+    private Filtros construir() {
+        Set<Long> trigramas = new HashSet<>();
+        List<Long> ids = new ArrayList<>();
+        for (Examen examen : this.examenRepository.findAll()) {
+            IndiceNombres.recorrerTrigramas(examen.getNombre(), trigramas::add);
+            if (examen.getId() != null) {
+                ids.add(examen.getId());
+            }
+        }
+        List<Long> conPreguntas = new ArrayList<>();
+        for (int desde = 0; desde < ids.size(); desde += LOTE_PREGUNTAS) {
+            var lote = ids.subList(desde, Math.min(desde + LOTE_PREGUNTAS, ids.size()));
+            var preguntas = this.preguntaRepository.findPreguntasPorExamenIds(lote);
+            for (Long id : lote) {
+                var dePreguntas = preguntas.get(id);
+                if (dePreguntas != null && !dePreguntas.isEmpty()) {
+                    conPreguntas.add(id);
+                }
+            }
+        }
+        var nombres = new FiltroBloom(Math.max(CAPACIDAD_MINIMA, (long) trigramas.size() * MARGEN), tasaFalsosPositivos);
+        trigramas.forEach(nombres::agregar);
+        var preguntas = new FiltroBloom(Math.max(CAPACIDAD_MINIMA, (long) conPreguntas.size() * MARGEN), tasaFalsosPositivos);
+        conPreguntas.forEach(preguntas::agregar);
+        return new Filtros(nombres, preguntas);
+    }
+
+    private void agregar(List<Examen> guardados) {
+        synchronized (lock) {
+            guardados.forEach(filtros::agregar);
+            if (guardadosDuranteReconstruccion != null) {
+                guardadosDuranteReconstruccion.addAll(guardados);
+            }
+        }
+    }
+
+    private void agregarConPreguntas(Collection<Long> ids) {
+        synchronized (lock) {
+            ids.forEach(filtros.preguntas::agregar);
+            if (conPreguntasDuranteReconstruccion != null) {
+                conPreguntasDuranteReconstruccion.addAll(ids);
+            }
+        }
+    }
+
+    private boolean nombreAusente(String nombre) {
+        if (nombre == null || nombre.length() < 3) {
+            return false;
+        }
+        consultasNombre.increment();
+        var filtro = filtros.nombres;
+        boolean[] ausente = {false};
+        IndiceNombres.recorrerTrigramas(nombre, clave -> {
+            if (!ausente[0] && !filtro.puedeContener(clave)) {
+                ausente[0] = true;
+            }
+        });
+        if (ausente[0]) {
+            descartadasNombre.increment();
+        }
+        return ausente[0];
+    }
+
+    private void registrarNombre(String nombre, boolean vacio) {
+        if (vacio && nombre != null && nombre.length() >= 3) {
+            falsosPositivosNombre.increment();
+        }
+    }
+
+    private boolean puedeTenerPreguntas(Long id) {
+        if (id == null) {
+            return true;
+        }
+        consultasPreguntas.increment();
+        if (filtros.preguntas.puedeContener(id)) {
+            return true;
+        }
+        descartadasPreguntas.increment();
+        return false;
+    }
+
+    public long getConsultasNombre() {
+        return consultasNombre.sum();
+    }
+
+    public long getDescartadasNombre() {
+        return descartadasNombre.sum();
+    }
+
+    public long getFalsosPositivosNombre() {
+        return falsosPositivosNombre.sum();
+    }
+
+    public double getTasaFalsosPositivosNombre() {
+        return tasa(falsosPositivosNombre.sum(), descartadasNombre.sum());
+    }
+
+    // Tasa esperada por la ocupacion actual del filtro, sin contar los trigramas repartidos en nombres distintos
+    public double getTasaEstimadaNombre() {
+        return filtros.nombres.getTasaEstimada();
+    }
+
+    public long getConsultasPreguntas() {
+        return consultasPreguntas.sum();
+    }
+
+    public long getDescartadasPreguntas() {
+        return descartadasPreguntas.sum();
+    }
+
+    public long getFalsosPositivosPreguntas() {
+        return falsosPositivosPreguntas.sum();
+    }
+
+    public double getTasaFalsosPositivosPreguntas() {
+        return tasa(falsosPositivosPreguntas.sum(), descartadasPreguntas.sum());
+    }
+
+    public double getTasaEstimadaPreguntas() {
+        return filtros.preguntas.getTasaEstimada();
+    }
+
+    public long getReconstrucciones() {
+        return reconstrucciones.sum();
+    }
+
+    public long getFallosReconstruccion() {
+        return fallosReconstruccion.sum();
+    }
+
+    private static double tasa(long falsosPositivos, long descartadas) {
+        long ausentes = falsosPositivos + descartadas;
+        return ausentes == 0 ? 0.0 : (double) falsosPositivos / ausentes;
+    }
+
+    private class ExamenesSincronizados implements ExamenRepository {
+
+        @Override
+        public List<Examen> findAll() {
+            return examenRepository.findAll();
+        }
+
+        @Override
+        public List<Examen> findAll(Long despuesDeId, int limite) {
+            return examenRepository.findAll(despuesDeId, limite);
+        }
+
+        @Override
+        public Optional<Examen> findById(long id) {
+            return examenRepository.findById(id);
+        }
+
+        @Override
+        public Examen save(Examen examen) {
+            agregar(List.of(examen));
+            var guardado = examenRepository.save(examen);
+            if (guardado != null) {
+                agregar(List.of(guardado));
+            }
+            return guardado;
+        }
+
+        @Override
+        public List<Examen> saveAll(List<Examen> examenes) {
+            agregar(examenes);
+            var guardados = examenRepository.saveAll(examenes);
+            agregar(guardados);
+            return guardados;
+        }
+    }
+
+    private final class ExamenesSincronizadosConBusqueda extends ExamenesSincronizados implements BusquedaPorNombre {
+
+        @Override
+        public Optional<Examen> findPrimeroPorNombre(String nombre) {
+            return ((BusquedaPorNombre) examenRepository).findPrimeroPorNombre(nombre);
+        }
+    }
+
+    private final class PreguntasSincronizadas implements PreguntaRepository {
+
+        @Override
+        public List<String> findPreguntasPorExamenId(Long id) {
+            return preguntaRepository.findPreguntasPorExamenId(id);
+        }
+
+        @Override
+        public Map<Long, List<String>> findPreguntasPorExamenIds(Collection<Long> ids) {
+            return preguntaRepository.findPreguntasPorExamenIds(ids);
+        }
+
+        @Override
+        public void guardarVarias(List<String> preguntas) {
+            preguntaRepository.guardarVarias(preguntas);
+        }
+
+        @Override
+        public void guardarPreguntas(Long examenId, List<String> preguntas) {
+            if (examenId != null && !preguntas.isEmpty()) {
+                agregarConPreguntas(List.of(examenId));
+            }
+            preguntaRepository.guardarPreguntas(examenId, preguntas);
+        }
+
+        @Override
+        public void guardarPreguntasDeExamenes(Map<Long, List<String>> preguntasPorExamen) {
+            List<Long> ids = new ArrayList<>(preguntasPorExamen.size());
+            preguntasPorExamen.forEach((id, preguntas) -> {
+                if (id != null && !preguntas.isEmpty()) {
+                    ids.add(id);
+                }
+            });
+            agregarConPreguntas(ids);
+            preguntaRepository.guardarPreguntasDeExamenes(preguntasPorExamen);
+        }
+    }
+
+    private static final class Filtros {
+        private final FiltroBloom nombres;
+        private final FiltroBloom preguntas;
+
+        Filtros(FiltroBloom nombres, FiltroBloom preguntas) {
+            this.nombres = nombres;
+            this.preguntas = preguntas;
+        }
+
+        void agregar(Examen examen) {
+            IndiceNombres.recorrerTrigramas(examen.getNombre(), nombres::agregar);
+            if (examen.getId() != null && !examen.getPreguntas().isEmpty()) {
+                preguntas.agregar(examen.getId());
+            }
+        }
+    }
+}
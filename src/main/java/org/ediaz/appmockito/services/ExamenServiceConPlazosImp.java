@@ -0,0 +1,277 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.concurrencia.Ejecutores;
+import org.ediaz.appmockito.metricas.Histograma;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.ExamenRepository;
+import org.ediaz.appmockito.repositories.PreguntaRepository;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+// ExamenServiceImp con tiempos acotados en findExamenPorNombreConPreguntas:
+// - Plazo por llamada: si la busqueda mas las preguntas superan el plazo se lanza PlazoVencidoException
+// - Hedging: si las preguntas tardan mas que el percentil configurado de las latencias observadas
+//   se envia una segunda consulta y se usa la que responda primero
+// - Prefetch especulativo: mientras se resuelve el nombre se piden las preguntas del examen que
+//   devolvio la misma consulta la ultima vez; si el resultado coincide ya estan en camino
+//
+// Las consultas corren en un pool acotado a maxHilos. Al vencer el plazo, al ganar el hedge o al
+// descartar un prefetch se cancelan las tareas reales del pool con interrupcion, asi una llamada lenta
+// abandonada no sigue ocupando un hilo
+public class ExamenServiceConPlazosImp extends ExamenServiceImp implements AutoCloseable {
+
+    private static final int MUESTRAS_MINIMAS_HEDGE = 20;
+    private static final int MAX_CANDIDATOS = 1024;
+    public static final int MAX_HILOS_POR_DEFECTO = 64;
+
+    private final PreguntaRepository preguntaRepository;
+    private final long plazoNanos;
+    private final double percentilHedge;
+    private final boolean prefetch;
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService planificador =
+            Executors.newSingleThreadScheduledExecutor(Ejecutores.hilosDaemon("hedge-preguntas"));
+    private final Histograma latenciasPreguntas = new Histograma();
+    private final Map<String, Long> candidatos = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_CANDIDATOS;
+        }
+    };
+
+    private final LongAdder llamadas = new LongAdder();
+    private final LongAdder plazosVencidos = new LongAdder();
+    private final LongAdder hedgesEnviados = new LongAdder();
+    private final LongAdder hedgesGanadores = new LongAdder();
+    private final LongAdder prefetchAciertos = new LongAdder();
+    private final LongAdder prefetchFallos = new LongAdder();
+
+    // percentilHedge <= 0 desactiva el hedging
+    public ExamenServiceConPlazosImp(ExamenRepository examenRepository, PreguntaRepository preguntaRepository,
+                                     Duration plazo, double percentilHedge, boolean prefetch) {
+        this(examenRepository, preguntaRepository, plazo, percentilHedge, prefetch, MAX_HILOS_POR_DEFECTO);
+    }
+
+    // Con todos los hilos ocupados las consultas esperan en cola y el plazo sigue corriendo
+    public ExamenServiceConPlazosImp(ExamenRepository examenRepository, PreguntaRepository preguntaRepository,
+                                     Duration plazo, double percentilHedge, boolean prefetch, int maxHilos) {
+        super(examenRepository, preguntaRepository);
+        if (maxHilos <= 0) {
+            throw new IllegalArgumentException("maxHilos debe ser mayor a 0");
+        }
+        this.preguntaRepository = preguntaRepository;
+        this.plazoNanos = plazo.toNanos();
+        this.percentilHedge = percentilHedge;
+        this.prefetch = prefetch;
+        this.executor = new ThreadPoolExecutor(maxHilos, maxHilos, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), Ejecutores.hilosDaemon("plazos-preguntas"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public Examen findExamenPorNombreConPreguntas(String nombre) {
+        llamadas.increment();
+        long limite = System.nanoTime() + plazoNanos;
+        Long candidato = prefetch ? candidato(nombre) : null;
+        var adelantadas = candidato != null ? buscarPreguntas(candidato) : null;
+        var busqueda = enSegundoPlano(() -> this.findExamenPorNombre(nombre));
+
+        // Si la busqueda falla o vence el plazo las preguntas adelantadas se cancelan igual: solo dejan
+        // de ser de este metodo cuando se entregan como resultado
+        boolean entregadas = false;
+        Examen examen;
+        CompletableFuture<List<String>> preguntas;
+        try {
+            var examenOptional = esperar(busqueda, limite);
+            if (examenOptional.isEmpty()) {
+                return null;
+            }
+            examen = examenOptional.orElseThrow();
+            recordar(nombre, examen.getId());
+
+            if (adelantadas != null && candidato.equals(examen.getId())) {
+                prefetchAciertos.increment();
+                preguntas = adelantadas;
+                entregadas = true;
+            } else {
+                preguntas = buscarPreguntas(examen.getId());
+            }
+        } finally {
+            if (!entregadas) {
+                descartar(adelantadas);
+            }
+        }
+        return examen.conPreguntas(esperar(preguntas, limite));
+    }
+
+    // El resultado falla solo cuando fallaron todas las consultas enviadas, un hedge en camino todavia
+    // puede responder aunque la primera haya fallado. Al terminar se cancela la que perdio
+    private CompletableFuture<List<String>> buscarPreguntas(Long id) {
+        var primera = consultarPreguntas(id);
+        long retraso = retrasoHedge();
+        if (retraso < 0) {
+            return primera;
+        }
+        var resultado = new CompletableFuture<List<String>>();
+        var enVuelo = new AtomicInteger(1);
+        var hedge = new AtomicReference<CompletableFuture<List<String>>>();
+        BiConsumer<List<String>, Throwable> alTerminar = (preguntas, error) -> {
+            if (error == null) {
+                resultado.complete(preguntas);
+            } else if (enVuelo.decrementAndGet() == 0) {
+                resultado.completeExceptionally(error);
+            }
+        };
+        primera.whenComplete(alTerminar);
+        var programado = planificador.schedule(() -> {
+            if (resultado.isDone()) {
+                return;
+            }
+            hedgesEnviados.increment();
+            enVuelo.incrementAndGet();
+            var segunda = consultarPreguntas(id);
+            hedge.set(segunda);
+            segunda.whenComplete((preguntas, error) -> {
+                if (error == null && resultado.complete(preguntas)) {
+                    hedgesGanadores.increment();
+                    return;
+                }
+                alTerminar.accept(preguntas, error);
+            });
+        }, retraso, TimeUnit.NANOSECONDS);
+        resultado.whenComplete((preguntas, error) -> {
+            programado.cancel(false);
+            primera.cancel(true);
+            var segunda = hedge.get();
+            if (segunda != null) {
+                segunda.cancel(true);
+            }
+        });
+        return resultado;
+    }
+
+    private CompletableFuture<List<String>> consultarPreguntas(Long id) {
+        return enSegundoPlano(() -> {
+            // Tambien las consultas que fallan o se interrumpen: si solo se midieran las exitosas un
+            // backend que falla lento no subiria el percentil del hedge
+            long inicio = System.nanoTime();
+            try {
+                return preguntaRepository.findPreguntasPorExamenId(id);
+            } finally {
+                latenciasPreguntas.registrar(System.nanoTime() - inicio);
+            }
+        });
+    }
+
+    // CompletableFuture.cancel no interrumpe la tarea que lo completa: se guarda el Future real del pool
+    // y se cancela con interrupcion cuando se cancela el CompletableFuture
+    private <T> CompletableFuture<T> enSegundoPlano(Supplier<T> tarea) {
+        var resultado = new CompletableFuture<T>();
+        Future<?> real = executor.submit(() -> {
+            try {
+                resultado.complete(tarea.get());
+            } catch (Throwable e) {
+                resultado.completeExceptionally(e);
+            }
+        });
+        resultado.whenComplete((valor, error) -> {
+            if (resultado.isCancelled()) {
+                real.cancel(true);
+            }
+        });
+        return resultado;
+    }
+
+    // Hasta tener suficientes muestras no se envian hedges para no duplicar carga sin criterio
+    private long retrasoHedge() {
+        if (percentilHedge <= 0 || latenciasPreguntas.getCantidad() < MUESTRAS_MINIMAS_HEDGE) {
+            return -1;
+        }
+        return latenciasPreguntas.percentil(percentilHedge);
+    }
+
+    private <T> T esperar(CompletableFuture<T> futuro, long limite) {
+        try {
+            return futuro.get(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            plazosVencidos.increment();
+            futuro.cancel(true);
+            throw new PlazoVencidoException("Se supero el plazo de " + TimeUnit.NANOSECONDS.toMillis(plazoNanos) + " ms");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void descartar(CompletableFuture<List<String>> adelantadas) {
+        if (adelantadas != null) {
+            prefetchFallos.increment();
+            adelantadas.cancel(true);
+        }
+    }
+
+    private Long candidato(String nombre) {
+        synchronized (candidatos) {
+            return candidatos.get(nombre);
+        }
+    }
+
+    private void recordar(String nombre, Long id) {
+        synchronized (candidatos) {
+            candidatos.put(nombre, id);
+        }
+    }
+
+    public long getLlamadas() {
+        return llamadas.sum();
+    }
+
+    public long getPlazosVencidos() {
+        return plazosVencidos.sum();
+    }
+
+    public long getHedgesEnviados() {
+        return hedgesEnviados.sum();
+    }
+
+    public long getHedgesGanadores() {
+        return hedgesGanadores.sum();
+    }
+
+    public long getPrefetchAciertos() {
+        return prefetchAciertos.sum();
+    }
+
+    public long getPrefetchFallos() {
+        return prefetchFallos.sum();
+    }
+
+    @Override
+    public void close() {
+        planificador.shutdownNow();
+        executor.shutdownNow();
+    }
+}
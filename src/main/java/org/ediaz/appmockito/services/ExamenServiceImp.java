@@ -1,23 +1,59 @@
 package org.ediaz.appmockito.services;
 
+import org.ediaz.appmockito.indices.DistanciaEdicion;
+import org.ediaz.appmockito.indices.IndicePreguntas;
+import org.ediaz.appmockito.indices.MejoresK;
+import org.ediaz.appmockito.indices.Normalizador;
 import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.BusquedaPorNombre;
 import org.ediaz.appmockito.repositories.ExamenRepository;
 import org.ediaz.appmockito.repositories.PreguntaRepository;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public class ExamenServiceImp implements ExamenService {
 
+    public static final int TAMANIO_LOTE_POR_DEFECTO = 500;
+    private static final Comparator<Candidato> RANKING = Comparator
+            .comparingInt((Candidato c) -> c.coincidencia)
+            .thenComparing(c -> c.examen.getNombre())
+            .thenComparingInt(c -> c.posicion);
+
     private ExamenRepository examenRepository;
     private PreguntaRepository preguntaRepository;
+    private int tamanioLote = TAMANIO_LOTE_POR_DEFECTO;
 
     public ExamenServiceImp(ExamenRepository examenRepository, PreguntaRepository preguntaRepository) {
         this.preguntaRepository = preguntaRepository;
         this.examenRepository = examenRepository;
     }
 
+    // tamanioLote: cuantos examenes escribe guardarExamenes en cada saveAll, como en IngestaExamenes.
+    // Es una fabrica y no un constructor porque @InjectMocks usa el constructor con mas parametros y
+    // no tiene un mock para el int
+    public static ExamenServiceImp conTamanioLote(ExamenRepository examenRepository, PreguntaRepository preguntaRepository,
+                                                  int tamanioLote) {
+        if (tamanioLote <= 0) {
+            throw new IllegalArgumentException("tamanioLote debe ser mayor a 0");
+        }
+        var service = new ExamenServiceImp(examenRepository, preguntaRepository);
+        service.tamanioLote = tamanioLote;
+        return service;
+    }
+
     @Override
     public Optional<Examen> findExamenPorNombre(String nombre) {
+//        Si el repositorio sabe buscar por nombre se evita materializar y recorrer findAll()
+        if (this.examenRepository instanceof BusquedaPorNombre) {
+            return ((BusquedaPorNombre) this.examenRepository).findPrimeroPorNombre(nombre);
+        }
         return this.examenRepository.findAll() // Con mock toma esta ejecucion
                 .stream()
                 .filter(e -> e.getNombre().contains(nombre))
@@ -25,6 +61,23 @@ public class ExamenServiceImp implements ExamenService {
 //        Devuelve optional findFirst que es una representacion del objeto que evita los nulos
     }
 
+    // Recorrido completo con un heap de k elementos: O(n log k). El candidato lleva el examen para que
+    // el comparador no vuelva a buscarlo en findAll() en cada comparacion (con un findAll() perezoso
+    // cada get puede ser una lectura)
+    @Override
+    public List<Examen> findExamenesPorNombre(String nombre, int k) {
+        var mejores = new MejoresK<Candidato>(k, RANKING);
+        int posicion = 0;
+        for (Examen examen : this.examenRepository.findAll()) {
+            int coincidencia = examen.getNombre().indexOf(nombre);
+            if (coincidencia >= 0) {
+                mejores.ofrecer(new Candidato(coincidencia, posicion, examen));
+            }
+            posicion++;
+        }
+        return mejores.resultado().stream().map(c -> c.examen).collect(Collectors.toList());
+    }
+
     @Override
     public Examen findExamenPorNombreConPreguntas(String nombre) {
         var examenOptional = this.findExamenPorNombre(nombre);
@@ -32,16 +85,144 @@ public class ExamenServiceImp implements ExamenService {
         if(examenOptional.isPresent()) { // Si existe la instancia
             examen = examenOptional.orElseThrow(); // Dame la instancia o envia una excepcion
             var preguntas = this.preguntaRepository.findPreguntasPorExamenId(examen.getId());
-            examen.setPreguntas(preguntas);
+            examen = examen.conPreguntas(preguntas); // Copia para no modificar el examen compartido del repositorio
         }
         return examen;
     }
 
+    @Override
+    public List<Examen> findExamenesPorNombreConPreguntas(String nombre) {
+        var examenes = this.buscarTodos(nombre);
+        if (examenes.isEmpty()) {
+            return examenes;
+        }
+//        Todas las preguntas se traen en un solo viaje al repositorio
+        var ids = examenes.stream().map(Examen::getId).collect(Collectors.toList());
+        var preguntas = this.preguntaRepository.findPreguntasPorExamenIds(ids);
+        return examenes.stream()
+                .map(e -> e.conPreguntas(preguntas.getOrDefault(e.getId(), Collections.emptyList())))
+                .collect(Collectors.toList());
+    }
+
+    // Sin indice cada nombre se normaliza y compara en cada llamada
+    @Override
+    public List<Examen> findExamenesPorNombreAproximado(String nombre, int maximaDistancia) {
+        var consulta = Normalizador.normalizar(nombre);
+        List<Map.Entry<Integer, Examen>> encontrados = new ArrayList<>();
+        for (Examen examen : this.examenRepository.findAll()) {
+            int distancia = DistanciaEdicion.enSubcadena(consulta, Normalizador.normalizar(examen.getNombre()), maximaDistancia);
+            if (distancia <= maximaDistancia) {
+                encontrados.add(Map.entry(distancia, examen));
+            }
+        }
+//        List.sort es estable: a igual distancia se respeta el orden de findAll()
+        encontrados.sort(Map.Entry.comparingByKey());
+        return encontrados.stream().map(Map.Entry::getValue).collect(Collectors.toList());
+    }
+
+    // Sin indice se traen las preguntas de todo el catalogo y se revisan una por una
+    @Override
+    public List<Examen> findExamenesPorPregunta(String consulta) {
+        var grupos = IndicePreguntas.analizar(consulta);
+        if (grupos.isEmpty()) {
+            return new ArrayList<>();
+        }
+        var examenes = this.examenRepository.findAll();
+        var ids = examenes.stream().map(Examen::getId).collect(Collectors.toList());
+        var preguntas = this.preguntaRepository.findPreguntasPorExamenIds(ids);
+        return examenes.stream()
+                .filter(e -> IndicePreguntas.coincide(grupos,
+                        IndicePreguntas.terminos(preguntas.getOrDefault(e.getId(), Collections.emptyList()))))
+                .collect(Collectors.toList());
+    }
+
+    protected List<Examen> buscarTodos(String nombre) {
+        return this.examenRepository.findAll()
+                .stream()
+                .filter(e -> e.getNombre().contains(nombre))
+                .collect(Collectors.toList());
+    }
+
+    // Las preguntas se guardan despues del examen, cuando ya se conoce su id: con el id el repositorio
+    // sabe a que examen pertenecen (cache, write-behind, archivo). Si el repositorio de examenes no
+    // asigna id quedan como guardarVarias.
+    // Si falla la escritura de las preguntas el examen ya quedo guardado sin ellas y la excepcion llega
+    // a quien llamo. Guardar de nuevo el mismo examen completa la escritura: save con id reemplaza
     @Override
     public Examen guardarExamen(Examen examen) {
+        var guardado = examenRepository.save(examen);
         if(!examen.getPreguntas().isEmpty()) {
-            preguntaRepository.guardarVarias(examen.getPreguntas());
+            var id = guardado != null && guardado.getId() != null ? guardado.getId() : examen.getId();
+            if (id != null) {
+                preguntaRepository.guardarPreguntas(id, examen.getPreguntas());
+            } else {
+                preguntaRepository.guardarVarias(examen.getPreguntas());
+            }
+        }
+        return guardado;
+    }
+
+    @Override
+    public List<Examen> guardarExamenes(Iterable<Examen> examenes) {
+        List<Examen> guardados = new ArrayList<>();
+        List<Examen> lote = new ArrayList<>(tamanioLote);
+        for (Examen examen : examenes) {
+            lote.add(examen);
+            if (lote.size() == tamanioLote) {
+                guardados.addAll(guardarLote(lote));
+                lote = new ArrayList<>(tamanioLote);
+            }
+        }
+        if (!lote.isEmpty()) {
+            guardados.addAll(guardarLote(lote));
+        }
+        return guardados;
+    }
+
+    // Mismo orden que guardarExamen: primero los examenes del lote y luego todas sus preguntas en una
+    // sola llamada
+    private List<Examen> guardarLote(List<Examen> lote) {
+        var guardados = examenRepository.saveAll(lote);
+        guardarPreguntasDeLote(preguntaRepository, lote, guardados);
+        return guardados;
+    }
+
+    // Preguntas de un lote ya guardado con saveAll: una guardarPreguntasDeExamenes con los ids asignados
+    // y una guardarVarias para las de examenes que quedaron sin id
+    static void guardarPreguntasDeLote(PreguntaRepository preguntaRepository, List<Examen> lote, List<Examen> guardados) {
+        Map<Long, List<String>> porExamen = new LinkedHashMap<>();
+        List<String> sinId = new ArrayList<>();
+        for (int i = 0; i < lote.size(); i++) {
+            var preguntas = lote.get(i).getPreguntas();
+            if (preguntas.isEmpty()) {
+                continue;
+            }
+            var id = i < guardados.size() && guardados.get(i).getId() != null ? guardados.get(i).getId() : lote.get(i).getId();
+            if (id != null) {
+                porExamen.put(id, preguntas);
+            } else {
+                sinId.addAll(preguntas);
+            }
+        }
+        if (!porExamen.isEmpty()) {
+            preguntaRepository.guardarPreguntasDeExamenes(porExamen);
+        }
+        if (!sinId.isEmpty()) {
+            preguntaRepository.guardarVarias(sinId);
+        }
+    }
+
+    // El menor segun RANKING es el mejor: primero donde empieza la coincidencia, luego el nombre y
+    // por ultimo la posicion en findAll()
+    private static final class Candidato {
+        private final int coincidencia;
+        private final int posicion;
+        private final Examen examen;
+
+        private Candidato(int coincidencia, int posicion, Examen examen) {
+            this.coincidencia = coincidencia;
+            this.posicion = posicion;
+            this.examen = examen;
         }
-        return examenRepository.save(examen);
     }
 }
@@ -0,0 +1,186 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.indices.IndiceNombres;
+import org.ediaz.appmockito.indices.IndicePreguntas;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.ConIndicePreguntas;
+import org.ediaz.appmockito.repositories.ExamenRepository;
+import org.ediaz.appmockito.repositories.PreguntaRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+// Igual que ExamenServiceImp pero la busqueda por nombre se resuelve con un indice de trigramas
+// construido una sola vez desde findAll() y actualizado en cada guardarExamen.
+// La busqueda por pregunta usa un indice invertido que se construye en la primera consulta (asi
+// quien no la usa no paga la carga de todas las preguntas) y desde ahi se actualiza al guardar.
+// Con normalizado = true las busquedas por nombre ignoran mayusculas y acentos ("analisis" encuentra
+// "Análisis de datos") y la busqueda aproximada tambien usa el indice.
+// findExamenesPorNombre ademas ordena por popularidad: los examenes pedidos con preguntas suben
+public class ExamenServiceIndexadoImp extends ExamenServiceImp {
+
+    private static final int LOTE_PREGUNTAS = 500;
+
+    private final IndiceNombres indice;
+    private final ExamenRepository examenRepository;
+    private final PreguntaRepository preguntaRepository;
+    private volatile IndicePreguntas indicePreguntas;
+    // Examenes guardados mientras se construye el indice de preguntas, se agregan antes de publicarlo
+    private final Object lockPreguntas = new Object();
+    private List<Examen> guardadosDuranteConstruccion;
+
+    public ExamenServiceIndexadoImp(ExamenRepository examenRepository, PreguntaRepository preguntaRepository) {
+        this(examenRepository, preguntaRepository, false);
+    }
+
+    public ExamenServiceIndexadoImp(ExamenRepository examenRepository, PreguntaRepository preguntaRepository,
+                                    boolean normalizado) {
+        super(examenRepository, preguntaRepository);
+        this.examenRepository = examenRepository;
+        this.preguntaRepository = preguntaRepository;
+        this.indice = new IndiceNombres(examenRepository.findAll(), normalizado);
+    }
+
+    @Override
+    public Optional<Examen> findExamenPorNombre(String nombre) {
+        return this.indice.buscarPrimero(nombre);
+    }
+
+    @Override
+    public List<Examen> findExamenesPorNombre(String nombre, int k) {
+        return this.indice.buscarMejores(nombre, k);
+    }
+
+    // Cada examen devuelto con sus preguntas cuenta como un uso para el ranking de findExamenesPorNombre
+    @Override
+    public Examen findExamenPorNombreConPreguntas(String nombre) {
+        var examen = super.findExamenPorNombreConPreguntas(nombre);
+        if (examen != null && examen.getId() != null) {
+            this.indice.registrarUso(examen.getId());
+        }
+        return examen;
+    }
+
+    @Override
+    protected List<Examen> buscarTodos(String nombre) {
+        return this.indice.buscarTodos(nombre);
+    }
+
+    @Override
+    public List<Examen> findExamenesPorNombreAproximado(String nombre, int maximaDistancia) {
+        if (!this.indice.isNormalizado()) {
+            return super.findExamenesPorNombreAproximado(nombre, maximaDistancia);
+        }
+        return this.indice.buscarAproximado(nombre, maximaDistancia);
+    }
+
+    @Override
+    public List<Examen> findExamenesPorPregunta(String consulta) {
+        return this.indice.buscarPorIds(indicePreguntas().buscar(consulta));
+    }
+
+    // Si el repositorio no devuelve el examen guardado (un mock sin stub devuelve null) se indexa el
+    // que se recibio, igual que ExamenServiceImp usa su id para las preguntas
+    @Override
+    public Examen guardarExamen(Examen examen) {
+        var guardado = super.guardarExamen(examen);
+        indexar(guardado != null ? guardado : examen);
+        return guardado;
+    }
+
+    // Misma regla por posicion que guardarPreguntasDeLote: lo que saveAll no devolvio se toma de la entrada
+    @Override
+    public List<Examen> guardarExamenes(Iterable<Examen> examenes) {
+        List<Examen> entrada = new ArrayList<>();
+        examenes.forEach(entrada::add);
+        var guardados = super.guardarExamenes(entrada);
+        for (int i = 0; i < entrada.size(); i++) {
+            var guardado = i < guardados.size() ? guardados.get(i) : null;
+            indexar(guardado != null ? guardado : entrada.get(i));
+        }
+        return guardados;
+    }
+
+    private void indexar(Examen examen) {
+        this.indice.agregar(examen);
+        indexarPreguntas(examen);
+    }
+
+    private void indexarPreguntas(Examen guardado) {
+        if (guardado.getId() == null) {
+            return;
+        }
+        synchronized (lockPreguntas) {
+            var actual = this.indicePreguntas;
+            if (actual != null) {
+                actual.agregar(guardado.getId(), guardado.getPreguntas());
+            } else if (guardadosDuranteConstruccion != null) {
+                guardadosDuranteConstruccion.add(guardado);
+            }
+        }
+    }
+
+    // Lo guardado despues de que la construccion leyo el repositorio no estaria en el indice, por eso
+    // se registra mientras tanto y se agrega antes de publicarlo
+    private IndicePreguntas indicePreguntas() {
+        var actual = this.indicePreguntas;
+        if (actual != null) {
+            return actual;
+        }
+        synchronized (this) {
+            if (this.indicePreguntas != null) {
+                return this.indicePreguntas;
+            }
+            synchronized (lockPreguntas) {
+                guardadosDuranteConstruccion = new ArrayList<>();
+            }
+            IndicePreguntas nuevo = null;
+            try {
+                nuevo = construirIndicePreguntas();
+            } finally {
+                synchronized (lockPreguntas) {
+                    if (nuevo != null) {
+                        for (Examen guardado : guardadosDuranteConstruccion) {
+                            nuevo.agregar(guardado.getId(), guardado.getPreguntas());
+                        }
+                        this.indicePreguntas = nuevo;
+                    }
+                    guardadosDuranteConstruccion = null;
+                }
+            }
+            return this.indicePreguntas;
+        }
+    }
+
+    // Si el repositorio ya tiene el indice (una instantanea) se usa ese, si no las preguntas se piden
+    // por lotes de ids para no hacer un viaje al repositorio por examen
+    private IndicePreguntas construirIndicePreguntas() {
+        if (preguntaRepository instanceof ConIndicePreguntas) {
+            return ((ConIndicePreguntas) preguntaRepository).indicePreguntas();
+        }
+        var nuevo = new IndicePreguntas();
+        List<Long> lote = new ArrayList<>(LOTE_PREGUNTAS);
+        for (Examen examen : examenRepository.findAll()) {
+            if (examen.getId() != null) {
+                lote.add(examen.getId());
+            }
+            if (lote.size() == LOTE_PREGUNTAS) {
+                indexarLote(nuevo, lote);
+                lote = new ArrayList<>(LOTE_PREGUNTAS);
+            }
+        }
+        if (!lote.isEmpty()) {
+            indexarLote(nuevo, lote);
+        }
+        return nuevo;
+    }
+
+    private void indexarLote(IndicePreguntas nuevo, List<Long> lote) {
+        var preguntas = preguntaRepository.findPreguntasPorExamenIds(lote);
+        for (Long id : lote) {
+            nuevo.agregar(id, preguntas.getOrDefault(id, Collections.emptyList()));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.metricas.Medidor;
+import org.ediaz.appmockito.metricas.Metricas;
+import org.ediaz.appmockito.models.Examen;
+
+import java.util.List;
+import java.util.Optional;
+
+// Decorador que mide latencia, llamadas y errores de cada metodo de ExamenService
+public class ExamenServiceInstrumentado implements ExamenService {
+
+    private final ExamenService delegado;
+    private final Medidor findExamenPorNombre;
+    private final Medidor findExamenesPorNombre;
+    private final Medidor findExamenPorNombreConPreguntas;
+    private final Medidor findExamenesPorNombreConPreguntas;
+    private final Medidor findExamenesPorNombreAproximado;
+    private final Medidor findExamenesPorPregunta;
+    private final Medidor guardarExamen;
+    private final Medidor guardarExamenes;
+
+    private ExamenServiceInstrumentado(ExamenService delegado, Metricas metricas) {
+        this.delegado = delegado;
+        this.findExamenPorNombre = metricas.medidor("examen.service.findExamenPorNombre");
+        this.findExamenesPorNombre = metricas.medidor("examen.service.findExamenesPorNombre");
+        this.findExamenPorNombreConPreguntas = metricas.medidor("examen.service.findExamenPorNombreConPreguntas");
+        this.findExamenesPorNombreConPreguntas = metricas.medidor("examen.service.findExamenesPorNombreConPreguntas");
+        this.findExamenesPorNombreAproximado = metricas.medidor("examen.service.findExamenesPorNombreAproximado");
+        this.findExamenesPorPregunta = metricas.medidor("examen.service.findExamenesPorPregunta");
+        this.guardarExamen = metricas.medidor("examen.service.guardarExamen");
+        this.guardarExamenes = metricas.medidor("examen.service.guardarExamenes");
+    }
+
+    // Con Metricas.NOOP se devuelve el mismo servicio, sin ningun costo extra por llamada
+    public static ExamenService envolver(ExamenService delegado, Metricas metricas) {
+        return metricas == Metricas.NOOP ? delegado : new ExamenServiceInstrumentado(delegado, metricas);
+    }
+
+    @Override
+    public Optional<Examen> findExamenPorNombre(String nombre) {
+        return findExamenPorNombre.medir(() -> delegado.findExamenPorNombre(nombre));
+    }
+
+    @Override
+    public List<Examen> findExamenesPorNombre(String nombre, int k) {
+        return findExamenesPorNombre.medir(() -> delegado.findExamenesPorNombre(nombre, k));
+    }
+
+    @Override
+    public Examen findExamenPorNombreConPreguntas(String nombre) {
+        return findExamenPorNombreConPreguntas.medir(() -> delegado.findExamenPorNombreConPreguntas(nombre));
+    }
+
+    @Override
+    public List<Examen> findExamenesPorNombreConPreguntas(String nombre) {
+        return findExamenesPorNombreConPreguntas.medir(() -> delegado.findExamenesPorNombreConPreguntas(nombre));
+    }
+
+    @Override
+    public List<Examen> findExamenesPorNombreAproximado(String nombre, int maximaDistancia) {
+        return findExamenesPorNombreAproximado.medir(() -> delegado.findExamenesPorNombreAproximado(nombre, maximaDistancia));
+    }
+
+    @Override
+    public List<Examen> findExamenesPorPregunta(String consulta) {
+        return findExamenesPorPregunta.medir(() -> delegado.findExamenesPorPregunta(consulta));
+    }
+
+    @Override
+    public Examen guardarExamen(Examen examen) {
+        return guardarExamen.medir(() -> delegado.guardarExamen(examen));
+    }
+
+    @Override
+    public List<Examen> guardarExamenes(Iterable<Examen> examenes) {
+        return guardarExamenes.medir(() -> delegado.guardarExamenes(examenes));
+    }
+}
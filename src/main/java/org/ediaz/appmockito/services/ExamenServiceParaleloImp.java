@@ -0,0 +1,143 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.BusquedaPorNombre;
+import org.ediaz.appmockito.repositories.ExamenRepository;
+import org.ediaz.appmockito.repositories.PreguntaRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// ExamenServiceImp con findExamenPorNombre recorriendo el catalogo en paralelo cuando no hay indice.
+// La lista se parte en particiones de TAMANIO_PARTICION examenes (el arreglo de referencias de una
+// particion entra en la cache L1/L2) que los hilos toman en orden creciente de un contador comun.
+// La posicion de la primera coincidencia encontrada se comparte: ningun hilo empieza una particion
+// posterior y quien recorre una posterior se detiene al verla, asi el resultado es el mismo primero
+// en orden de lista que el recorrido secuencial aunque otra particion encuentre antes uno mas atras.
+//
+// Por debajo de umbral examenes, con listas sin acceso aleatorio o si el repositorio busca por
+// nombre por su cuenta se usa el camino de ExamenServiceImp
+public class ExamenServiceParaleloImp extends ExamenServiceImp {
+
+    public static final int UMBRAL_POR_DEFECTO = 1 << 16;
+    private static final int TAMANIO_PARTICION = 1 << 13;
+    // Cada cuantos examenes se revisa si otro hilo ya encontro una coincidencia anterior
+    private static final int REVISAR_CADA = 256;
+
+    private final ExamenRepository examenRepository;
+    private final Executor executor;
+    private final int paralelismo;
+    private final int umbral;
+
+    private final LongAdder busquedasParalelas = new LongAdder();
+    private final LongAdder particionesCanceladas = new LongAdder();
+
+    public ExamenServiceParaleloImp(ExamenRepository examenRepository, PreguntaRepository preguntaRepository) {
+        this(examenRepository, preguntaRepository, ForkJoinPool.commonPool(),
+                ForkJoinPool.getCommonPoolParallelism() + 1, UMBRAL_POR_DEFECTO);
+    }
+
+    // paralelismo cuenta al hilo que llama, que tambien recorre particiones: se envian paralelismo - 1
+    // tareas al executor
+    public ExamenServiceParaleloImp(ExamenRepository examenRepository, PreguntaRepository preguntaRepository,
+                                    Executor executor, int paralelismo, int umbral) {
+        super(examenRepository, preguntaRepository);
+        if (paralelismo <= 0) {
+            throw new IllegalArgumentException("paralelismo debe ser mayor a 0");
+        }
+        this.examenRepository = examenRepository;
+        this.executor = executor;
+        this.paralelismo = paralelismo;
+        this.umbral = umbral;
+    }
+
+    @Override
+    public Optional<Examen> findExamenPorNombre(String nombre) {
+        if (this.examenRepository instanceof BusquedaPorNombre || paralelismo == 1) {
+            return super.findExamenPorNombre(nombre);
+        }
+        var examenes = this.examenRepository.findAll();
+        if (examenes.size() < umbral || !(examenes instanceof RandomAccess)) {
+            return examenes.stream()
+                    .filter(e -> e.getNombre().contains(nombre))
+                    .findFirst();
+        }
+        busquedasParalelas.increment();
+        var busqueda = new Busqueda(examenes, nombre);
+        int tareas = Math.min(paralelismo, busqueda.particiones) - 1;
+        var enviadas = new CompletableFuture<?>[tareas];
+        for (int i = 0; i < tareas; i++) {
+            enviadas[i] = CompletableFuture.runAsync(busqueda::recorrer, executor);
+        }
+        busqueda.recorrer();
+        CompletableFuture.allOf(enviadas).join();
+        particionesCanceladas.add(busqueda.particiones - busqueda.completas.get());
+        int primera = busqueda.primera.get();
+        return primera == Integer.MAX_VALUE ? Optional.empty() : Optional.of(examenes.get(primera));
+    }
+
+    public long getBusquedasParalelas() {
+        return busquedasParalelas.sum();
+    }
+
+    // Particiones que se dejaron a medias o sin empezar porque ya habia una coincidencia anterior
+    public long getParticionesCanceladas() {
+        return particionesCanceladas.sum();
+    }
+
+    private final class Busqueda {
+        private final List<Examen> examenes;
+        private final String nombre;
+        private final int particiones;
+        private final AtomicInteger siguiente = new AtomicInteger();
+        private final AtomicInteger primera = new AtomicInteger(Integer.MAX_VALUE);
+        private final AtomicInteger completas = new AtomicInteger();
+
+        Busqueda(List<Examen> examenes, String nombre) {
+            this.examenes = examenes;
+            this.nombre = nombre;
+            this.particiones = (examenes.size() + TAMANIO_PARTICION - 1) / TAMANIO_PARTICION;
+        }
+
+        void recorrer() {
+            int particion;
+            while ((particion = siguiente.getAndIncrement()) < particiones) {
+                int desde = particion * TAMANIO_PARTICION;
+                // Las particiones se toman en orden: si esta ya queda despues de la coincidencia, las demas tambien
+                if (desde >= primera.get()) {
+                    return;
+                }
+                if (recorrerParticion(desde, Math.min(desde + TAMANIO_PARTICION, examenes.size()))) {
+                    completas.incrementAndGet();
+                }
+            }
+        }
+
+        // Devuelve false si se detuvo porque otro hilo encontro una coincidencia anterior
+        private boolean recorrerParticion(int desde, int hasta) {
+            for (int i = desde; i < hasta; i++) {
+                if ((i & (REVISAR_CADA - 1)) == 0 && i >= primera.get()) {
+                    return false;
+                }
+                if (examenes.get(i).getNombre().contains(nombre)) {
+                    registrar(i);
+                    return true;
+                }
+            }
+            return true;
+        }
+
+        private void registrar(int posicion) {
+            int actual;
+            while (posicion < (actual = primera.get()) && !primera.compareAndSet(actual, posicion)) {
+                // otro hilo cambio la primera, se vuelve a comparar
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.ExamenRepository;
+import org.ediaz.appmockito.repositories.PreguntaRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// Ingesta masiva de examenes para importaciones grandes:
+// - Divide la entrada en lotes de tamanioLote
+// - En cada lote guarda los examenes con saveAll y despues sus preguntas con los ids asignados en una
+//   sola guardarPreguntasDeExamenes, igual que guardarExamenes. El paralelismo esta entre lotes: con el
+//   id la cache invalida solo esos examenes, el write-behind las puede leer y el particionado sabe a
+//   que nodo van
+// - Nunca hay mas de maxLotesEnVuelo lotes escribiendose, si se llega al limite el hilo que
+//   lee la entrada espera (backpressure) en lugar de acumular lotes en memoria
+public class IngestaExamenes {
+
+    private final ExamenRepository examenRepository;
+    private final PreguntaRepository preguntaRepository;
+    private final Executor executor;
+    private final int tamanioLote;
+    private final int maxLotesEnVuelo;
+    private final Consumer<ReporteLote> reportes;
+
+    public IngestaExamenes(ExamenRepository examenRepository, PreguntaRepository preguntaRepository,
+                           Executor executor, int tamanioLote, int maxLotesEnVuelo,
+                           Consumer<ReporteLote> reportes) {
+        if (tamanioLote <= 0 || maxLotesEnVuelo <= 0) {
+            throw new IllegalArgumentException("tamanioLote y maxLotesEnVuelo deben ser mayores a 0");
+        }
+        this.examenRepository = examenRepository;
+        this.preguntaRepository = preguntaRepository;
+        this.executor = executor;
+        this.tamanioLote = tamanioLote;
+        this.maxLotesEnVuelo = maxLotesEnVuelo;
+        this.reportes = reportes;
+    }
+
+    // Devuelve cuantos examenes se guardaron, si un lote falla no se envian mas lotes y se
+    // relanza el primer error despues de esperar a los que ya estaban en vuelo
+    public long ingerir(Iterable<Examen> examenes) {
+        var permisos = new Semaphore(maxLotesEnVuelo);
+        var error = new AtomicReference<RuntimeException>();
+        long total = 0;
+        int numero = 0;
+        List<Examen> lote = new ArrayList<>(tamanioLote);
+        for (Examen examen : examenes) {
+            lote.add(examen);
+            if (lote.size() == tamanioLote) {
+                if (!enviar(++numero, lote, permisos, error)) {
+                    break;
+                }
+                total += lote.size();
+                lote = new ArrayList<>(tamanioLote);
+            }
+        }
+        if (!lote.isEmpty() && error.get() == null && enviar(++numero, lote, permisos, error)) {
+            total += lote.size();
+        }
+//        Esperar a que terminen todos los lotes en vuelo
+        permisos.acquireUninterruptibly(maxLotesEnVuelo);
+        if (error.get() != null) {
+            throw error.get();
+        }
+        return total;
+    }
+
+    private boolean enviar(int numero, List<Examen> lote, Semaphore permisos, AtomicReference<RuntimeException> error) {
+        permisos.acquireUninterruptibly();
+        if (error.get() != null) {
+            permisos.release();
+            return false;
+        }
+        long inicio = System.nanoTime();
+        int preguntas = lote.stream().mapToInt(e -> e.getPreguntas().size()).sum();
+
+        CompletableFuture.runAsync(() -> {
+            var guardados = examenRepository.saveAll(lote);
+            ExamenServiceImp.guardarPreguntasDeLote(preguntaRepository, lote, guardados);
+        }, executor).whenComplete((nada, e) -> {
+            try {
+                if (e != null) {
+                    var causa = e instanceof CompletionException ? e.getCause() : e;
+                    error.compareAndSet(null, causa instanceof RuntimeException
+                            ? (RuntimeException) causa : new CompletionException(causa));
+                } else if (reportes != null) {
+                    reportes.accept(new ReporteLote(numero, lote.size(), preguntas, System.nanoTime() - inicio));
+                }
+            } finally {
+                permisos.release();
+            }
+        });
+        return true;
+    }
+
+    public static class ReporteLote {
+        private final int numero;
+        private final int examenes;
+        private final int preguntas;
+        private final long nanos;
+
+        public ReporteLote(int numero, int examenes, int preguntas, long nanos) {
+            this.numero = numero;
+            this.examenes = examenes;
+            this.preguntas = preguntas;
+            this.nanos = nanos;
+        }
+
+        public int getNumero() {
+            return numero;
+        }
+
+        public int getExamenes() {
+            return examenes;
+        }
+
+        public int getPreguntas() {
+            return preguntas;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public double getExamenesPorSegundo() {
+            return nanos == 0 ? 0.0 : examenes * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return "ReporteLote{numero=" + numero + ", examenes=" + examenes + ", preguntas=" + preguntas
+                    + ", ms=" + TimeUnit.NANOSECONDS.toMillis(nanos)
+                    + ", examenesPorSegundo=" + String.format("%.1f", getExamenesPorSegundo()) + '}';
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.ediaz.appmockito.services;
+
+public class PlazoVencidoException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PlazoVencidoException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,137 @@
+package org.ediaz.appmockito.concurrencia;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimiteAdaptativoTest {
+
+    private static final long RAPIDA = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long UMBRAL = 2 * RAPIDA;
+    private static final long LENTA = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final long[] ahora = {0};
+
+    private LimiteAdaptativo crear(int inicial) {
+        return new LimiteAdaptativo(inicial, 1, 10, 2.0, 0.5, () -> ahora[0]);
+    }
+
+    @Test
+    void rechazaAlLlegarAlLimite() {
+        var limite = crear(2);
+
+        assertTrue(limite.intentarAdquirir());
+        assertTrue(limite.intentarAdquirir());
+        assertFalse(limite.intentarAdquirir());
+
+        limite.liberar(RAPIDA, false);
+        assertTrue(limite.intentarAdquirir());
+        assertEquals(2, limite.getEnVuelo());
+    }
+
+    @Test
+    void subeConLlamadasRapidasSoloSiElLimiteSeUsa() {
+        var limite = crear(4);
+
+//        Con una sola llamada a la vez no hay evidencia de que aguante mas
+        for (int i = 0; i < 50; i++) {
+            limite.intentarAdquirir();
+            limite.liberar(RAPIDA, false);
+        }
+        assertEquals(4, limite.getLimite());
+
+//        Usando todo el limite sube de a uno hasta el maximo
+        for (int ronda = 0; ronda < 100; ronda++) {
+            int adquiridos = 0;
+            while (limite.intentarAdquirir()) {
+                adquiridos++;
+            }
+            for (int i = 0; i < adquiridos; i++) {
+                limite.liberar(RAPIDA, false);
+            }
+        }
+        assertEquals(10, limite.getLimite());
+        assertEquals(6, limite.getAumentos());
+    }
+
+    @Test
+    void bajaUnaVezPorVentanaConLlamadasLentasOErrores() {
+        var limite = crear(8);
+        limite.intentarAdquirir();
+        limite.liberar(RAPIDA, false);
+        for (int i = 0; i < 3; i++) {
+            limite.intentarAdquirir();
+        }
+
+//        Dos respuestas lentas juntas cuentan como una sola senial
+        limite.liberar(LENTA, false);
+        limite.liberar(LENTA, false);
+        assertEquals(4, limite.getLimite());
+
+        ahora[0] += UMBRAL;
+        limite.liberar(RAPIDA, true);
+        assertEquals(2, limite.getLimite());
+
+//        Nunca baja del minimo
+        for (int i = 0; i < 5; i++) {
+            ahora[0] += UMBRAL;
+            limite.intentarAdquirir();
+            limite.liberar(LENTA, false);
+        }
+        assertEquals(1, limite.getLimite());
+        assertEquals(0, limite.getEnVuelo());
+    }
+
+    @Test
+    void laLentitudSeMideContraLaLatenciaBaseObservada() {
+        var limite = crear(4);
+        long dosSegundos = TimeUnit.SECONDS.toNanos(2);
+
+//        Given un backend que siempre tarda 2 s, When se usa todo el limite
+        for (int ronda = 0; ronda < 20; ronda++) {
+            int adquiridos = 0;
+            while (limite.intentarAdquirir()) {
+                adquiridos++;
+            }
+            for (int i = 0; i < adquiridos; i++) {
+                limite.liberar(dosSegundos, false);
+            }
+        }
+
+//        Then 2 s es lo normal y el limite sube en vez de colapsar a 1
+        assertEquals(dosSegundos, limite.getLatenciaBaseNanos());
+        assertEquals(0, limite.getDisminuciones());
+        assertEquals(10, limite.getLimite());
+    }
+
+    @Test
+    void laLatenciaBaseSigueAUnCambioPermanenteDelBackend() {
+        var limite = crear(4);
+        assertEquals(-1, limite.getLatenciaBaseNanos());
+        for (int i = 0; i < LimiteAdaptativo.MUESTRAS_VENTANA; i++) {
+            limite.intentarAdquirir();
+            limite.liberar(RAPIDA, false);
+        }
+
+//        Given el backend pasa de 10 ms a 500 ms para siempre
+        long disminucionesAlCambiar = limite.getDisminuciones();
+        for (int i = 0; i < 2 * LimiteAdaptativo.MUESTRAS_VENTANA; i++) {
+            ahora[0] += LENTA;
+            limite.intentarAdquirir();
+            limite.liberar(LENTA, false);
+        }
+        long disminucionesHastaAdaptarse = limite.getDisminuciones() - disminucionesAlCambiar;
+
+//        Then tras dos ventanas la base es la nueva latencia y deja de bajar el limite
+        assertEquals(LENTA, limite.getLatenciaBaseNanos());
+        assertTrue(disminucionesHastaAdaptarse > 0);
+        for (int i = 0; i < 50; i++) {
+            ahora[0] += LENTA;
+            limite.intentarAdquirir();
+            limite.liberar(LENTA, false);
+        }
+        assertEquals(disminucionesAlCambiar + disminucionesHastaAdaptarse, limite.getDisminuciones());
+    }
+}
@@ -0,0 +1,209 @@
+package org.ediaz.appmockito.eventos;
+
+import org.ediaz.appmockito.indices.IndiceNombres;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.BusquedaPorNombre;
+import org.ediaz.appmockito.repositories.ExamenRepositoryConEventos;
+import org.ediaz.appmockito.repositories.ExamenRepositoryConcurrente;
+import org.ediaz.appmockito.repositories.ExamenRepositoryImp;
+import org.ediaz.appmockito.repositories.PreguntaRepository;
+import org.ediaz.appmockito.repositories.PreguntaRepositoryCache;
+import org.ediaz.appmockito.repositories.PreguntaRepositoryConEventos;
+import org.ediaz.appmockito.services.ExamenServiceImp;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BusCambiosTest {
+
+    private static final Duration PLAZO = Duration.ofSeconds(5);
+
+    @Mock
+    private PreguntaRepository preguntaRepository;
+
+    @Test
+    void losEventosLleganEnOrdenYEnLotes() throws InterruptedException {
+        try (var bus = new BusCambios()) {
+            var service = new ExamenServiceImp(ExamenRepositoryConEventos.envolver(new ExamenRepositoryConcurrente(), bus),
+                    new PreguntaRepositoryConEventos(preguntaRepository, bus));
+            List<EventoCambio> recibidos = Collections.synchronizedList(new ArrayList<>());
+            var suscripcion = bus.suscribir("prueba", 4, recibidos::addAll);
+
+//            When se guardan 10 examenes con preguntas
+            for (long id = 1; id <= 10; id++) {
+                var examen = new Examen(id, "Examen " + id);
+                examen.setPreguntas(List.of("pregunta " + id));
+                service.guardarExamen(examen);
+            }
+
+//            Then por cada guardarExamen llegan el examen y despues sus preguntas, sin huecos
+            assertTrue(suscripcion.esperar(bus.getUltimaSecuencia(), PLAZO));
+            assertEquals(20, recibidos.size());
+            for (int i = 0; i < recibidos.size(); i++) {
+                assertEquals(i + 1, recibidos.get(i).getSecuencia());
+            }
+            assertEquals(EventoCambio.Tipo.EXAMEN, recibidos.get(0).getTipo());
+            assertEquals(1L, recibidos.get(0).getExamenId());
+            assertEquals(EventoCambio.Tipo.PREGUNTAS, recibidos.get(1).getTipo());
+            assertEquals(List.of("pregunta 1"), recibidos.get(1).getPreguntas());
+            assertEquals(1L, recibidos.get(1).getExamenId());
+            assertTrue(suscripcion.getLotes() >= 5);
+            assertEquals(0, suscripcion.getRetraso());
+        }
+    }
+
+    @Test
+    void elIndiceSeActualizaSinRecargarElCatalogo() throws InterruptedException {
+        var concurrente = new ExamenRepositoryConcurrente(List.of(new Examen(1L, "Matematicas"), new Examen(2L, "Lenguaje")));
+        try (var bus = new BusCambios()) {
+            var repositorio = ExamenRepositoryConEventos.envolver(concurrente, bus);
+//            El decorador conserva la busqueda por nombre del delegado, y no la inventa si no la tiene
+            assertTrue(repositorio instanceof BusquedaPorNombre);
+            assertFalse(ExamenRepositoryConEventos.envolver(new ExamenRepositoryImp(), bus) instanceof BusquedaPorNombre);
+            var indice = new IndiceNombres(repositorio.findAll());
+            var suscripcion = bus.suscribir("indice", 64, lote -> lote.stream()
+                    .filter(e -> e.getTipo() == EventoCambio.Tipo.EXAMEN)
+                    .forEach(e -> indice.agregar(e.getExamen())));
+
+            repositorio.save(new Examen(2L, "Historia"));
+            repositorio.saveAll(List.of(new Examen(3L, "Quimica")));
+
+            assertTrue(suscripcion.esperar(bus.getUltimaSecuencia(), PLAZO));
+            assertEquals(2L, indice.buscarPrimero("Historia").orElseThrow().getId());
+            assertTrue(indice.buscarPrimero("Lenguaje").isEmpty());
+            assertEquals(3L, indice.buscarPrimero("Quimica").orElseThrow().getId());
+        }
+    }
+
+    @Test
+    void reanudarDesdeLaUltimaSecuenciaProcesada() throws InterruptedException {
+        try (var bus = new BusCambios()) {
+            List<Long> primera = Collections.synchronizedList(new ArrayList<>());
+            var suscripcion = bus.suscribir("indice", 1, 8, lote -> lote.forEach(e -> primera.add(e.getSecuencia())));
+            for (long id = 1; id <= 5; id++) {
+                bus.publicarExamen(new Examen(id, "Examen " + id));
+            }
+            assertTrue(suscripcion.esperar(5, PLAZO));
+            suscripcion.close();
+            long procesado = suscripcion.getProcesadoHasta();
+
+//            When se sigue escribiendo con el suscriptor detenido
+            for (long id = 6; id <= 8; id++) {
+                bus.publicarExamen(new Examen(id, "Examen " + id));
+            }
+
+//            Then al reanudar solo recibe lo que falto
+            List<Long> segunda = Collections.synchronizedList(new ArrayList<>());
+            var reanudada = bus.suscribir("indice", procesado + 1, 8, lote -> lote.forEach(e -> segunda.add(e.getSecuencia())));
+            assertTrue(reanudada.esperar(8, PLAZO));
+            assertEquals(List.of(1L, 2L, 3L, 4L, 5L), primera);
+            assertEquals(List.of(6L, 7L, 8L), segunda);
+            assertThrows(IllegalArgumentException.class, () -> bus.suscribir("futuro", 20, 8, lote -> {
+            }));
+        }
+    }
+
+    @Test
+    void eventosSobrescritosSeAvisanParaReconstruir() throws InterruptedException {
+        try (var bus = new BusCambios(4, 1)) {
+            for (long id = 1; id <= 10; id++) {
+                bus.publicarExamen(new Examen(id, "Examen " + id));
+            }
+            assertEquals(7, bus.getPrimeraDisponible());
+
+//            Un suscriptor que sabe reconstruir sigue con lo que queda en el anillo
+            List<String> avisos = Collections.synchronizedList(new ArrayList<>());
+            var reconstruye = bus.suscribir("reconstruye", 1, 8, new SuscriptorCambios() {
+                @Override
+                public void procesar(List<EventoCambio> lote) {
+                    lote.forEach(e -> avisos.add("evento " + e.getSecuencia()));
+                }
+
+                @Override
+                public void eventosPerdidos(long desde, long hasta) {
+                    avisos.add("perdidos " + desde + "-" + hasta);
+                }
+            });
+            assertTrue(reconstruye.esperar(10, PLAZO));
+            assertEquals(List.of("perdidos 1-6", "evento 7", "evento 8", "evento 9", "evento 10"), avisos);
+            assertEquals(6, reconstruye.getPerdidos());
+
+//            Por defecto perder eventos detiene la suscripcion con error
+            var porDefecto = bus.suscribir("por-defecto", 1, 8, lote -> {
+            });
+            assertFalse(porDefecto.esperar(10, PLAZO));
+            assertEquals(IllegalStateException.class, porDefecto.getError().getClass());
+            assertEquals(0, porDefecto.getProcesadoHasta());
+        }
+    }
+
+    @Test
+    void unErrorGraveDelSuscriptorDetieneLaSuscripcionConError() {
+        try (var bus = new BusCambios()) {
+            var suscripcion = bus.suscribir("falla", 8, lote -> {
+                throw new OutOfMemoryError("simulado");
+            });
+
+            long secuencia = bus.publicarPreguntas(1L, List.of("pregunta"));
+
+//            Then esperar no agota el plazo: se entera de que el hilo termino
+            assertTimeoutPreemptively(Duration.ofSeconds(2), () -> assertFalse(suscripcion.esperar(secuencia, PLAZO)));
+            assertEquals(OutOfMemoryError.class, suscripcion.getError().getClass());
+            assertEquals(0, suscripcion.getProcesadoHasta());
+        }
+    }
+
+    @Test
+    void cacheInvalidadaPorEscriturasDeOtraInstancia() throws InterruptedException {
+        when(preguntaRepository.findPreguntasPorExamenId(1L)).thenReturn(List.of("vieja")).thenReturn(List.of("nueva"));
+        var cache = new PreguntaRepositoryCache(preguntaRepository, 100, Duration.ofHours(1));
+        try (var bus = new BusCambios()) {
+            var suscripcion = bus.suscribir("cache", 16, cache.invalidador());
+            assertEquals(List.of("vieja"), cache.findPreguntasPorExamenId(1L));
+
+//            When otra instancia escribe sin pasar por la cache
+            new PreguntaRepositoryConEventos(preguntaRepository, bus).guardarPreguntas(1L, List.of("nueva"));
+
+//            Then la cache deja de devolver lo viejo
+            assertTrue(suscripcion.esperar(bus.getUltimaSecuencia(), PLAZO));
+            assertEquals(List.of("nueva"), cache.findPreguntasPorExamenId(1L));
+            verify(preguntaRepository, times(2)).findPreguntasPorExamenId(1L);
+        }
+    }
+
+    @Test
+    void guardarPorElServicioSoloInvalidaLosExamenesEscritos() throws InterruptedException {
+        when(preguntaRepository.findPreguntasPorExamenId(1L)).thenReturn(List.of("vieja")).thenReturn(List.of("nueva"));
+        when(preguntaRepository.findPreguntasPorExamenId(2L)).thenReturn(List.of("intacta"));
+        var cache = new PreguntaRepositoryCache(preguntaRepository, 100, Duration.ofHours(1));
+        try (var bus = new BusCambios()) {
+            var suscripcion = bus.suscribir("cache", 16, cache.invalidador());
+            cache.findPreguntasPorExamenId(1L);
+            cache.findPreguntasPorExamenId(2L);
+
+//            When otra instancia del servicio guarda el examen 1 con preguntas
+            var otra = new ExamenServiceImp(ExamenRepositoryConEventos.envolver(new ExamenRepositoryConcurrente(), bus),
+                    new PreguntaRepositoryConEventos(preguntaRepository, bus));
+            var examen = new Examen(1L, "Matematicas");
+            examen.setPreguntas(List.of("nueva"));
+            otra.guardarExamen(examen);
+
+//            Then el evento lleva el id y solo se invalida esa entrada
+            assertTrue(suscripcion.esperar(bus.getUltimaSecuencia(), PLAZO));
+            assertEquals(1, cache.tamanio());
+            assertEquals(List.of("nueva"), cache.findPreguntasPorExamenId(1L));
+            assertEquals(List.of("intacta"), cache.findPreguntasPorExamenId(2L));
+            verify(preguntaRepository, times(1)).findPreguntasPorExamenId(2L);
+        }
+    }
+}
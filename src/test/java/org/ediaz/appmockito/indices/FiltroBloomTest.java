@@ -0,0 +1,27 @@
+package org.ediaz.appmockito.indices;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FiltroBloomTest {
+
+    @Test
+    void sinFalsosNegativosYConLaTasaPedida() {
+        var filtro = new FiltroBloom(10_000, 0.01);
+        for (long i = 0; i < 10_000; i++) {
+            filtro.agregar(i * 31);
+        }
+
+        int falsosPositivos = 0;
+        for (long i = 0; i < 10_000; i++) {
+            assertTrue(filtro.puedeContener(i * 31));
+            if (filtro.puedeContener(i * 31 + 1)) {
+                falsosPositivos++;
+            }
+        }
+//        1% esperado, se deja margen para la variacion
+        assertTrue(falsosPositivos < 200, "falsos positivos: " + falsosPositivos);
+        assertEquals(0.01, filtro.getTasaEstimada(), 0.005);
+    }
+}
@@ -0,0 +1,55 @@
+package org.ediaz.appmockito.indices;
+
+import org.ediaz.appmockito.Datos;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndicePreguntasTest {
+
+    private IndicePreguntas indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndicePreguntas();
+        indice.agregar(3L, List.of("Calcular integrales", "derivadas parciales"));
+        indice.agregar(1L, Datos.PREGUNTAS);
+        indice.agregar(-2L, List.of("Integrales dobles"));
+    }
+
+    @Test
+    void consultasAndYOr() {
+        assertArrayEquals(new long[]{-2L, 1L, 3L}, indice.buscar("integrales"));
+        assertArrayEquals(new long[]{1L, 3L}, indice.buscar("integrales derivadas"));
+        assertArrayEquals(new long[]{-2L, 1L}, indice.buscar("dobles OR aritmetica"));
+        assertArrayEquals(new long[]{-2L, 3L}, indice.buscar("dobles OR calcular derivadas"));
+        assertArrayEquals(new long[0], indice.buscar("integrales redes"));
+        assertArrayEquals(new long[0], indice.buscar("  "));
+    }
+
+    @Test
+    void reemplazarPreguntasQuitaLosTerminosAnteriores() {
+        indice.agregar(3L, List.of("Redes"));
+
+        assertArrayEquals(new long[]{-2L, 1L}, indice.buscar("integrales"));
+        assertArrayEquals(new long[]{3L}, indice.buscar("redes"));
+        assertArrayEquals(new long[0], indice.buscar("parciales"));
+    }
+
+    @Test
+    void listasComprimidasConIdsConsecutivos() {
+        var grande = new IndicePreguntas();
+        for (long id = 1; id <= 10_000; id++) {
+            grande.agregar(id, List.of(id % 2 == 0 ? "pares" : "impares", "todos"));
+        }
+
+        assertEquals(5_000, grande.buscar("pares").length);
+        assertEquals(0, grande.buscar("pares impares").length);
+        assertEquals(10_000, grande.buscar("pares OR impares").length);
+//        Deltas de 1 o 2 ocupan un byte por id en lugar de los 8 de un long
+        assertTrue(grande.getBytesPostings() <= 20_010, "bytes " + grande.getBytesPostings());
+    }
+}
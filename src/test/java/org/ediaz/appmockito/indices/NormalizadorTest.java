@@ -0,0 +1,26 @@
+package org.ediaz.appmockito.indices;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NormalizadorTest {
+
+    @Test
+    void normalizar() {
+        assertEquals("analisis de senales", Normalizador.normalizar("Análisis de Señales"));
+        assertEquals("pinguino", Normalizador.normalizar("PINGÜINO"));
+        assertEquals("marcos de desarrollo", Normalizador.normalizar("Marcos de desarrollo"));
+        assertNull(Normalizador.normalizar(null));
+    }
+
+    @Test
+    void distanciaEnSubcadena() {
+        assertEquals(0, DistanciaEdicion.enSubcadena("datos", "analisis de datos", 2));
+        assertEquals(1, DistanciaEdicion.enSubcadena("dtos", "analisis de datos", 2));
+        assertEquals(2, DistanciaEdicion.enSubcadena("analsis dee", "analisis de datos", 2));
+//        Mas alla del maximo se devuelve maximo + 1
+        assertEquals(3, DistanciaEdicion.enSubcadena("redes", "analisis de datos", 2));
+        assertEquals(0, DistanciaEdicion.enSubcadena("", "lo que sea", 2));
+    }
+}
@@ -0,0 +1,44 @@
+package org.ediaz.appmockito.metricas;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramaTest {
+
+    @Test
+    void percentilesConErrorRelativoAcotado() {
+        var histograma = new Histograma();
+        for (long valor = 1; valor <= 100_000; valor++) {
+            histograma.registrar(valor * 1_000); // de 1 us a 100 ms en nanosegundos
+        }
+        assertEquals(100_000, histograma.getCantidad());
+        assertEquals(100_000_000L, histograma.getMaximo());
+        assertCercano(50_000_000L, histograma.percentil(0.5));
+        assertCercano(99_000_000L, histograma.percentil(0.99));
+        assertCercano(99_900_000L, histograma.percentil(0.999));
+    }
+
+    @Test
+    void valoresPequeniosSonExactos() {
+        var histograma = new Histograma();
+        for (int i = 0; i < 32; i++) {
+            assertEquals(i, Histograma.limiteSuperior(Histograma.indice(i)));
+        }
+        histograma.registrar(3);
+        assertEquals(3, histograma.percentil(0.5));
+    }
+
+    @Test
+    void limiteSuperiorContieneAlValor() {
+        for (long valor = 32; valor < 10_000_000; valor = valor * 3 / 2 + 1) {
+            int indice = Histograma.indice(valor);
+            assertTrue(Histograma.limiteSuperior(indice) >= valor);
+            assertTrue(indice == 0 || Histograma.limiteSuperior(indice - 1) < valor);
+        }
+    }
+
+    private static void assertCercano(long esperado, long obtenido) {
+        assertTrue(Math.abs(obtenido - esperado) <= esperado / 32, "Esperado " + esperado + " obtenido " + obtenido);
+    }
+}
@@ -0,0 +1,51 @@
+package org.ediaz.appmockito.models;
+
+import org.ediaz.appmockito.Datos;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiccionarioPreguntasTest {
+
+    @Test
+    void cadaPreguntaDistintaSeGuardaUnaVez() {
+        var diccionario = new DiccionarioPreguntas();
+        List<String> copias = new ArrayList<>();
+        Datos.PREGUNTAS.forEach(p -> copias.add(new String(p)));
+
+        var primera = diccionario.codificar(Datos.PREGUNTAS);
+        var segunda = diccionario.codificar(copias);
+
+        assertEquals(Datos.PREGUNTAS, primera);
+        assertEquals(Datos.PREGUNTAS, segunda);
+        assertEquals(5, diccionario.tamanio());
+//        Las copias se resuelven a la misma instancia del diccionario
+        assertSame(primera.get(2), segunda.get(2));
+        assertSame(primera, diccionario.codificar(primera));
+    }
+
+    @Test
+    void listaCodificadaEsInmutable() {
+        var preguntas = new DiccionarioPreguntas().codificar(Datos.PREGUNTAS);
+
+        assertThrows(UnsupportedOperationException.class, () -> preguntas.add("otra"));
+        assertThrows(UnsupportedOperationException.class, () -> preguntas.set(0, "otra"));
+        assertTrue(new DiccionarioPreguntas().codificar(List.of()).isEmpty());
+    }
+
+    @Test
+    void masDe65536PreguntasUsaIdsDe4Bytes() {
+        var diccionario = new DiccionarioPreguntas();
+        for (int i = 0; i < 70_000; i++) {
+            diccionario.codificar("pregunta " + i);
+        }
+
+        var preguntas = diccionario.codificar(List.of("pregunta 3", "pregunta 69999", "nueva"));
+
+        assertEquals(List.of("pregunta 3", "pregunta 69999", "nueva"), preguntas);
+        assertEquals(70_000, preguntas.id(2));
+    }
+}
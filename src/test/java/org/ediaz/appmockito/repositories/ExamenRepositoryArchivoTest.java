@@ -0,0 +1,222 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.Datos;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.services.ExamenServiceImp;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExamenRepositoryArchivoTest {
+
+    @TempDir
+    Path directorio;
+
+    private static Examen examen(long id, String nombre, String... preguntas) {
+        var examen = new Examen(id, nombre);
+        examen.setPreguntas(List.of(preguntas));
+        return examen;
+    }
+
+    @Test
+    void guardarYLeer() {
+        try (var repository = new ExamenRepositoryArchivo(directorio.resolve("examenes.log"))) {
+            repository.save(examen(1L, "Análisis de datos", "integrales", "derivadas"));
+            repository.save(examen(2L, "Seguridad de ti"));
+
+            assertEquals(2, repository.findAll().size());
+            assertEquals("Análisis de datos", repository.findById(1L).orElseThrow().getNombre());
+            assertEquals(List.of("integrales", "derivadas"), repository.findPreguntasPorExamenId(1L));
+            assertTrue(repository.findPreguntasPorExamenId(3L).isEmpty());
+        }
+    }
+
+    @Test
+    void reabrirConYSinIndice() throws Exception {
+        var archivo = directorio.resolve("examenes.log");
+        try (var repository = new ExamenRepositoryArchivo(archivo)) {
+            repository.save(examen(1L, "Analisis de datos", "integrales"));
+            repository.save(examen(2L, "Seguridad de ti"));
+        }
+        try (var repository = new ExamenRepositoryArchivo(archivo)) {
+            assertEquals(2, repository.findAll().size());
+//            Lo que se escribe despues del indice guardado se recupera recorriendo el log
+            repository.save(examen(3L, "Marcos de desarrollo", "ecuaciones"));
+            repository.flush();
+        }
+        Files.delete(archivo.resolveSibling("examenes.log.idx"));
+        try (var repository = new ExamenRepositoryArchivo(archivo)) {
+            assertEquals(List.of(1L, 2L, 3L), repository.findAll().stream().map(Examen::getId).toList());
+            assertEquals(List.of("ecuaciones"), repository.findPreguntasPorExamenId(3L));
+        }
+    }
+
+    @Test
+    void registroCortadoMarcaElFinalDelLog() throws Exception {
+        var archivo = directorio.resolve("examenes.log");
+        long finPrimero;
+        try (var repository = new ExamenRepositoryArchivo(archivo)) {
+            repository.save(examen(1L, "Analisis de datos"));
+            finPrimero = repository.getTamanioLog();
+            repository.save(examen(2L, "Seguridad de ti"));
+        }
+        Files.delete(archivo.resolveSibling("examenes.log.idx"));
+//        Se corrompe un byte del segundo registro para simular una escritura incompleta
+        try (var raf = new RandomAccessFile(archivo.toFile(), "rw")) {
+            raf.seek(finPrimero + 20);
+            raf.write(0x7F);
+        }
+        try (var repository = new ExamenRepositoryArchivo(archivo)) {
+            assertEquals(1, repository.findAll().size());
+            repository.save(examen(3L, "Marcos de desarrollo"));
+            assertEquals(List.of(1L, 3L), repository.findAll().stream().map(Examen::getId).toList());
+        }
+    }
+
+    @Test
+    void compactarConservaUltimaVersion() {
+        var archivo = directorio.resolve("examenes.log");
+        try (var repository = new ExamenRepositoryArchivo(archivo)) {
+            for (int i = 0; i < 100; i++) {
+                repository.save(examen(1L, "Analisis " + i, "pregunta " + i));
+                repository.save(examen(2L, "Seguridad " + i));
+            }
+            long antes = repository.getTamanioLog();
+            assertTrue(repository.getProporcionBasura() > 0.9);
+
+            repository.compactar();
+
+            assertTrue(repository.getTamanioLog() < antes / 50);
+            assertEquals(0.0, repository.getProporcionBasura());
+            assertEquals("Analisis 99", repository.findById(1L).orElseThrow().getNombre());
+            assertEquals(List.of("pregunta 99"), repository.findPreguntasPorExamenId(1L));
+            repository.save(examen(3L, "Marcos"));
+        }
+        try (var repository = new ExamenRepositoryArchivo(archivo)) {
+            assertEquals(List.of(1L, 2L, 3L), repository.findAll().stream().map(Examen::getId).toList());
+        }
+    }
+
+    //    El mismo archivo sirve como ambos repositorios del servicio
+    @Test
+    void servicioSobreArchivo() {
+        try (var repository = new ExamenRepositoryArchivo(directorio.resolve("examenes.log"))) {
+            var service = new ExamenServiceImp(repository, repository);
+            var nuevo = new Examen(4L, "Desarrollo de sistemas");
+            nuevo.setPreguntas(Datos.PREGUNTAS);
+            service.guardarExamen(nuevo);
+
+            var examen = service.findExamenPorNombreConPreguntas("sistemas");
+            assertEquals(4L, examen.getId());
+            assertEquals(Datos.PREGUNTAS, examen.getPreguntas());
+        }
+    }
+
+    @Test
+    void guardarPreguntasAgregaUnRegistro() {
+        var archivo = directorio.resolve("examenes.log");
+        try (var repository = new ExamenRepositoryArchivo(archivo)) {
+            repository.save(examen(1L, "Analisis de datos"));
+            repository.guardarPreguntas(1L, List.of("integrales"));
+            long tamanio = repository.getTamanioLog();
+
+//            Las mismas preguntas no escriben otro registro
+            repository.guardarPreguntas(1L, List.of("integrales"));
+            assertEquals(tamanio, repository.getTamanioLog());
+            assertThrows(IllegalArgumentException.class, () -> repository.guardarPreguntas(2L, List.of("sin examen")));
+        }
+        try (var repository = new ExamenRepositoryArchivo(archivo)) {
+            assertEquals(List.of("integrales"), repository.findPreguntasPorExamenId(1L));
+            assertEquals("Analisis de datos", repository.findById(1L).orElseThrow().getNombre());
+        }
+    }
+
+    //    Con write-behind delante las preguntas llegan al archivo despues del examen
+    @Test
+    void servicioConPreguntasDiferidas() {
+        var archivo = directorio.resolve("examenes.log");
+        try (var repository = new ExamenRepositoryArchivo(archivo);
+             var diferido = new PreguntaRepositoryDiferido(repository, 100, 100, Duration.ofMinutes(1))) {
+            var service = new ExamenServiceImp(repository, diferido);
+            var nuevo = new Examen(4L, "Desarrollo de sistemas");
+            nuevo.setPreguntas(Datos.PREGUNTAS);
+            service.guardarExamen(nuevo);
+            var editado = new Examen(4L, "Desarrollo de sistemas");
+            editado.setPreguntas(List.of("arquitectura"));
+            service.guardarExamen(editado);
+
+//            Antes de vaciar el buffer ya se lee lo ultimo escrito
+            assertEquals(List.of("arquitectura"), service.findExamenPorNombreConPreguntas("sistemas").getPreguntas());
+        }
+        try (var repository = new ExamenRepositoryArchivo(archivo)) {
+            assertEquals(List.of("arquitectura"), repository.findPreguntasPorExamenId(4L));
+        }
+    }
+
+    @Test
+    void findAllPerezosoYPaginado() {
+        try (var repository = new ExamenRepositoryArchivo(directorio.resolve("examenes.log"))) {
+            for (long id = 1; id <= 10; id++) {
+                repository.save(examen(id, "Examen " + id));
+            }
+            var todos = repository.findAll();
+            repository.save(examen(3L, "Renombrado"));
+//            La vista es una foto del momento en que se pidio
+            assertEquals("Examen 3", todos.get(2).getNombre());
+            assertEquals(List.of(4L, 5L, 6L), repository.findAll(3L, 3).stream().map(Examen::getId).toList());
+            assertTrue(repository.findAll(99L, 3).isEmpty());
+
+            repository.compactar();
+            assertThrows(ConcurrentModificationException.class, () -> todos.get(0));
+            assertEquals("Renombrado", repository.findAll(2L, 1).get(0).getNombre());
+        }
+    }
+
+    @Test
+    void compactacionFallidaNoDejaElRepositorioInutilizable() throws Exception {
+        var archivo = directorio.resolve("examenes.log");
+        var indice = archivo.resolveSibling("examenes.log.idx");
+        try (var repository = new ExamenRepositoryArchivo(archivo)) {
+            repository.save(examen(1L, "Analisis", "integrales"));
+            repository.save(examen(1L, "Analisis de datos", "integrales"));
+
+//            Given un directorio no vacio donde va el indice: el reemplazo del log falla
+            Files.createDirectory(indice);
+            Files.createFile(indice.resolve("ocupado"));
+            assertThrows(UncheckedIOException.class, repository::compactar);
+
+//            Then el log viejo sigue en uso, incluso para escribir y crecer
+            assertEquals("Analisis de datos", repository.findById(1L).orElseThrow().getNombre());
+            for (long id = 2; id <= 20_000; id++) {
+                repository.save(examen(id, "Examen " + id, "pregunta " + id));
+            }
+            assertEquals(List.of("pregunta 20000"), repository.findPreguntasPorExamenId(20_000L));
+
+//            Los fallos de la compactacion periodica no la detienen
+            repository.compactarPeriodicamente(Duration.ofMillis(10), 0.0);
+            repository.compactarPeriodicamente(Duration.ofMillis(10), 0.0);
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                while (repository.getFallosCompactacion() < 3) {
+                    TimeUnit.MILLISECONDS.sleep(5);
+                }
+            });
+
+//            Sin el obstaculo la siguiente compactacion programada puede reemplazar el directorio
+            Files.delete(indice.resolve("ocupado"));
+            Files.deleteIfExists(indice);
+        }
+        try (var repository = new ExamenRepositoryArchivo(archivo)) {
+            assertEquals(20_000, repository.findAll().size());
+        }
+    }
+}
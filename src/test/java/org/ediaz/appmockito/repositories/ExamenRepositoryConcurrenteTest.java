@@ -0,0 +1,190 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.Datos;
+import org.ediaz.appmockito.models.DiccionarioPreguntas;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.models.PreguntasCodificadas;
+import org.ediaz.appmockito.services.ExamenServiceImp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ExamenRepositoryConcurrenteTest {
+
+    private static final int ESCRITORES = 8;
+    private static final int LECTORES = 4;
+    private static final int EXAMENES_POR_ESCRITOR = 3_000;
+    private static final int INCREMENTOS_POR_ESCRITOR = 500;
+
+    private ExamenRepositoryConcurrente repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new ExamenRepositoryConcurrente(Datos.EXAMENES);
+    }
+
+    @Test
+    void devuelveVistasInmutables() {
+        var examen = repository.findById(1L).orElseThrow();
+
+        assertThrows(UnsupportedOperationException.class, () -> examen.setNombre("otro"));
+        assertThrows(UnsupportedOperationException.class, () -> examen.setPreguntas(Datos.PREGUNTAS));
+        assertThrows(UnsupportedOperationException.class, () -> examen.getPreguntas().add("otra"));
+        assertThrows(UnsupportedOperationException.class, () -> repository.findAll().set(0, examen));
+    }
+
+    @Test
+    void hidratarNoModificaElExamenCompartido() {
+        PreguntaRepository preguntaRepository = mock(PreguntaRepository.class);
+        when(preguntaRepository.findPreguntasPorExamenId(anyLong())).thenReturn(Datos.PREGUNTAS);
+        var service = new ExamenServiceImp(repository, preguntaRepository);
+
+        var examen = service.findExamenPorNombreConPreguntas("Analisis");
+
+        assertEquals(5, examen.getPreguntas().size());
+        assertTrue(repository.findById(1L).orElseThrow().getPreguntas().isEmpty());
+    }
+
+    @Test
+    void saveSinIdAsignaUnoNuevoYConIdReemplaza() {
+        var nuevo = repository.save(new Examen(null, "Redes"));
+        repository.save(new Examen(2L, "Auditoria de ti"));
+
+        assertEquals(4L, nuevo.getId());
+        assertEquals(4, repository.tamanio());
+        assertEquals("Auditoria de ti", repository.findAll().get(1).getNombre());
+        assertEquals(List.of(3L, 4L), ids(repository.findAll(2L, 10)));
+    }
+
+    @Test
+    void conDiccionarioLasPreguntasQuedanCodificadas() {
+        var diccionario = new DiccionarioPreguntas();
+        var compacto = new ExamenRepositoryConcurrente(diccionario);
+        for (long id = 1; id <= 100; id++) {
+            var examen = new Examen(id, "Examen " + id);
+            examen.setPreguntas(new ArrayList<>(Datos.PREGUNTAS));
+            compacto.save(examen);
+        }
+
+        var preguntas = compacto.findById(50L).orElseThrow().getPreguntas();
+        assertTrue(preguntas instanceof PreguntasCodificadas);
+        assertEquals(Datos.PREGUNTAS, preguntas);
+        assertEquals(5, diccionario.tamanio());
+    }
+
+    @Test
+    void findAllEsUnaInstantanea() {
+        var antes = repository.findAll();
+
+        repository.save(new Examen(10L, "Redes"));
+        repository.save(new Examen(1L, "Analisis numerico"));
+
+        assertEquals(3, antes.size());
+        assertEquals("Analisis de datos", antes.get(0).getNombre());
+        assertEquals(4, repository.findAll().size());
+    }
+
+    // Escritores agregan examenes propios e incrementan uno compartido mientras los lectores recorren
+    // instantaneas. Cada examen propio lleva en el nombre su version y tantas preguntas como esa
+    // version, asi una lectura rota se detecta comparando ambos
+    @Test
+    void escriturasConcurrentesSinPerdidasNiLecturasRotas() throws Exception {
+        repository.save(new Examen(0L, "contador"));
+        ExecutorService executor = Executors.newFixedThreadPool(ESCRITORES + LECTORES);
+        var inicio = new CountDownLatch(1);
+        var escribiendo = new AtomicBoolean(true);
+        var errores = new ConcurrentLinkedQueue<String>();
+        try {
+            List<Future<?>> escritores = new ArrayList<>();
+            for (int h = 0; h < ESCRITORES; h++) {
+                long base = 1_000_000L * (h + 1);
+                escritores.add(executor.submit(() -> {
+                    inicio.await();
+                    for (int i = 0; i < EXAMENES_POR_ESCRITOR; i++) {
+                        int version = i % 4;
+                        repository.save(examen(base + i / 2, version));
+                        if (i < INCREMENTOS_POR_ESCRITOR) {
+                            repository.actualizar(0L, e -> {
+                                var preguntas = new ArrayList<>(e.getPreguntas());
+                                preguntas.add("p");
+                                e.setPreguntas(preguntas);
+                                return e;
+                            });
+                        }
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> lectores = new ArrayList<>();
+            for (int h = 0; h < LECTORES; h++) {
+                lectores.add(executor.submit(() -> {
+                    inicio.await();
+                    int tamanioAnterior = 0;
+                    while (escribiendo.get()) {
+                        var instantanea = repository.findAll();
+                        if (instantanea.size() < tamanioAnterior) {
+                            errores.add("El catalogo se achico de " + tamanioAnterior + " a " + instantanea.size());
+                        }
+                        tamanioAnterior = instantanea.size();
+                        for (Examen e : instantanea) {
+                            if (e == null) {
+                                errores.add("Examen nulo en la instantanea");
+                            } else if (e.getId() >= 1_000_000L && !e.getNombre().endsWith("v" + e.getPreguntas().size())) {
+                                errores.add("Lectura rota " + e.getNombre() + " con " + e.getPreguntas().size());
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            inicio.countDown();
+            for (Future<?> escritor : escritores) {
+                escritor.get(30, TimeUnit.SECONDS);
+            }
+            escribiendo.set(false);
+            for (Future<?> lector : lectores) {
+                lector.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(Collections.emptyList(), new ArrayList<>(errores));
+        assertEquals(4 + ESCRITORES * EXAMENES_POR_ESCRITOR / 2, repository.tamanio());
+        assertEquals(ESCRITORES * INCREMENTOS_POR_ESCRITOR, repository.findById(0L).orElseThrow().getPreguntas().size());
+//        Cada id se escribio dos veces seguidas por el mismo hilo, debe quedar la segunda version
+        for (int h = 0; h < ESCRITORES; h++) {
+            long base = 1_000_000L * (h + 1);
+            for (int k = 0; k < EXAMENES_POR_ESCRITOR / 2; k++) {
+                assertEquals("examen-" + (base + k) + "-v" + (2 * k + 1) % 4,
+                        repository.findById(base + k).orElseThrow().getNombre());
+            }
+        }
+    }
+
+    private static Examen examen(long id, int version) {
+        var examen = new Examen(id, "examen-" + id + "-v" + version);
+        examen.setPreguntas(Collections.nCopies(version, "p"));
+        return examen;
+    }
+
+    private static List<Long> ids(List<Examen> examenes) {
+        List<Long> ids = new ArrayList<>();
+        examenes.forEach(e -> ids.add(e.getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,264 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.services.ExamenServiceImp;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExamenRepositoryParticionadoTest {
+
+    // Nodo en memoria que simula la latencia de red en cada llamada
+    static class NodoConLatencia implements ExamenRepository, PreguntaRepository {
+        private final ExamenRepositoryConcurrente examenes = new ExamenRepositoryConcurrente();
+        private final Map<Long, List<String>> preguntas = new ConcurrentHashMap<>();
+        private final long latenciaMilis;
+        private final AtomicInteger llamadas = new AtomicInteger();
+
+        NodoConLatencia(long latenciaMilis) {
+            this.latenciaMilis = latenciaMilis;
+        }
+
+        private void viajar() {
+            llamadas.incrementAndGet();
+            try {
+                TimeUnit.MILLISECONDS.sleep(latenciaMilis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public List<Examen> findAll() {
+            viajar();
+            return examenes.findAll();
+        }
+
+        @Override
+        public Optional<Examen> findById(long id) {
+            viajar();
+            return examenes.findById(id);
+        }
+
+        @Override
+        public Examen save(Examen examen) {
+            viajar();
+            return examenes.save(examen);
+        }
+
+        @Override
+        public List<Examen> saveAll(List<Examen> lote) {
+            viajar();
+            return examenes.saveAll(lote);
+        }
+
+        @Override
+        public List<String> findPreguntasPorExamenId(Long id) {
+            viajar();
+            return preguntas.getOrDefault(id, List.of());
+        }
+
+        @Override
+        public Map<Long, List<String>> findPreguntasPorExamenIds(Collection<Long> ids) {
+            viajar();
+            Map<Long, List<String>> encontradas = new HashMap<>();
+            ids.forEach(id -> encontradas.put(id, preguntas.getOrDefault(id, List.of())));
+            return encontradas;
+        }
+
+        @Override
+        public void guardarVarias(List<String> preguntas) {
+        }
+
+        @Override
+        public void guardarPreguntas(Long examenId, List<String> preguntas) {
+            viajar();
+            this.preguntas.put(examenId, List.copyOf(preguntas));
+        }
+
+        @Override
+        public void guardarPreguntasDeExamenes(Map<Long, List<String>> preguntasPorExamen) {
+            viajar();
+            preguntasPorExamen.forEach((id, deExamen) -> preguntas.put(id, List.copyOf(deExamen)));
+        }
+    }
+
+    private static Map<String, NodoConLatencia> crearNodos(int cantidad, long latenciaMilis) {
+        Map<String, NodoConLatencia> nodos = new HashMap<>();
+        for (int i = 0; i < cantidad; i++) {
+            nodos.put("nodo-" + i, new NodoConLatencia(latenciaMilis));
+        }
+        return nodos;
+    }
+
+    private static List<ExamenRepositoryParticionado.Nodo> comoNodos(Map<String, NodoConLatencia> nodos) {
+        return nodos.entrySet().stream()
+                .map(e -> new ExamenRepositoryParticionado.Nodo(e.getKey(), e.getValue(), e.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    private static List<Examen> catalogo(int tamanio) {
+        List<Examen> examenes = new ArrayList<>();
+        for (long id = 1; id <= tamanio; id++) {
+            var examen = new Examen(id, (id % 100 == 42 ? "Redes " : "Examen ") + id);
+            examen.setPreguntas(List.of("pregunta " + id));
+            examenes.add(examen);
+        }
+        return examenes;
+    }
+
+    @Test
+    void repartoYBusquedaEnTodosLosNodos() {
+//        Given 1000 examenes guardados por el servicio en 4 nodos
+        var nodos = crearNodos(4, 1);
+        var particionado = new ExamenRepositoryParticionado(comoNodos(nodos));
+        var service = new ExamenServiceImp(particionado, particionado);
+        service.guardarExamenes(catalogo(1_000));
+
+//        Then cada examen esta en su nodo y el reparto es parejo
+        for (var entrada : nodos.entrySet()) {
+            var propios = entrada.getValue().examenes.findAll();
+            assertTrue(propios.size() > 150 && propios.size() < 350, entrada.getKey() + ": " + propios.size());
+            propios.forEach(e -> assertEquals(entrada.getKey(), particionado.nodoDe(e.getId())));
+        }
+        assertEquals(1_000, particionado.findAll().size());
+        assertEquals(List.of(1L, 2L, 3L), particionado.findAll().subList(0, 3).stream().map(Examen::getId).toList());
+
+//        El primero por nombre es el de menor id aunque cada nodo encuentre el suyo
+        assertEquals(42L, service.findExamenPorNombre("Redes").orElseThrow().getId());
+        assertEquals(List.of("pregunta 542"), service.findExamenPorNombreConPreguntas("Redes 542").getPreguntas());
+        assertEquals(10, service.findExamenesPorNombreConPreguntas("Redes").size());
+        assertTrue(service.findExamenPorNombre("no existe").isEmpty());
+    }
+
+    @Test
+    void lasConsultasATodosLosNodosVanEnParalelo() {
+        var nodos = crearNodos(4, 100);
+        var particionado = new ExamenRepositoryParticionado(comoNodos(nodos));
+
+        long inicio = System.nanoTime();
+        particionado.findPrimeroPorNombre("Redes");
+        long milis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+//        4 nodos de 100 ms uno detras del otro serian 400 ms
+        assertTrue(milis < 300, "tardo " + milis + " ms");
+        nodos.values().forEach(nodo -> assertEquals(1, nodo.llamadas.get()));
+    }
+
+    @Test
+    void agregarYQuitarNodosMueveSoloLoNecesario() {
+        var nodos = crearNodos(4, 0);
+        var particionado = new ExamenRepositoryParticionado(comoNodos(nodos));
+        particionado.saveAll(catalogo(2_000));
+        Map<Long, String> antes = new HashMap<>();
+        for (long id = 1; id <= 2_000; id++) {
+            antes.put(id, particionado.nodoDe(id));
+        }
+
+//        When se agrega un quinto nodo
+        var quinto = new NodoConLatencia(0);
+        int movidos = particionado.agregarNodo(new ExamenRepositoryParticionado.Nodo("nodo-4", quinto, quinto));
+
+//        Then solo se movieron los que ahora son del nodo nuevo, cerca de 1/5
+        long cambiaron = antes.entrySet().stream()
+                .filter(e -> !e.getValue().equals(particionado.nodoDe(e.getKey())))
+                .count();
+        assertEquals(cambiaron, movidos);
+        assertEquals(movidos, quinto.examenes.tamanio());
+        assertTrue(movidos > 250 && movidos < 600, "movidos: " + movidos);
+        antes.keySet().forEach(id -> {
+            var nodo = particionado.nodoDe(id);
+            assertTrue(nodo.equals(antes.get(id)) || nodo.equals("nodo-4"));
+        });
+
+//        Las copias viejas no se ven: findAll sigue teniendo cada examen una vez
+        assertEquals(2_000, particionado.findAll().size());
+        assertEquals(List.of("pregunta 7"), particionado.findPreguntasPorExamenId(7L));
+
+//        When se quita un nodo sus examenes pasan a los demas
+        long delNodo0 = antes.keySet().stream().filter(id -> particionado.nodoDe(id).equals("nodo-0")).count();
+        assertEquals(delNodo0, particionado.quitarNodo("nodo-0"));
+        assertEquals(2_000, particionado.findAll().size());
+        for (long id = 1; id <= 2_000; id += 97) {
+            assertEquals("Examen " + id, particionado.findById(id).orElseThrow().getNombre().replace("Redes", "Examen"));
+            assertEquals(List.of("pregunta " + id), particionado.findPreguntasPorExamenId(id));
+        }
+        assertEquals(movidos + delNodo0, particionado.getMovidos());
+    }
+
+    @Test
+    void rebalancearNodosArchivoConservaLasPreguntas(@TempDir Path directorio) {
+        List<ExamenRepositoryArchivo> archivos = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            archivos.add(new ExamenRepositoryArchivo(directorio.resolve("nodo-" + i + ".log")));
+        }
+        try {
+            List<ExamenRepositoryParticionado.Nodo> nodos = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                nodos.add(new ExamenRepositoryParticionado.Nodo("nodo-" + i, archivos.get(i), archivos.get(i)));
+            }
+            var particionado = new ExamenRepositoryParticionado(nodos);
+            particionado.saveAll(catalogo(300));
+
+//            When se agrega un nodo y se quita otro, examen y preguntas viajan juntos
+            var nuevo = archivos.get(2);
+            assertTrue(particionado.agregarNodo(new ExamenRepositoryParticionado.Nodo("nodo-2", nuevo, nuevo)) > 0);
+//            Un solo registro por examen movido: nada que compactar en el nodo nuevo
+            assertEquals(0.0, nuevo.getProporcionBasura());
+            particionado.quitarNodo("nodo-0");
+
+//            Then cada examen conserva sus preguntas en su nuevo duenio
+            for (long id = 1; id <= 300; id++) {
+                assertEquals(List.of("pregunta " + id), particionado.findPreguntasPorExamenId(id));
+            }
+        } finally {
+            archivos.forEach(ExamenRepositoryArchivo::close);
+        }
+    }
+
+    @Test
+    void lasPreguntasDeUnLoteSonUnaEscrituraPorNodo() {
+        var nodos = crearNodos(4, 0);
+        var particionado = new ExamenRepositoryParticionado(comoNodos(nodos));
+
+        new ExamenServiceImp(particionado, particionado).guardarExamenes(catalogo(400));
+
+//        Por nodo: saveAll, las preguntas que saveAll guarda con cada examen y el
+//        guardarPreguntasDeExamenes del servicio. Tres viajes, no uno por examen
+        nodos.values().forEach(nodo -> assertEquals(3, nodo.llamadas.get()));
+        assertEquals(List.of("pregunta 123"), particionado.findPreguntasPorExamenId(123L));
+    }
+
+    @Test
+    void losIdsQueUnNodoOmiteDevuelvenListaVacia() {
+        var omite = new NodoConLatencia(0) {
+            @Override
+            public Map<Long, List<String>> findPreguntasPorExamenIds(Collection<Long> ids) {
+                Map<Long, List<String>> encontradas = new HashMap<>(super.findPreguntasPorExamenIds(ids));
+                encontradas.values().removeIf(List::isEmpty);
+                return encontradas;
+            }
+        };
+        var particionado = new ExamenRepositoryParticionado(
+                List.of(new ExamenRepositoryParticionado.Nodo("nodo-0", omite, omite)));
+        particionado.saveAll(catalogo(2));
+
+        var preguntas = particionado.findPreguntasPorExamenIds(List.of(1L, 99L));
+
+        assertEquals(List.of("pregunta 1"), preguntas.get(1L));
+        assertEquals(List.of(), preguntas.get(99L));
+    }
+}
@@ -0,0 +1,128 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.Datos;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.services.ExamenServiceImp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ExamenRepositoryPrimitivoTest {
+
+    private ExamenRepositoryPrimitivo repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new ExamenRepositoryPrimitivo(16);
+        Datos.EXAMENES.forEach(e -> repository.save(new Examen(e.getId(), e.getNombre())));
+    }
+
+    @Test
+    void findById() {
+        assertEquals("Seguridad de ti", repository.findById(2L).orElseThrow().getNombre());
+        assertTrue(repository.findById(99L).isEmpty());
+    }
+
+    @Test
+    void saveMismoIdRenombraSinAgregar() {
+        repository.save(new Examen(2L, "Auditoria de ti"));
+
+        assertEquals(3, repository.tamanio());
+        assertEquals("Auditoria de ti", repository.findById(2L).orElseThrow().getNombre());
+        assertEquals("Auditoria de ti", repository.findAll().get(1).getNombre());
+    }
+
+    @Test
+    void renombrarMuchasVecesNoHaceCrecerLosNombres() {
+        double antes = repository.getBytesPorExamen();
+        var primero = repository.findById(1L).orElseThrow().getNombre();
+        var tercero = repository.findById(3L).orElseThrow().getNombre();
+
+//        Un nombre que entra reutiliza su lugar, uno mas largo se agrega y deja basura
+        for (int i = 0; i < 100_000; i++) {
+            repository.save(new Examen(2L, i % 2 == 0 ? "Seguridad" : "Seguridad de ti " + i));
+        }
+
+        assertEquals("Seguridad de ti 99999", repository.findById(2L).orElseThrow().getNombre());
+        assertEquals(primero, repository.findById(1L).orElseThrow().getNombre());
+        assertEquals(tercero, repository.findById(3L).orElseThrow().getNombre());
+        assertEquals(2L, repository.findPrimeroPorNombre("99999").orElseThrow().getId());
+        assertTrue(repository.findPrimeroPorNombre("99998").isEmpty());
+//        La basura se compacta antes de crecer: el arreglo de nombres sigue del tamanio inicial
+        assertEquals(antes, repository.getBytesPorExamen());
+        assertTrue(repository.getBasuraNombres() < 256, "Basura: " + repository.getBasuraNombres());
+    }
+
+    @Test
+    void saveSinIdAsignaSiguiente() {
+        var examen = repository.save(new Examen(null, "Redes"));
+        assertEquals(4L, examen.getId());
+    }
+
+    @Test
+    void busquedaPorNombreIgualAlRecorrido() {
+        repository.save(new Examen(4L, "Análisis numérico"));
+        List<Examen> todos = repository.findAll();
+
+        for (var consulta : List.of("de", "ti", "Análisis", "numé", "", "no existe")) {
+            var esperado = todos.stream().filter(e -> e.getNombre().contains(consulta)).findFirst();
+            assertEquals(esperado.map(Examen::getId), repository.findPrimeroPorNombre(consulta).map(Examen::getId), consulta);
+        }
+        assertEquals(4L, repository.findIdPrimeroPorNombre("numé".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(ExamenRepositoryPrimitivo.NO_ENCONTRADO,
+                repository.findIdPrimeroPorNombre("xyz".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void creceConMuchosExamenes() {
+        for (long id = 10; id < 200_000; id++) {
+            repository.save(new Examen(id * 7, "Examen " + id));
+        }
+        assertEquals(3 + 199_990, repository.tamanio());
+        assertEquals("Examen 123456", repository.findById(123_456L * 7).orElseThrow().getNombre());
+        assertTrue(repository.findById(123_456L * 7 + 1).isEmpty());
+        assertTrue(repository.getBytesPorExamen() < 100, "Bytes por examen: " + repository.getBytesPorExamen());
+    }
+
+    //    El servicio usa la busqueda del repositorio en lugar de recorrer findAll()
+    @Test
+    void servicioUsaBusquedaDelRepositorio() {
+        var espia = spy(repository);
+        var service = new ExamenServiceImp(espia, mock(PreguntaRepository.class));
+
+        assertEquals(3L, service.findExamenPorNombre("Marcos").orElseThrow().getId());
+        verify(espia).findPrimeroPorNombre("Marcos");
+        verify(espia, never()).findAll();
+    }
+
+    @Test
+    void paginacionPorCursor() {
+        for (long id = 4; id <= 10; id++) {
+            repository.save(new Examen(id, "Examen " + id));
+        }
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(repository.findAll(null, 4)));
+        assertEquals(List.of(5L, 6L, 7L, 8L), ids(repository.findAll(4L, 4)));
+        assertEquals(List.of(9L, 10L), ids(repository.findAll(8L, 4)));
+        assertTrue(repository.findAll(10L, 4).isEmpty());
+        assertTrue(repository.findAll(99L, 4).isEmpty());
+    }
+
+    //    La implementacion por defecto de la interfaz recorre findAll() con el mismo contrato
+    @Test
+    void paginacionPorDefecto() {
+        var imp = new ExamenRepositoryImp();
+        assertEquals(List.of(1L, 2L), ids(imp.findAll(null, 2)));
+        assertEquals(List.of(3L), ids(imp.findAll(2L, 2)));
+        assertTrue(imp.findAll(99L, 2).isEmpty());
+    }
+
+    private static List<Long> ids(List<Examen> examenes) {
+        return examenes.stream().map(Examen::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,136 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.Datos;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.services.ExamenServiceIndexadoImp;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InstantaneaCatalogoTest {
+
+    @TempDir
+    Path directorio;
+
+    @Mock
+    private ExamenRepository examenRepository;
+    @Mock
+    private PreguntaRepository preguntaRepository;
+
+    private Path escribirDatos() {
+        when(examenRepository.findAll()).thenReturn(Datos.EXAMENES);
+        when(preguntaRepository.findPreguntasPorExamenIds(anyCollection())).thenReturn(Map.of(
+                1L, List.of("integrales", "derivadas"),
+                3L, List.of("ecuaciones diferenciales")));
+        var archivo = directorio.resolve("catalogo.bin");
+        InstantaneaCatalogo.escribir(archivo, examenRepository, preguntaRepository);
+        return archivo;
+    }
+
+    @Test
+    void escribirYAbrirSinVolverAlOrigen() {
+        var archivo = escribirDatos();
+        clearInvocations(examenRepository, preguntaRepository);
+
+        var catalogo = InstantaneaCatalogo.abrir(archivo).orElseThrow();
+
+        assertEquals(3, catalogo.getTamanioInstantanea());
+        assertEquals(List.of("Analisis de datos", "Seguridad de ti", "Marcos de desarrollo"),
+                catalogo.findAll().stream().map(Examen::getNombre).toList());
+        assertEquals("Seguridad de ti", catalogo.findById(2L).orElseThrow().getNombre());
+        assertTrue(catalogo.findById(4L).isEmpty());
+        assertEquals(List.of("integrales", "derivadas"), catalogo.findPreguntasPorExamenId(1L));
+        assertTrue(catalogo.findPreguntasPorExamenId(2L).isEmpty());
+        assertArrayEquals(new long[]{1L, 3L}, catalogo.indicePreguntas().buscar("integrales OR ecuaciones"));
+        verifyNoInteractions(examenRepository, preguntaRepository);
+    }
+
+    @Test
+    void instantaneaInvalidaNoSeUsa() throws Exception {
+        assertTrue(InstantaneaCatalogo.abrir(directorio.resolve("no-existe.bin")).isEmpty());
+
+        var archivo = escribirDatos();
+//        Se cambia un byte de un nombre: el crc ya no coincide
+        try (var raf = new RandomAccessFile(archivo.toFile(), "rw")) {
+            raf.seek(36 + 8 + 4);
+            raf.write('X');
+        }
+        assertTrue(InstantaneaCatalogo.abrir(archivo).isEmpty());
+
+        escribirDatos();
+//        Version distinta
+        try (var raf = new RandomAccessFile(archivo.toFile(), "rw")) {
+            raf.seek(4);
+            raf.writeInt(99);
+        }
+        assertTrue(InstantaneaCatalogo.abrir(archivo).isEmpty());
+    }
+
+    @Test
+    void reconciliarAplicaSoloLasDiferencias() throws Exception {
+        var archivo = escribirDatos();
+        var catalogo = InstantaneaCatalogo.abrir(archivo).orElseThrow();
+
+//        Given el origen renombro el examen 2, cambio las preguntas del 3 y agrego el 4
+        when(examenRepository.findAll()).thenReturn(List.of(
+                new Examen(1L, "Analisis de datos"),
+                new Examen(2L, "Seguridad informatica"),
+                new Examen(3L, "Marcos de desarrollo"),
+                new Examen(4L, "Desarrollo de sistemas")));
+        when(preguntaRepository.findPreguntasPorExamenIds(anyCollection())).thenReturn(Map.of(
+                1L, List.of("integrales", "derivadas"),
+                3L, List.of("probabilidades"),
+                4L, List.of("integrales")));
+
+//        When
+        List<Examen> cambiados = new ArrayList<>();
+        int cambios = catalogo.reconciliarEnSegundoPlano(examenRepository, preguntaRepository, cambiados::add)
+                .get(5, TimeUnit.SECONDS);
+
+//        Then
+        assertEquals(3, cambios);
+        assertEquals(List.of(2L, 3L, 4L), cambiados.stream().map(Examen::getId).toList());
+        assertEquals(List.of("probabilidades"), cambiados.get(1).getPreguntas());
+        assertEquals(List.of("Analisis de datos", "Seguridad informatica", "Marcos de desarrollo", "Desarrollo de sistemas"),
+                catalogo.findAll().stream().map(Examen::getNombre).toList());
+        assertEquals(List.of("probabilidades"), catalogo.findPreguntasPorExamenId(3L));
+        assertArrayEquals(new long[]{1L, 4L}, catalogo.indicePreguntas().buscar("integrales"));
+        assertEquals(0, catalogo.indicePreguntas().buscar("ecuaciones").length);
+
+//        Lo reconciliado queda en la siguiente instantanea
+        catalogo.guardar(archivo);
+        var reabierto = InstantaneaCatalogo.abrir(archivo).orElseThrow();
+        assertEquals(4, reabierto.getTamanioInstantanea());
+        assertEquals(List.of("integrales"), reabierto.findPreguntasPorExamenId(4L));
+        assertEquals(0, reabierto.reconciliar(examenRepository, preguntaRepository, cambiados::add));
+    }
+
+    @Test
+    void servicioUsaElIndiceDePreguntasDeLaInstantanea() {
+        var catalogo = InstantaneaCatalogo.abrir(escribirDatos()).orElseThrow();
+        clearInvocations(examenRepository, preguntaRepository);
+
+        var service = new ExamenServiceIndexadoImp(catalogo, catalogo);
+        assertEquals(List.of(1L), service.findExamenesPorPregunta("derivadas").stream().map(Examen::getId).toList());
+
+        var examen = new Examen(5L, "Calculo");
+        examen.setPreguntas(List.of("derivadas parciales"));
+        service.guardarExamen(examen);
+        assertEquals(List.of(1L, 5L), service.findExamenesPorPregunta("derivadas").stream().map(Examen::getId).toList());
+        assertEquals(List.of("derivadas parciales"), service.findExamenPorNombreConPreguntas("Calculo").getPreguntas());
+        verifyNoInteractions(examenRepository, preguntaRepository);
+    }
+}
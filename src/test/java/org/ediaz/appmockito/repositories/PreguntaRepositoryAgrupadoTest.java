@@ -0,0 +1,86 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.Datos;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PreguntaRepositoryAgrupadoTest {
+
+    @Mock
+    private PreguntaRepository preguntaRepository;
+
+    @Test
+    void llamadasConcurrentesSeJuntanEnUnLote() throws Exception {
+        when(preguntaRepository.findPreguntasPorExamenIds(anyCollection())).then(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            Map<Long, List<String>> preguntas = new LinkedHashMap<>();
+            ids.forEach(id -> preguntas.put(id, List.of("pregunta " + id)));
+            return preguntas;
+        });
+        var executor = Executors.newFixedThreadPool(20);
+        try (var agrupado = new PreguntaRepositoryAgrupado(preguntaRepository, Duration.ofMillis(200), 100)) {
+            var resultados = new ArrayList<Future<List<String>>>();
+            for (long id = 1; id <= 20; id++) {
+                long examenId = id;
+                resultados.add(executor.submit(() -> agrupado.findPreguntasPorExamenId(examenId)));
+            }
+            for (int i = 0; i < resultados.size(); i++) {
+                assertEquals(List.of("pregunta " + (i + 1)), resultados.get(i).get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(20, agrupado.getSolicitudes());
+            assertEquals(1, agrupado.getLotes());
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(preguntaRepository, times(1)).findPreguntasPorExamenIds(anyCollection());
+        verify(preguntaRepository, never()).findPreguntasPorExamenId(anyLong());
+    }
+
+    @Test
+    void loteLlenoSeDespachaSinEsperarLaVentana() {
+        when(preguntaRepository.findPreguntasPorExamenIds(anyCollection())).thenReturn(Map.of(1L, Datos.PREGUNTAS));
+        try (var agrupado = new PreguntaRepositoryAgrupado(preguntaRepository, Duration.ofMinutes(1), 1)) {
+            assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> assertEquals(Datos.PREGUNTAS, agrupado.findPreguntasPorExamenId(1L)));
+        }
+    }
+
+    @Test
+    void errorDelLoteLlegaATodasLasLlamadas() {
+        when(preguntaRepository.findPreguntasPorExamenIds(anyCollection())).thenThrow(IllegalArgumentException.class);
+        try (var agrupado = new PreguntaRepositoryAgrupado(preguntaRepository, Duration.ofMillis(10), 10)) {
+            assertThrows(IllegalArgumentException.class, () -> agrupado.findPreguntasPorExamenId(1L));
+        }
+    }
+
+    @Test
+    void idsOmitidosYErroresGravesNoDejanEsperando() {
+        when(preguntaRepository.findPreguntasPorExamenIds(anyCollection()))
+                .thenReturn(Map.of())
+                .thenThrow(new AssertionError("fallo grave"));
+        try (var agrupado = new PreguntaRepositoryAgrupado(preguntaRepository, Duration.ofMillis(10), 100)) {
+            assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+//                El delegado no devolvio el id: sin preguntas en lugar de null
+                assertEquals(List.of(), agrupado.findPreguntasPorExamenId(1L));
+                var error = assertThrows(AssertionError.class, () -> agrupado.findPreguntasPorExamenId(2L));
+                assertEquals("fallo grave", error.getMessage());
+            });
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.Datos;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PreguntaRepositoryCacheTest {
+
+    @Mock
+    private PreguntaRepository preguntaRepository;
+
+    //    Reloj manual para poder adelantar el tiempo sin dormir el hilo
+    private final AtomicLong reloj = new AtomicLong();
+
+    @Test
+    void segundaLlamadaSaleDeLaCache() {
+        when(preguntaRepository.findPreguntasPorExamenId(1L)).thenReturn(Datos.PREGUNTAS);
+        var cache = new PreguntaRepositoryCache(preguntaRepository, 10, Duration.ofMinutes(1), reloj::get);
+
+        assertEquals(Datos.PREGUNTAS, cache.findPreguntasPorExamenId(1L));
+        assertEquals(Datos.PREGUNTAS, cache.findPreguntasPorExamenId(1L));
+
+        verify(preguntaRepository, times(1)).findPreguntasPorExamenId(1L);
+        assertEquals(1, cache.getEstadisticas().getAciertos());
+        assertEquals(1, cache.getEstadisticas().getFallos());
+        assertEquals(1, cache.getEstadisticas().getCargas());
+    }
+
+    @Test
+    void expiraDespuesDelTtl() {
+        when(preguntaRepository.findPreguntasPorExamenId(anyLong())).thenReturn(Datos.PREGUNTAS);
+        var cache = new PreguntaRepositoryCache(preguntaRepository, 10, Duration.ofSeconds(30), reloj::get);
+
+        cache.findPreguntasPorExamenId(1L);
+        reloj.addAndGet(Duration.ofSeconds(29).toNanos());
+        cache.findPreguntasPorExamenId(1L);
+        reloj.addAndGet(Duration.ofSeconds(2).toNanos());
+        cache.findPreguntasPorExamenId(1L);
+
+        verify(preguntaRepository, times(2)).findPreguntasPorExamenId(1L);
+    }
+
+    @Test
+    void desalojaElMenosUsado() {
+        when(preguntaRepository.findPreguntasPorExamenId(anyLong())).thenReturn(Datos.PREGUNTAS);
+        var cache = new PreguntaRepositoryCache(preguntaRepository, 2, Duration.ofMinutes(1), reloj::get);
+
+        cache.findPreguntasPorExamenId(1L);
+        cache.findPreguntasPorExamenId(2L);
+        cache.findPreguntasPorExamenId(1L); // 2 pasa a ser el menos usado
+        cache.findPreguntasPorExamenId(3L);
+        cache.findPreguntasPorExamenId(1L);
+        cache.findPreguntasPorExamenId(2L);
+
+        verify(preguntaRepository, times(1)).findPreguntasPorExamenId(1L);
+        verify(preguntaRepository, times(2)).findPreguntasPorExamenId(2L);
+        assertEquals(2, cache.tamanio());
+        assertEquals(2, cache.getEstadisticas().getDesalojos());
+    }
+
+    @Test
+    void guardarVariasInvalida() {
+        when(preguntaRepository.findPreguntasPorExamenId(1L)).thenReturn(Datos.PREGUNTAS);
+        var cache = new PreguntaRepositoryCache(preguntaRepository, 10, Duration.ofMinutes(1), reloj::get);
+
+        cache.findPreguntasPorExamenId(1L);
+        cache.guardarVarias(Datos.PREGUNTAS);
+        cache.findPreguntasPorExamenId(1L);
+
+        verify(preguntaRepository).guardarVarias(Datos.PREGUNTAS);
+        verify(preguntaRepository, times(2)).findPreguntasPorExamenId(1L);
+    }
+
+    @Test
+    void guardarPreguntasDeExamenesEsUnaEscrituraYSoloInvalidaEsosIds() {
+        when(preguntaRepository.findPreguntasPorExamenId(anyLong())).thenReturn(Datos.PREGUNTAS);
+        var cache = new PreguntaRepositoryCache(preguntaRepository, 10, Duration.ofMinutes(1), reloj::get);
+        cache.findPreguntasPorExamenId(1L);
+        cache.findPreguntasPorExamenId(2L);
+        cache.findPreguntasPorExamenId(3L);
+
+        cache.guardarPreguntasDeExamenes(Map.of(1L, List.of("nueva"), 2L, List.of("otra")));
+
+        verify(preguntaRepository).guardarPreguntasDeExamenes(Map.of(1L, List.of("nueva"), 2L, List.of("otra")));
+        verify(preguntaRepository, never()).guardarPreguntas(anyLong(), anyList());
+        assertEquals(1, cache.tamanio());
+    }
+
+    @Test
+    void errorNoSeGuardaEnCache() {
+        when(preguntaRepository.findPreguntasPorExamenId(1L))
+                .thenThrow(IllegalArgumentException.class)
+                .thenReturn(Datos.PREGUNTAS);
+        var cache = new PreguntaRepositoryCache(preguntaRepository, 10, Duration.ofMinutes(1), reloj::get);
+
+        assertThrows(IllegalArgumentException.class, () -> cache.findPreguntasPorExamenId(1L));
+        assertEquals(Datos.PREGUNTAS, cache.findPreguntasPorExamenId(1L));
+        assertEquals(1, cache.getEstadisticas().getErroresCarga());
+    }
+
+    @Test
+    void fallosConcurrentesHacenUnaSolaCarga() throws Exception {
+        var inicioCarga = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            inicioCarga.countDown();
+            TimeUnit.MILLISECONDS.sleep(300);
+            return Datos.PREGUNTAS;
+        }).when(preguntaRepository).findPreguntasPorExamenId(1L);
+        var cache = new PreguntaRepositoryCache(preguntaRepository, 10, Duration.ofMinutes(1));
+
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var resultados = new ArrayList<Future<List<String>>>();
+            resultados.add(executor.submit(() -> cache.findPreguntasPorExamenId(1L)));
+            inicioCarga.await();
+            for (int i = 0; i < 7; i++) {
+                resultados.add(executor.submit(() -> cache.findPreguntasPorExamenId(1L)));
+            }
+            for (var resultado : resultados) {
+                assertEquals(Datos.PREGUNTAS, resultado.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(preguntaRepository, times(1)).findPreguntasPorExamenId(1L);
+    }
+
+    @Test
+    void errorGraveEnLaCargaNoDejaEsperandoALosDemas() throws Exception {
+        var inicioCarga = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            inicioCarga.countDown();
+            TimeUnit.MILLISECONDS.sleep(200);
+            throw new AssertionError("fallo grave");
+        }).when(preguntaRepository).findPreguntasPorExamenId(1L);
+        var cache = new PreguntaRepositoryCache(preguntaRepository, 10, Duration.ofMinutes(1));
+
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var resultados = new ArrayList<Future<List<String>>>();
+            resultados.add(executor.submit(() -> cache.findPreguntasPorExamenId(1L)));
+            inicioCarga.await();
+            for (int i = 0; i < 3; i++) {
+                resultados.add(executor.submit(() -> cache.findPreguntasPorExamenId(1L)));
+            }
+            for (var resultado : resultados) {
+                var error = assertThrows(ExecutionException.class, () -> resultado.get(5, TimeUnit.SECONDS));
+                assertEquals(AssertionError.class, error.getCause().getClass());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, cache.tamanio());
+    }
+
+    @Test
+    void fallosDeUnLoteEnCursoNoSeVuelvenAPedir() throws Exception {
+        var inicioCarga = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            inicioCarga.countDown();
+            TimeUnit.MILLISECONDS.sleep(300);
+            return Map.of(1L, Datos.PREGUNTAS, 2L, List.of("otra"));
+        }).when(preguntaRepository).findPreguntasPorExamenIds(List.of(1L, 2L));
+        var cache = new PreguntaRepositoryCache(preguntaRepository, 10, Duration.ofMinutes(1));
+
+        var executor = Executors.newFixedThreadPool(3);
+        try {
+//            Given un lote con los ids 1 y 2 cargandose
+            var lote = executor.submit(() -> cache.findPreguntasPorExamenIds(List.of(1L, 2L)));
+            inicioCarga.await();
+
+//            When llegan fallos de los mismos ids por las dos vias
+            var uno = executor.submit(() -> cache.findPreguntasPorExamenId(1L));
+            var otroLote = executor.submit(() -> cache.findPreguntasPorExamenIds(List.of(2L)));
+
+//            Then esperan la carga en curso
+            assertEquals(Map.of(1L, Datos.PREGUNTAS, 2L, List.of("otra")), lote.get(5, TimeUnit.SECONDS));
+            assertEquals(Datos.PREGUNTAS, uno.get(5, TimeUnit.SECONDS));
+            assertEquals(Map.of(2L, List.of("otra")), otroLote.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(preguntaRepository, times(1)).findPreguntasPorExamenIds(anyCollection());
+        verify(preguntaRepository, never()).findPreguntasPorExamenId(anyLong());
+    }
+}
@@ -0,0 +1,136 @@
+package org.ediaz.appmockito.repositories;
+
+import org.ediaz.appmockito.Datos;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PreguntaRepositoryDiferidoTest {
+
+    @Mock
+    private PreguntaRepository preguntaRepository;
+
+    @Test
+    void escriturasVuelvenDeInmediatoYSeCombinanEnLotes() {
+//        Given un delegado lento
+        doAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(200);
+            return null;
+        }).when(preguntaRepository).guardarVarias(anyList());
+        try (var diferido = new PreguntaRepositoryDiferido(preguntaRepository, 1_000, 100, Duration.ofMinutes(1))) {
+//            When
+            long inicio = System.nanoTime();
+            for (int i = 0; i < 100; i++) {
+                diferido.guardarVarias(List.of("pregunta " + i));
+            }
+            long milis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+            diferido.flush();
+
+//            Then 100 escrituras en una sola llamada al delegado
+            assertTrue(milis < 200, "las escrituras tardaron " + milis + " ms");
+            assertEquals(100, diferido.getEscrituras());
+            assertEquals(1, diferido.getLotes());
+            assertEquals(0, diferido.getPendientes());
+        }
+        verify(preguntaRepository, times(1)).guardarVarias(argThat(preguntas -> preguntas.size() == 100));
+    }
+
+    @Test
+    void seVaciaPorTiempoSinFlush() {
+        try (var diferido = new PreguntaRepositoryDiferido(preguntaRepository, 100, 100, Duration.ofMillis(50))) {
+            diferido.guardarVarias(Datos.PREGUNTAS);
+
+            verify(preguntaRepository, timeout(2_000)).guardarVarias(Datos.PREGUNTAS);
+        }
+    }
+
+    @Test
+    void leeLoQueSigueEnElBuffer() {
+        when(preguntaRepository.findPreguntasPorExamenIds(anyCollection())).thenReturn(Map.of(2L, List.of("guardada")));
+        try (var diferido = new PreguntaRepositoryDiferido(preguntaRepository, 100, 100, Duration.ofMinutes(1))) {
+            diferido.guardarPreguntas(1L, List.of("vieja"));
+            diferido.guardarPreguntas(1L, Datos.PREGUNTAS);
+            diferido.guardarPreguntas(3L, List.of("otra"));
+
+            assertEquals(Datos.PREGUNTAS, diferido.findPreguntasPorExamenId(1L));
+            assertEquals(Map.of(1L, Datos.PREGUNTAS, 2L, List.of("guardada")),
+                    diferido.findPreguntasPorExamenIds(List.of(1L, 2L)));
+            verify(preguntaRepository, never()).findPreguntasPorExamenId(1L);
+
+//            Despues del flush solo se escribio la ultima version, todo el lote en una llamada, y la
+//            lectura va al delegado
+            diferido.flush();
+            verify(preguntaRepository).guardarPreguntasDeExamenes(Map.of(1L, Datos.PREGUNTAS, 3L, List.of("otra")));
+            verify(preguntaRepository, never()).guardarPreguntas(anyLong(), anyList());
+            diferido.findPreguntasPorExamenId(1L);
+            verify(preguntaRepository).findPreguntasPorExamenId(1L);
+        }
+    }
+
+    @Test
+    void bufferLlenoBloqueaAlQueEscribe() throws Exception {
+        var liberar = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            liberar.await();
+            return null;
+        }).when(preguntaRepository).guardarVarias(anyList());
+        var executor = Executors.newSingleThreadExecutor();
+        try (var diferido = new PreguntaRepositoryDiferido(preguntaRepository, 2, 1, Duration.ofMillis(1))) {
+//            Given el vaciador bloqueado con la primera escritura y el buffer con otras dos
+            diferido.guardarVarias(List.of("1"));
+            verify(preguntaRepository, timeout(2_000)).guardarVarias(List.of("1"));
+            diferido.guardarVarias(List.of("2"));
+            diferido.guardarVarias(List.of("3"));
+
+//            When la cuarta espera espacio
+            var cuarta = executor.submit(() -> diferido.guardarVarias(List.of("4")));
+            assertThrows(TimeoutException.class, () -> cuarta.get(200, TimeUnit.MILLISECONDS));
+            assertEquals(1, diferido.getEsperasPorLleno());
+
+//            Then continua cuando el delegado avanza
+            liberar.countDown();
+            cuarta.get(5, TimeUnit.SECONDS);
+            diferido.flush();
+            assertEquals(0, diferido.getPendientes());
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(preguntaRepository, times(4)).guardarVarias(anyList());
+    }
+
+    @Test
+    void errorDelDelegadoSeReportaEnElFlush() {
+        doThrow(new IllegalStateException("sin conexion")).when(preguntaRepository).guardarVarias(anyList());
+        var diferido = new PreguntaRepositoryDiferido(preguntaRepository, 10, 10, Duration.ofMinutes(1));
+        diferido.guardarVarias(Datos.PREGUNTAS);
+
+        var error = assertThrows(IllegalStateException.class, diferido::flush);
+        assertEquals("sin conexion", error.getCause().getMessage());
+        assertThrows(IllegalStateException.class, () -> diferido.guardarVarias(Datos.PREGUNTAS));
+        assertThrows(IllegalStateException.class, diferido::close);
+    }
+
+    @Test
+    void errorGraveDelDelegadoNoDejaEsperandoAlFlush() {
+        doThrow(new AssertionError("fallo grave")).when(preguntaRepository).guardarPreguntasDeExamenes(anyMap());
+        var diferido = new PreguntaRepositoryDiferido(preguntaRepository, 10, 10, Duration.ofMinutes(1));
+        diferido.guardarPreguntas(1L, Datos.PREGUNTAS);
+
+        var error = assertTimeoutPreemptively(Duration.ofSeconds(2), () -> assertThrows(IllegalStateException.class, diferido::flush));
+        assertEquals("fallo grave", error.getCause().getMessage());
+        assertThrows(IllegalStateException.class, () -> diferido.guardarPreguntas(2L, Datos.PREGUNTAS));
+    }
+}
@@ -0,0 +1,112 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.Datos;
+import org.ediaz.appmockito.concurrencia.Ejecutores;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.ExamenRepository;
+import org.ediaz.appmockito.repositories.ExamenRepositoryAsyncImp;
+import org.ediaz.appmockito.repositories.ExamenRepositoryImp;
+import org.ediaz.appmockito.repositories.PreguntaRepository;
+import org.ediaz.appmockito.repositories.PreguntaRepositoryAsyncImp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncExamenServiceImpTest {
+
+    private static final long LATENCIA_MS = 200;
+
+    @Mock
+    private ExamenRepository examenRepository;
+    @Mock
+    private PreguntaRepository preguntaRepository;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Ejecutores.paraBloqueantes();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void findExamenPorNombreConPreguntas() {
+        when(examenRepository.findAll()).thenReturn(Datos.EXAMENES);
+        when(preguntaRepository.findPreguntasPorExamenId(2L)).thenReturn(Datos.PREGUNTAS);
+        var service = new AsyncExamenServiceImp(new ExamenRepositoryAsyncImp(examenRepository, executor),
+                new PreguntaRepositoryAsyncImp(preguntaRepository, executor));
+
+        var examen = service.findExamenPorNombreConPreguntas("Seguridad").join();
+
+        assertEquals(2L, examen.getId());
+        assertEquals(5, examen.getPreguntas().size());
+        assertNull(service.findExamenPorNombreConPreguntas("no existe").join());
+        verify(preguntaRepository, times(1)).findPreguntasPorExamenId(anyLong());
+    }
+
+    @Test
+    void guardarExamenGuardaExamenAntesQuePreguntas() {
+        when(examenRepository.save(any(Examen.class))).then(invocation -> invocation.getArgument(0));
+        var service = new AsyncExamenServiceImp(new ExamenRepositoryAsyncImp(examenRepository, executor),
+                new PreguntaRepositoryAsyncImp(preguntaRepository, executor));
+        var examen = new Examen(5L, "Redes");
+        examen.setPreguntas(Datos.PREGUNTAS);
+
+        assertSame(examen, service.guardarExamen(examen).join());
+
+        var orden = inOrder(preguntaRepository, examenRepository);
+        orden.verify(examenRepository).save(examen);
+        orden.verify(preguntaRepository).guardarPreguntas(5L, Datos.PREGUNTAS);
+    }
+
+    //    Prueba de carga: miles de consultas concurrentes con un repositorio de preguntas lento
+//    deben terminar en una ventana parecida a la latencia del repositorio y no hacer cola
+    @Test
+    void milesDeConsultasConcurrentesEnUnaVentanaDeLatencia() {
+        PreguntaRepository preguntasLentas = new PreguntaRepository() {
+            @Override
+            public List<String> findPreguntasPorExamenId(Long id) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(LATENCIA_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Datos.PREGUNTAS;
+            }
+
+            @Override
+            public void guardarVarias(List<String> preguntas) {
+            }
+        };
+        var service = new AsyncExamenServiceImp(new ExamenRepositoryAsyncImp(new ExamenRepositoryImp(), executor),
+                new PreguntaRepositoryAsyncImp(preguntasLentas, executor));
+        var nombres = List.of("Analisis", "Seguridad", "Marcos");
+
+        long inicio = System.nanoTime();
+        var futuros = new CompletableFuture<?>[2_000];
+        for (int i = 0; i < futuros.length; i++) {
+            futuros[i] = service.findExamenPorNombreConPreguntas(nombres.get(i % nombres.size()));
+        }
+        CompletableFuture.allOf(futuros).join();
+        long transcurridoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+//        En serie serian 2000 x 200 ms = 400 s, se deja margen para crear los hilos
+        assertTrue(transcurridoMs < LATENCIA_MS * 10, "Tardo " + transcurridoMs + " ms");
+    }
+}
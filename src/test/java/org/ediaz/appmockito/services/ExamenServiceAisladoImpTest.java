@@ -0,0 +1,145 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.Datos;
+import org.ediaz.appmockito.concurrencia.LimiteAdaptativo;
+import org.ediaz.appmockito.repositories.ExamenRepositoryImp;
+import org.ediaz.appmockito.repositories.PreguntaRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExamenServiceAisladoImpTest {
+
+    //    Repositorio de preguntas que no responde hasta que se abre la barrera
+    private static class PreguntasBloqueadas implements PreguntaRepository {
+        private final CountDownLatch barrera = new CountDownLatch(1);
+
+        @Override
+        public List<String> findPreguntasPorExamenId(Long id) {
+            try {
+                barrera.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Datos.PREGUNTAS;
+        }
+
+        @Override
+        public void guardarVarias(List<String> preguntas) {
+        }
+    }
+
+    //    Repositorio de preguntas con latencia fija
+    private static class PreguntasLentas implements PreguntaRepository {
+        private final long latenciaMs;
+
+        PreguntasLentas(long latenciaMs) {
+            this.latenciaMs = latenciaMs;
+        }
+
+        @Override
+        public List<String> findPreguntasPorExamenId(Long id) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(latenciaMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Datos.PREGUNTAS;
+        }
+
+        @Override
+        public void guardarVarias(List<String> preguntas) {
+        }
+    }
+
+    @Test
+    void conElLimiteLlenoDevuelveElExamenSinPreguntas() throws Exception {
+        var preguntas = new PreguntasBloqueadas();
+        var service = new ExamenServiceAisladoImp(new ExamenRepositoryImp(), preguntas,
+                new LimiteAdaptativo(2, 1, 2));
+
+//        Given dos consultas ocupando el limite
+        var ocupadas = List.of(
+                CompletableFuture.supplyAsync(() -> service.findExamenPorNombreConPreguntas("Analisis")),
+                CompletableFuture.supplyAsync(() -> service.findExamenPorNombreConPreguntas("Seguridad")));
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            while (service.getEnVuelo() < 2) {
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+        });
+
+//        When llega otra consulta, Then responde sin esperar y sin preguntas
+        var degradado = assertTimeoutPreemptively(Duration.ofMillis(500),
+                () -> service.findExamenPorNombreConPreguntas("Marcos"));
+        assertEquals(3L, degradado.getId());
+        assertTrue(degradado.getPreguntas().isEmpty());
+        var varios = service.findExamenesPorNombreConPreguntas("de");
+        assertEquals(3, varios.size());
+        varios.forEach(examen -> assertTrue(examen.getPreguntas().isEmpty()));
+        assertEquals(2, service.getDegradadas());
+        assertEquals(2, service.getRechazadas());
+
+//        Las que entraron terminan con sus preguntas
+        preguntas.barrera.countDown();
+        for (var ocupada : ocupadas) {
+            assertEquals(5, ocupada.get(2, TimeUnit.SECONDS).getPreguntas().size());
+        }
+        assertEquals(2, service.getAdmitidas());
+        assertEquals(0, service.getEnVuelo());
+    }
+
+    @Test
+    void lasBusquedasPorNombreNoEsperanALasPreguntas() throws Exception {
+        var preguntas = new PreguntasLentas(300);
+        long sinAislar = peorLatenciaPorNombre(new ExamenServiceImp(new ExamenRepositoryImp(), preguntas));
+        var aislado = new ExamenServiceAisladoImp(new ExamenRepositoryImp(), preguntas,
+                new LimiteAdaptativo(2, 1, 4));
+        long conBulkhead = peorLatenciaPorNombre(aislado);
+
+//        Sin bulkhead las 32 consultas de preguntas ocupan los 8 hilos 4 rondas de 300 ms
+        assertTrue(sinAislar >= 600, "sin bulkhead: " + sinAislar + " ms");
+        assertTrue(conBulkhead < 250, "con bulkhead: " + conBulkhead + " ms");
+        assertTrue(aislado.getRechazadas() >= 28);
+        assertEquals(32, aislado.getRechazadas() + aislado.getAdmitidas());
+        assertEquals(aislado.getRechazadas(), aislado.getDegradadas());
+    }
+
+    //    8 hilos atienden 32 consultas con preguntas y detras 8 busquedas por nombre
+    private static long peorLatenciaPorNombre(ExamenService service) throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> conPreguntas = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                conPreguntas.add(hilos.submit(() -> service.findExamenPorNombreConPreguntas("Analisis")));
+            }
+            List<Future<Long>> porNombre = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                long enviada = System.nanoTime();
+                porNombre.add(hilos.submit(() -> {
+                    service.findExamenPorNombre("Seguridad").orElseThrow();
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enviada);
+                }));
+            }
+            long peor = 0;
+            for (var latencia : porNombre) {
+                peor = Math.max(peor, latencia.get(10, TimeUnit.SECONDS));
+            }
+            for (var consulta : conPreguntas) {
+                consulta.get(10, TimeUnit.SECONDS);
+            }
+            return peor;
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+}
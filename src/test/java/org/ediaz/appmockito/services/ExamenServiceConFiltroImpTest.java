@@ -0,0 +1,178 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.Datos;
+import org.ediaz.appmockito.eventos.BusCambios;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.ExamenRepository;
+import org.ediaz.appmockito.repositories.PreguntaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExamenServiceConFiltroImpTest {
+
+    @Mock
+    private ExamenRepository examenRepository;
+    @Mock
+    private PreguntaRepository preguntaRepository;
+
+    @BeforeEach
+    void setUp() {
+//        Solo el examen 1 tiene preguntas
+        when(examenRepository.findAll()).thenReturn(Datos.EXAMENES);
+        when(preguntaRepository.findPreguntasPorExamenIds(anyCollection())).thenReturn(Map.of(1L, Datos.PREGUNTAS));
+    }
+
+    @Test
+    void nombreAusenteNoRecorreElCatalogo() {
+        var service = new ExamenServiceConFiltroImp(examenRepository, preguntaRepository);
+
+        assertTrue(service.findExamenPorNombre("Inexistente").isEmpty());
+        assertNull(service.findExamenPorNombreConPreguntas("Programacion"));
+        assertTrue(service.findExamenesPorNombreConPreguntas("Programacion").isEmpty());
+        assertEquals(2L, service.findExamenPorNombre("Seguridad").orElseThrow().getId());
+
+//        Solo la construccion del filtro y la busqueda que si existe leen el catalogo
+        verify(examenRepository, times(2)).findAll();
+        assertEquals(3, service.getDescartadasNombre());
+        assertEquals(0, service.getFalsosPositivosNombre());
+    }
+
+    @Test
+    void examenSinPreguntasNoConsultaElRepositorio() {
+        when(preguntaRepository.findPreguntasPorExamenId(1L)).thenReturn(Datos.PREGUNTAS);
+        var service = new ExamenServiceConFiltroImp(examenRepository, preguntaRepository);
+
+        assertTrue(service.findExamenPorNombreConPreguntas("Seguridad").getPreguntas().isEmpty());
+        assertEquals(5, service.findExamenPorNombreConPreguntas("Analisis").getPreguntas().size());
+
+        verify(preguntaRepository, never()).findPreguntasPorExamenId(2L);
+        assertEquals(1, service.getDescartadasPreguntas());
+    }
+
+    @Test
+    void preguntasGuardadasPorElRepositorioSincronizadoSeVenSinReconstruir() {
+        var service = new ExamenServiceConFiltroImp(examenRepository, preguntaRepository);
+
+//        Given preguntas guardadas sin pasar por el servicio, con el repositorio sincronizado
+        service.preguntasSincronizadas().guardarPreguntas(2L, List.of("firewalls"));
+        when(preguntaRepository.findPreguntasPorExamenId(2L)).thenReturn(List.of("firewalls"));
+        when(preguntaRepository.findPreguntasPorExamenIds(List.of(2L))).thenReturn(Map.of(2L, List.of("firewalls")));
+
+//        Then el examen se hidrata con ellas
+        verify(preguntaRepository).guardarPreguntas(2L, List.of("firewalls"));
+        assertEquals(List.of("firewalls"), service.findExamenPorNombreConPreguntas("Seguridad").getPreguntas());
+        assertEquals(List.of("firewalls"), service.findExamenesPorNombreConPreguntas("Seguridad").get(0).getPreguntas());
+        assertEquals(0, service.getDescartadasPreguntas());
+        assertEquals(1, service.getReconstrucciones());
+    }
+
+    @Test
+    void examenGuardadoPorElRepositorioSincronizadoSeEncuentraSinReconstruir() {
+        when(examenRepository.save(any(Examen.class))).then(invocation -> invocation.getArgument(0));
+        var service = new ExamenServiceConFiltroImp(examenRepository, preguntaRepository);
+        var nuevo = new Examen(7L, "Quimica");
+
+//        Given un examen guardado sin pasar por el servicio, con el repositorio sincronizado
+        service.examenesSincronizados().save(nuevo);
+        when(examenRepository.findAll()).thenReturn(List.of(Datos.EXAMENES.get(0), nuevo));
+
+//        Then el filtro de nombres no lo descarta
+        assertEquals(7L, service.findExamenPorNombre("Quimica").orElseThrow().getId());
+        assertEquals(0, service.getDescartadasNombre());
+        assertEquals(1, service.getReconstrucciones());
+    }
+
+    @Test
+    void escriturasDeOtraInstanciaLleganPorElBus() throws InterruptedException {
+        var service = new ExamenServiceConFiltroImp(examenRepository, preguntaRepository);
+        try (var bus = new BusCambios()) {
+            var suscripcion = bus.suscribir("filtro", 16, service.actualizador());
+
+//            When otra instancia publica un examen nuevo y preguntas del examen 3
+            bus.publicarExamen(new Examen(7L, "Quimica"));
+            bus.publicarPreguntas(3L, List.of("integrales"));
+            assertTrue(suscripcion.esperar(bus.getUltimaSecuencia(), Duration.ofSeconds(5)));
+
+//            Then ninguno de los dos filtros los descarta
+            when(examenRepository.findAll()).thenReturn(List.of(new Examen(7L, "Quimica")));
+            assertEquals(7L, service.findExamenPorNombre("Quimica").orElseThrow().getId());
+            when(examenRepository.findAll()).thenReturn(Datos.EXAMENES);
+            when(preguntaRepository.findPreguntasPorExamenId(3L)).thenReturn(List.of("integrales"));
+            assertEquals(List.of("integrales"), service.findExamenPorNombreConPreguntas("Marcos").getPreguntas());
+            assertEquals(0, service.getDescartadasNombre());
+            assertEquals(0, service.getDescartadasPreguntas());
+        }
+    }
+
+    @Test
+    void guardarExamenActualizaElFiltro() {
+        when(examenRepository.save(any(Examen.class))).then(invocation -> invocation.getArgument(0));
+        when(preguntaRepository.findPreguntasPorExamenId(5L)).thenReturn(List.of("grafos"));
+        var service = new ExamenServiceConFiltroImp(examenRepository, preguntaRepository);
+        var nuevo = new Examen(5L, "Programacion");
+        nuevo.setPreguntas(List.of("grafos"));
+
+        service.guardarExamen(nuevo);
+        when(examenRepository.findAll()).thenReturn(List.of(Datos.EXAMENES.get(0), Datos.EXAMENES.get(1),
+                Datos.EXAMENES.get(2), nuevo));
+
+        assertEquals(List.of("grafos"), service.findExamenPorNombreConPreguntas("Programacion").getPreguntas());
+        assertEquals(0, service.getDescartadasNombre());
+        assertEquals(0, service.getDescartadasPreguntas());
+    }
+
+    @Test
+    void falsosPositivosYReconstruccionPeriodica() {
+        try (var service = new ExamenServiceConFiltroImp(examenRepository, preguntaRepository)) {
+//            Todos los trigramas existen pero repartidos en "Seguridad de ti" y "Analisis de datos"
+            assertTrue(service.findExamenPorNombre("Seguridad de datos").isEmpty());
+            assertTrue(service.findExamenPorNombre("Inexistente").isEmpty());
+            assertEquals(1, service.getFalsosPositivosNombre());
+            assertEquals(0.5, service.getTasaFalsosPositivosNombre());
+            assertTrue(service.getTasaEstimadaNombre() < 0.01);
+
+            service.reconstruirPeriodicamente(Duration.ofMillis(20));
+//            findAll se registra antes de que termine la reconstruccion, se espera al contador
+            assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+                while (service.getReconstrucciones() < 3) {
+                    TimeUnit.MILLISECONDS.sleep(1);
+                }
+            });
+            verify(examenRepository, atLeast(4)).findAll();
+        }
+    }
+
+    @Test
+    void laReconstruccionPeriodicaSobreviveAFallosYSeReemplaza() {
+        try (var service = new ExamenServiceConFiltroImp(examenRepository, preguntaRepository)) {
+//            Given el repositorio falla una vez durante la reconstruccion periodica
+            when(examenRepository.findAll()).thenThrow(new IllegalStateException("sin conexion"))
+                    .thenReturn(Datos.EXAMENES);
+
+//            When se programa dos veces, la segunda reemplaza a la primera
+            service.reconstruirPeriodicamente(Duration.ofHours(1));
+            service.reconstruirPeriodicamente(Duration.ofMillis(20));
+
+//            Then el fallo se cuenta y las reconstrucciones siguen
+            assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+                while (service.getReconstrucciones() < 3) {
+                    TimeUnit.MILLISECONDS.sleep(1);
+                }
+            });
+            assertEquals(1, service.getFallosReconstruccion());
+            assertEquals(2L, service.findExamenPorNombre("Seguridad").orElseThrow().getId());
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.Datos;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.ExamenRepositoryImp;
+import org.ediaz.appmockito.repositories.PreguntaRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExamenServiceConPlazosImpTest {
+
+    //    Repositorio de preguntas cuya latencia depende del numero de llamada
+    private static class PreguntasConLatencia implements PreguntaRepository {
+        private final AtomicInteger llamadas = new AtomicInteger();
+        private final AtomicInteger interrumpidas = new AtomicInteger();
+        private final IntToLongFunction latenciaMs;
+        private final int fallaEn;
+
+        PreguntasConLatencia(IntToLongFunction latenciaMs) {
+            this(latenciaMs, 0);
+        }
+
+        PreguntasConLatencia(IntToLongFunction latenciaMs, int fallaEn) {
+            this.latenciaMs = latenciaMs;
+            this.fallaEn = fallaEn;
+        }
+
+        @Override
+        public List<String> findPreguntasPorExamenId(Long id) {
+            int llamada = llamadas.incrementAndGet();
+            try {
+                TimeUnit.MILLISECONDS.sleep(latenciaMs.applyAsLong(llamada));
+            } catch (InterruptedException e) {
+                interrumpidas.incrementAndGet();
+                Thread.currentThread().interrupt();
+            }
+            if (llamada == fallaEn) {
+                throw new IllegalStateException("fallo la llamada " + llamada);
+            }
+            return Datos.PREGUNTAS;
+        }
+
+        @Override
+        public void guardarVarias(List<String> preguntas) {
+        }
+    }
+
+    @Test
+    void plazoVencido() {
+        var preguntas = new PreguntasConLatencia(llamada -> 2_000);
+        try (var service = new ExamenServiceConPlazosImp(new ExamenRepositoryImp(), preguntas,
+                Duration.ofMillis(100), 0, false)) {
+            long inicio = System.nanoTime();
+            assertThrows(PlazoVencidoException.class, () -> service.findExamenPorNombreConPreguntas("Analisis"));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) < 1_000);
+            assertEquals(1, service.getPlazosVencidos());
+//            La consulta abandonada se interrumpe y no sigue ocupando el hilo 2 s
+            assertTimeoutPreemptively(Duration.ofMillis(500), () -> {
+                while (preguntas.interrumpidas.get() == 0) {
+                    TimeUnit.MILLISECONDS.sleep(1);
+                }
+            });
+        }
+    }
+
+    @Test
+    void hedgeRespondeCuandoLaPrimeraConsultaSeDemora() {
+//        Las primeras 20 llamadas son rapidas para tener muestras, la 21 se demora y el hedge (22) no
+        var preguntas = new PreguntasConLatencia(llamada -> llamada == 21 ? 3_000 : 5);
+        try (var service = new ExamenServiceConPlazosImp(new ExamenRepositoryImp(), preguntas,
+                Duration.ofSeconds(2), 0.9, false)) {
+            for (int i = 0; i < 20; i++) {
+                service.findExamenPorNombreConPreguntas("Analisis");
+            }
+            assertEquals(0, service.getHedgesEnviados());
+
+            var examen = service.findExamenPorNombreConPreguntas("Analisis");
+
+            assertEquals(5, examen.getPreguntas().size());
+            assertEquals(1, service.getHedgesEnviados());
+//            El contador del ganador se actualiza justo despues de entregar la respuesta
+            assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+                while (service.getHedgesGanadores() == 0) {
+                    TimeUnit.MILLISECONDS.sleep(1);
+                }
+            });
+        }
+    }
+
+    @Test
+    void prefetchDelCandidatoAnterior() {
+        var preguntas = new PreguntasConLatencia(llamada -> 5);
+        try (var service = new ExamenServiceConPlazosImp(new ExamenRepositoryImp(), preguntas,
+                Duration.ofSeconds(2), 0, true)) {
+            service.findExamenPorNombreConPreguntas("Seguridad");
+            assertEquals(0, service.getPrefetchAciertos());
+
+            var examen = service.findExamenPorNombreConPreguntas("Seguridad");
+
+            assertEquals(2L, examen.getId());
+            assertEquals(1, service.getPrefetchAciertos());
+            assertEquals(0, service.getPrefetchFallos());
+            assertEquals(2, preguntas.llamadas.get());
+            assertNull(service.findExamenPorNombreConPreguntas("no existe"));
+        }
+    }
+
+    @Test
+    void plazoVencidoEnLaBusquedaCancelaElPrefetch() {
+//        Given la primera llamada deja el candidato y despues el catalogo se vuelve lento
+        var lento = new AtomicBoolean();
+        var examenes = new ExamenRepositoryImp() {
+            @Override
+            public List<Examen> findAll() {
+                if (lento.get()) {
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(2_000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.findAll();
+            }
+        };
+        var preguntas = new PreguntasConLatencia(llamada -> llamada == 1 ? 5 : 2_000);
+        try (var service = new ExamenServiceConPlazosImp(examenes, preguntas, Duration.ofMillis(300), 0, true)) {
+            service.findExamenPorNombreConPreguntas("Seguridad");
+            lento.set(true);
+
+//            When vence el plazo esperando el nombre
+            assertThrows(PlazoVencidoException.class, () -> service.findExamenPorNombreConPreguntas("Seguridad"));
+
+//            Then las preguntas adelantadas tambien se interrumpen
+            assertTimeoutPreemptively(Duration.ofMillis(500), () -> {
+                while (preguntas.interrumpidas.get() == 0) {
+                    TimeUnit.MILLISECONDS.sleep(1);
+                }
+            });
+            assertEquals(1, service.getPrefetchFallos());
+        }
+    }
+
+    @Test
+    void hedgeRescataUnaPrimeraConsultaFallida() {
+//        La llamada 21 tarda y falla mientras el hedge (22) sigue en camino, y el hedge responde bien
+        var preguntas = new PreguntasConLatencia(llamada -> llamada == 21 ? 50 : llamada == 22 ? 200 : 5, 21);
+        try (var service = new ExamenServiceConPlazosImp(new ExamenRepositoryImp(), preguntas,
+                Duration.ofSeconds(2), 0.9, false)) {
+            for (int i = 0; i < 20; i++) {
+                service.findExamenPorNombreConPreguntas("Analisis");
+            }
+
+            var examen = service.findExamenPorNombreConPreguntas("Analisis");
+
+            assertEquals(5, examen.getPreguntas().size());
+            assertEquals(1, service.getHedgesEnviados());
+            assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+                while (service.getHedgesGanadores() == 0) {
+                    TimeUnit.MILLISECONDS.sleep(1);
+                }
+            });
+        }
+    }
+
+    @Test
+    void sinHedgeElFalloSePropaga() {
+        var preguntas = new PreguntasConLatencia(llamada -> 5, 1);
+        try (var service = new ExamenServiceConPlazosImp(new ExamenRepositoryImp(), preguntas,
+                Duration.ofSeconds(2), 0, false, 2)) {
+            var error = assertThrows(IllegalStateException.class, () -> service.findExamenPorNombreConPreguntas("Analisis"));
+            assertEquals("fallo la llamada 1", error.getMessage());
+        }
+    }
+}
@@ -12,8 +12,11 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.stubbing.Answer;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -139,7 +142,7 @@ class ExamenServiceImpTest {
 
         verify(examenRepository).save(any(Examen.class));
 //        Si no se le pasa preguntas este metodo no se ejecuta y no pasa el test
-        verify(preguntaRepository).guardarVarias(anyList());
+        verify(preguntaRepository).guardarPreguntas(eq(4L), anyList());
     }
 
     //    Manejo de excepciones que permite unas pruebas mas robustas
@@ -231,10 +234,11 @@ class ExamenServiceImpTest {
     //    El assertThrow solo sirve cuando se devuelve algo, cuando es void cambia y se usa doThrow
     @Test
     void testDoThrow() {
-//        Si no se ejecuta guardarVarias la prueba falla
+//        Si no se ejecuta guardarPreguntas la prueba falla
         var examen = Datos.EXAMEN;
         examen.setPreguntas(Datos.PREGUNTAS);
-        doThrow(IllegalArgumentException.class).when(preguntaRepository).guardarVarias(anyList());
+        when(examenRepository.save(any(Examen.class))).then(invocation -> invocation.getArgument(0));
+        doThrow(IllegalArgumentException.class).when(preguntaRepository).guardarPreguntas(anyLong(), anyList());
         assertThrows(IllegalArgumentException.class, () -> {
             service.guardarExamen(examen);
         });
@@ -282,7 +286,7 @@ class ExamenServiceImpTest {
         assertEquals("Desarrollo de sistemas", examen.getNombre());
 
         verify(examenRepository).save(any(Examen.class));
-        verify(preguntaRepository).guardarVarias(anyList());
+        verify(preguntaRepository).guardarPreguntas(eq(4L), anyList());
     }
 
     //    Para poder simular parcialmente el objeto mock se puede usar doCallRealMethod
@@ -361,4 +365,57 @@ class ExamenServiceImpTest {
         verify(this.examenRepository).findAll(); // No interactua con las preguntas pero si con los examenes
         verifyNoInteractions(this.preguntaRepository);
     }
-}
\ No newline at end of file
+
+    //    Todas las preguntas de los examenes encontrados se piden en una sola llamada
+    @Test
+    void findExamenesPorNombreConPreguntas() {
+        when(examenRepository.findAll()).thenReturn(Datos.EXAMENES);
+        when(preguntaRepository.findPreguntasPorExamenIds(anyCollection()))
+                .thenReturn(Map.of(1L, Datos.PREGUNTAS, 3L, List.of("integrales")));
+
+        var examenes = service.findExamenesPorNombreConPreguntas("de d");
+
+        assertEquals(2, examenes.size());
+        assertEquals(5, examenes.get(0).getPreguntas().size());
+        assertEquals(1, examenes.get(1).getPreguntas().size());
+        verify(preguntaRepository).findPreguntasPorExamenIds(List.of(1L, 3L));
+        verify(preguntaRepository, never()).findPreguntasPorExamenId(anyLong());
+    }
+
+    @Test
+    void testGuardarExamenesEnLotes() {
+        var examenes = new ArrayList<Examen>();
+        for (long id = 1; id <= 1_200; id++) {
+            var examen = new Examen(id, "Examen " + id);
+            examen.setPreguntas(Datos.PREGUNTAS);
+            examenes.add(examen);
+        }
+        when(examenRepository.saveAll(anyList())).then(invocation -> invocation.getArgument(0));
+
+        var guardados = service.guardarExamenes(examenes);
+
+        assertEquals(1_200, guardados.size());
+//        1200 examenes en lotes de 500 son 3 llamadas a cada repositorio
+        verify(examenRepository, times(3)).saveAll(anyList());
+        verify(preguntaRepository, times(3)).guardarPreguntasDeExamenes(anyMap());
+        verify(preguntaRepository, never()).guardarVarias(anyList());
+        verify(examenRepository, never()).save(any(Examen.class));
+    }
+
+    @Test
+    void testGuardarExamenesConTamanioLote() {
+        var examenes = new ArrayList<Examen>();
+        for (long id = 1; id <= 250; id++) {
+            examenes.add(new Examen(id, "Examen " + id));
+        }
+        when(examenRepository.saveAll(anyList())).then(invocation -> invocation.getArgument(0));
+        var conLote = ExamenServiceImp.conTamanioLote(examenRepository, preguntaRepository, 100);
+
+        assertEquals(250, conLote.guardarExamenes(examenes).size());
+//        250 examenes en lotes de 100 son 3 llamadas, la ultima con 50
+        verify(examenRepository, times(2)).saveAll(argThat(lote -> lote.size() == 100));
+        verify(examenRepository).saveAll(argThat(lote -> lote.size() == 50));
+        assertThrows(IllegalArgumentException.class,
+                () -> ExamenServiceImp.conTamanioLote(examenRepository, preguntaRepository, 0));
+    }
+}
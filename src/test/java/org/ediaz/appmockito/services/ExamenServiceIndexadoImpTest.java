@@ -0,0 +1,247 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.Datos;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.ExamenRepository;
+import org.ediaz.appmockito.repositories.PreguntaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExamenServiceIndexadoImpTest {
+
+    @Mock
+    private ExamenRepository examenRepository;
+    @Mock
+    private PreguntaRepository preguntaRepository;
+
+    private List<Examen> examenes;
+
+    @BeforeEach
+    void setUp() {
+//        Se genera un catalogo con nombres repetidos para que haya varias coincidencias por consulta
+        var random = new Random(42);
+        var palabras = List.of("Analisis", "de", "datos", "Seguridad", "ti", "Marcos", "desarrollo", "sistemas");
+        examenes = new ArrayList<>();
+        for (long id = 1; id <= 2_000; id++) {
+            var nombre = palabras.get(random.nextInt(palabras.size())) + " "
+                    + palabras.get(random.nextInt(palabras.size())) + " " + id;
+            examenes.add(new Examen(id, nombre));
+        }
+    }
+
+    @Test
+    void findExamenPorNombreMismoResultadoQueElRecorrido() {
+        when(examenRepository.findAll()).thenReturn(examenes);
+        var secuencial = new ExamenServiceImp(examenRepository, preguntaRepository);
+        var indexado = new ExamenServiceIndexadoImp(examenRepository, preguntaRepository);
+
+        for (var consulta : List.of("Analisis", "de d", "ti 1", "s 19", "desarrollo sistemas", "12", "", "a", "no existe")) {
+            assertEquals(secuencial.findExamenPorNombre(consulta), indexado.findExamenPorNombre(consulta), consulta);
+        }
+//        El indice solo lee el repositorio al construirse
+        verify(examenRepository, times(1 + 9)).findAll();
+    }
+
+    @Test
+    void guardarExamenActualizaIndice() {
+        when(examenRepository.findAll()).thenReturn(Datos.EXAMENES);
+        when(examenRepository.save(any(Examen.class))).then(invocation -> invocation.getArgument(0));
+        var service = new ExamenServiceIndexadoImp(examenRepository, preguntaRepository);
+
+        assertFalse(service.findExamenPorNombre("Redes").isPresent());
+        service.guardarExamen(new Examen(10L, "Redes de computadoras"));
+        assertEquals(10L, service.findExamenPorNombre("Redes").orElseThrow().getId());
+
+//        Guardar otra vez el mismo id reemplaza el nombre anterior en el indice
+        service.guardarExamen(new Examen(10L, "Sistemas operativos"));
+        assertFalse(service.findExamenPorNombre("Redes").isPresent());
+        assertEquals(10L, service.findExamenPorNombre("operativos").orElseThrow().getId());
+        verifyNoInteractions(preguntaRepository);
+    }
+
+    @Test
+    void guardarExamenSinRespuestaDelRepositorioIndexaElRecibido() {
+        when(examenRepository.findAll()).thenReturn(Datos.EXAMENES);
+        var service = new ExamenServiceIndexadoImp(examenRepository, preguntaRepository);
+
+//        Given save sin stub, el mock devuelve null
+        assertNull(service.guardarExamen(new Examen(10L, "Redes de computadoras")));
+        service.guardarExamenes(List.of(new Examen(11L, "Compiladores")));
+
+//        Then el indice tiene los examenes recibidos
+        assertEquals(10L, service.findExamenPorNombre("Redes").orElseThrow().getId());
+        assertEquals(11L, service.findExamenPorNombre("Compiladores").orElseThrow().getId());
+    }
+
+    @Test
+    void findExamenesPorPreguntaMismoResultadoQueElRecorrido() {
+        when(examenRepository.findAll()).thenReturn(examenes);
+//        Cada examen tiene dos preguntas de Datos.PREGUNTAS que dependen de su id
+        when(preguntaRepository.findPreguntasPorExamenIds(anyCollection())).then(invocation -> {
+            Map<Long, List<String>> preguntas = new HashMap<>();
+            for (Long id : invocation.<Collection<Long>>getArgument(0)) {
+                preguntas.put(id, List.of("Resolver " + Datos.PREGUNTAS.get((int) (id % 5)),
+                        Datos.PREGUNTAS.get((int) (id % 3)) + "?"));
+            }
+            return preguntas;
+        });
+        var secuencial = new ExamenServiceImp(examenRepository, preguntaRepository);
+        var indexado = new ExamenServiceIndexadoImp(examenRepository, preguntaRepository);
+
+        for (var consulta : List.of("integrales", "ARITMETICA derivadas", "integrales probabilidades",
+                "integrales OR ecuaciones", "resolver derivadas OR aritmetica probabilidades", "no existe", "")) {
+            assertEquals(secuencial.findExamenesPorPregunta(consulta), indexado.findExamenesPorPregunta(consulta), consulta);
+        }
+        assertFalse(indexado.findExamenesPorPregunta("derivadas").isEmpty());
+    }
+
+    @Test
+    void guardarExamenActualizaIndicePreguntas() {
+        when(examenRepository.findAll()).thenReturn(Datos.EXAMENES);
+        when(examenRepository.save(any(Examen.class))).then(invocation -> invocation.getArgument(0));
+        when(preguntaRepository.findPreguntasPorExamenIds(anyCollection())).thenReturn(Map.of(1L, Datos.PREGUNTAS));
+        var service = new ExamenServiceIndexadoImp(examenRepository, preguntaRepository);
+
+        assertEquals(List.of(1L), ids(service.findExamenesPorPregunta("integrales")));
+        var nuevo = new Examen(10L, "Redes de computadoras");
+        nuevo.setPreguntas(List.of("subredes", "integrales de linea"));
+        service.guardarExamen(nuevo);
+        assertEquals(List.of(1L, 10L), ids(service.findExamenesPorPregunta("integrales")));
+
+//        Al guardar el mismo id con otras preguntas deja de encontrarse por las anteriores
+        var editado = new Examen(10L, "Redes de computadoras");
+        editado.setPreguntas(List.of("enrutamiento"));
+        service.guardarExamen(editado);
+        assertEquals(List.of(1L), ids(service.findExamenesPorPregunta("integrales")));
+        assertEquals(List.of(10L), ids(service.findExamenesPorPregunta("subredes OR enrutamiento")));
+//        El indice de preguntas se construye una sola vez
+        verify(preguntaRepository, times(1)).findPreguntasPorExamenIds(anyCollection());
+    }
+
+    @Test
+    void modoNormalizadoIgnoraMayusculasYAcentos() {
+        var catalogo = List.of(new Examen(1L, "Análisis de Datos"), new Examen(2L, "Diseño de SISTEMAS"),
+                new Examen(3L, "Programación lineal"));
+        when(examenRepository.findAll()).thenReturn(catalogo);
+        var exacto = new ExamenServiceIndexadoImp(examenRepository, preguntaRepository);
+        var normalizado = new ExamenServiceIndexadoImp(examenRepository, preguntaRepository, true);
+
+        assertFalse(exacto.findExamenPorNombre("analisis").isPresent());
+        assertEquals(1L, normalizado.findExamenPorNombre("analisis").orElseThrow().getId());
+        assertEquals(2L, normalizado.findExamenPorNombre("diseno de sis").orElseThrow().getId());
+        assertEquals(3L, normalizado.findExamenPorNombre("PROGRAMACIÓN").orElseThrow().getId());
+        assertEquals(2L, normalizado.findExamenPorNombre("DISEÑO").orElseThrow().getId());
+    }
+
+    @Test
+    void findExamenesPorNombreAproximadoMismoResultadoQueElRecorrido() {
+        when(examenRepository.findAll()).thenReturn(examenes);
+        var secuencial = new ExamenServiceImp(examenRepository, preguntaRepository);
+        var indexado = new ExamenServiceIndexadoImp(examenRepository, preguntaRepository, true);
+
+        for (var consulta : List.of("Analsis", "seguirdad ti", "desarolo sistemas 12", "marcos", "xyzxyzxyz", "ab")) {
+            for (int distancia = 0; distancia <= 2; distancia++) {
+                assertEquals(secuencial.findExamenesPorNombreAproximado(consulta, distancia),
+                        indexado.findExamenesPorNombreAproximado(consulta, distancia), consulta + " " + distancia);
+            }
+        }
+//        Con una edicion "Analsis" ya encuentra "Analisis", los exactos quedan primero
+        assertTrue(indexado.findExamenesPorNombreAproximado("Analsis", 0).isEmpty());
+        var aproximados = indexado.findExamenesPorNombreAproximado("Analsis", 1);
+        assertFalse(aproximados.isEmpty());
+        aproximados.forEach(e -> assertTrue(e.getNombre().contains("Analisis"), e.getNombre()));
+    }
+
+    @Test
+    void findExamenesPorNombreMismoRankingQueElRecorrido() {
+        when(examenRepository.findAll()).thenReturn(examenes);
+        var secuencial = new ExamenServiceImp(examenRepository, preguntaRepository);
+        var indexado = new ExamenServiceIndexadoImp(examenRepository, preguntaRepository);
+
+        for (var consulta : List.of("Analisis", "de", "ti 1", "s 19", "datos", "12", "", "no existe")) {
+            for (int k : new int[]{0, 1, 5, 50}) {
+                assertEquals(secuencial.findExamenesPorNombre(consulta, k), indexado.findExamenesPorNombre(consulta, k),
+                        consulta + " " + k);
+            }
+        }
+        var mejores = indexado.findExamenesPorNombre("de", 5);
+        assertEquals(5, mejores.size());
+        mejores.forEach(e -> assertTrue(e.getNombre().startsWith("de"), e.getNombre()));
+    }
+
+    @Test
+    void findExamenesPorNombreSubeLosPopularesYVeLoGuardadoDespues() {
+        when(examenRepository.findAll()).thenReturn(examenes);
+        when(examenRepository.save(any(Examen.class))).then(invocation -> invocation.getArgument(0));
+        when(examenRepository.saveAll(anyList())).then(invocation -> invocation.getArgument(0));
+        var service = new ExamenServiceIndexadoImp(examenRepository, preguntaRepository);
+
+        var antes = service.findExamenesPorNombre("Marcos", 3);
+        var elegido = service.findExamenesPorNombre("Marcos", 1_000).get(100);
+        service.findExamenPorNombreConPreguntas(elegido.getNombre());
+        assertEquals(elegido, service.findExamenesPorNombre("Marcos", 3).get(0));
+        assertEquals(antes.subList(0, 2), service.findExamenesPorNombre("Marcos", 3).subList(1, 3));
+
+//        Mas altas que el limite de pendientes para forzar que se mezclen con el orden
+        List<Examen> nuevos = new ArrayList<>();
+        for (long id = 10_001; id <= 15_000; id++) {
+            nuevos.add(new Examen(id, "Zoologia " + id));
+        }
+        service.guardarExamenes(nuevos);
+        service.guardarExamen(new Examen(10_002L, "Botanica 10002"));
+        assertEquals(List.of(10_001L, 10_003L), ids(service.findExamenesPorNombre("Zoologia 1000", 2)));
+        assertEquals(List.of(10_002L), ids(service.findExamenesPorNombre("Botanica", 5)));
+    }
+
+    private static List<Long> ids(List<Examen> examenes) {
+        List<Long> ids = new ArrayList<>();
+        examenes.forEach(e -> ids.add(e.getId()));
+        return ids;
+    }
+
+    @Test
+    void loGuardadoMientrasSeConstruyeElIndicePreguntasNoSePierde() throws Exception {
+        var catalogo = List.of(new Examen(1L, "Analisis de datos"), new Examen(2L, "Seguridad de ti"));
+        when(examenRepository.findAll()).thenReturn(catalogo);
+        when(examenRepository.save(any(Examen.class))).then(invocation -> invocation.getArgument(0));
+        var construyendo = new CountDownLatch(1);
+        var continuar = new CountDownLatch(1);
+        when(preguntaRepository.findPreguntasPorExamenIds(anyCollection())).then(invocation -> {
+            construyendo.countDown();
+            continuar.await();
+            return Map.of(1L, Datos.PREGUNTAS);
+        });
+        var service = new ExamenServiceIndexadoImp(examenRepository, preguntaRepository);
+
+//        Given la primera busqueda por pregunta construyendo el indice
+        var busqueda = CompletableFuture.supplyAsync(() -> service.findExamenesPorPregunta("redes"));
+        assertTrue(construyendo.await(5, TimeUnit.SECONDS));
+
+//        When se guarda un examen despues de que la construccion leyo el catalogo
+        var nuevo = new Examen(3L, "Redes");
+        nuevo.setPreguntas(List.of("redes neuronales"));
+        service.guardarExamen(nuevo);
+        continuar.countDown();
+
+//        Then el indice publicado lo incluye
+        assertEquals(List.of(3L), busqueda.get(5, TimeUnit.SECONDS).stream().map(Examen::getId).toList());
+        assertEquals(List.of(1L), service.findExamenesPorPregunta("integrales").stream().map(Examen::getId).toList());
+    }
+}
@@ -0,0 +1,104 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.Datos;
+import org.ediaz.appmockito.metricas.Metricas;
+import org.ediaz.appmockito.metricas.RegistroMetricas;
+import org.ediaz.appmockito.repositories.BusquedaPorNombre;
+import org.ediaz.appmockito.repositories.ConIndicePreguntas;
+import org.ediaz.appmockito.repositories.ExamenRepository;
+import org.ediaz.appmockito.repositories.ExamenRepositoryConcurrente;
+import org.ediaz.appmockito.repositories.ExamenRepositoryInstrumentado;
+import org.ediaz.appmockito.repositories.PreguntaRepository;
+import org.ediaz.appmockito.repositories.PreguntaRepositoryInstrumentado;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExamenServiceInstrumentadoTest {
+
+    @Mock
+    private ExamenRepository examenRepository;
+    @Mock
+    private PreguntaRepository preguntaRepository;
+
+    @Test
+    void registraLlamadasErroresYLatencias() {
+        when(examenRepository.findAll()).thenReturn(Datos.EXAMENES);
+        when(preguntaRepository.findPreguntasPorExamenId(1L)).thenReturn(Datos.PREGUNTAS);
+        when(preguntaRepository.findPreguntasPorExamenId(2L)).thenThrow(IllegalArgumentException.class);
+        var metricas = new RegistroMetricas();
+        var service = ExamenServiceInstrumentado.envolver(new ExamenServiceImp(
+                ExamenRepositoryInstrumentado.envolver(examenRepository, metricas),
+                PreguntaRepositoryInstrumentado.envolver(preguntaRepository, metricas)), metricas);
+
+        service.findExamenPorNombreConPreguntas("Analisis");
+        assertThrows(IllegalArgumentException.class, () -> service.findExamenPorNombreConPreguntas("Seguridad"));
+
+        var medidor = metricas.getMedidores().get("examen.service.findExamenPorNombreConPreguntas");
+        assertEquals(2, medidor.getLlamadas());
+        assertEquals(1, medidor.getErrores());
+        assertEquals(2, metricas.getMedidores().get("pregunta.repository.findPreguntasPorExamenId").getLlamadas());
+//        El mock no tiene BusquedaPorNombre y el decorador tampoco la ofrece: se recorre findAll
+        assertEquals(2, metricas.getMedidores().get("examen.repository.findAll").getLlamadas());
+        assertEquals(0, metricas.getMedidores().get("examen.repository.findPrimeroPorNombre").getLlamadas());
+
+        var volcado = metricas.volcar();
+        assertTrue(volcado.contains("examen_service_findExamenPorNombreConPreguntas_llamadas 2"), volcado);
+        assertTrue(volcado.contains("examen_service_findExamenPorNombreConPreguntas_latencia_ns{p=\"0.99\"}"), volcado);
+    }
+
+    @Test
+    void envolverConservaSoloLaCapacidadDelDelegado() {
+        var metricas = new RegistroMetricas();
+        assertFalse(ExamenRepositoryInstrumentado.envolver(examenRepository, metricas) instanceof BusquedaPorNombre);
+
+        var conBusqueda = ExamenRepositoryInstrumentado.envolver(
+                new ExamenRepositoryConcurrente(Datos.EXAMENES), metricas);
+        assertTrue(conBusqueda instanceof BusquedaPorNombre);
+        assertEquals(2L, ((BusquedaPorNombre) conBusqueda).findPrimeroPorNombre("Seguridad").orElseThrow().getId());
+        assertEquals(1, metricas.getMedidores().get("examen.repository.findPrimeroPorNombre").getLlamadas());
+
+        assertFalse(PreguntaRepositoryInstrumentado.envolver(preguntaRepository, metricas) instanceof ConIndicePreguntas);
+        var conIndice = PreguntaRepositoryInstrumentado.envolver(
+                mock(PreguntaRepository.class, withSettings().extraInterfaces(ConIndicePreguntas.class)), metricas);
+        assertTrue(conIndice instanceof ConIndicePreguntas);
+        ((ConIndicePreguntas) conIndice).indicePreguntas();
+        assertEquals(1, metricas.getMedidores().get("pregunta.repository.indicePreguntas").getLlamadas());
+    }
+
+    @Test
+    void escrituraDeVariosExamenesSeReenviaEnteraYCuentaErroresGraves() {
+        var metricas = new RegistroMetricas();
+        var preguntas = PreguntaRepositoryInstrumentado.envolver(preguntaRepository, metricas);
+        var lote = Map.of(1L, Datos.PREGUNTAS, 2L, List.of("otra"));
+        doNothing().doThrow(new OutOfMemoryError("sin memoria"))
+                .when(preguntaRepository).guardarPreguntasDeExamenes(lote);
+
+        preguntas.guardarPreguntasDeExamenes(lote);
+        assertThrows(OutOfMemoryError.class, () -> preguntas.guardarPreguntasDeExamenes(lote));
+
+//        Then una llamada al delegado por lote y el Error cuenta como error
+        verify(preguntaRepository, times(2)).guardarPreguntasDeExamenes(lote);
+        verify(preguntaRepository, never()).guardarPreguntas(anyLong(), anyList());
+        var medidor = metricas.getMedidores().get("pregunta.repository.guardarPreguntasDeExamenes");
+        assertEquals(2, medidor.getLlamadas());
+        assertEquals(1, medidor.getErrores());
+        assertEquals(0, metricas.getMedidores().get("pregunta.repository.guardarPreguntas").getLlamadas());
+    }
+
+    @Test
+    void noopNoEnvuelve() {
+        var service = new ExamenServiceImp(examenRepository, preguntaRepository);
+        assertSame(service, ExamenServiceInstrumentado.envolver(service, Metricas.NOOP));
+        assertSame(examenRepository, ExamenRepositoryInstrumentado.envolver(examenRepository, Metricas.NOOP));
+        assertSame(preguntaRepository, PreguntaRepositoryInstrumentado.envolver(preguntaRepository, Metricas.NOOP));
+    }
+}
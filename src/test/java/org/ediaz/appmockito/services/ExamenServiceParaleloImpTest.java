@@ -0,0 +1,72 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.Datos;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.ExamenRepository;
+import org.ediaz.appmockito.repositories.PreguntaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExamenServiceParaleloImpTest {
+
+    @Mock
+    private ExamenRepository examenRepository;
+    @Mock
+    private PreguntaRepository preguntaRepository;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void mismoPrimeroQueElRecorridoSecuencial() {
+//        Given 100.000 examenes donde "Redes" aparece en varias particiones
+        List<Examen> examenes = new ArrayList<>();
+        for (long id = 1; id <= 100_000; id++) {
+            var nombre = id % 20_000 == 17_000 ? "Redes " + id : "Examen " + id;
+            examenes.add(new Examen(id, nombre));
+        }
+        when(examenRepository.findAll()).thenReturn(examenes);
+        var secuencial = new ExamenServiceImp(examenRepository, preguntaRepository);
+        var paralelo = new ExamenServiceParaleloImp(examenRepository, preguntaRepository, executor, 4, 10_000);
+
+//        When / Then
+        for (var consulta : List.of("Redes", "Examen 1", "Examen 99999", "Examen 100000", "Examen 5", "no existe")) {
+            assertEquals(secuencial.findExamenPorNombre(consulta), paralelo.findExamenPorNombre(consulta), consulta);
+        }
+        assertEquals(17_000L, paralelo.findExamenPorNombre("Redes").orElseThrow().getId());
+        assertEquals(7, paralelo.getBusquedasParalelas());
+//        Con la coincidencia en la primera particion las demas no se recorren completas
+        assertTrue(paralelo.getParticionesCanceladas() > 0);
+    }
+
+    @Test
+    void catalogoChicoUsaElRecorridoSecuencial() {
+        when(examenRepository.findAll()).thenReturn(Datos.EXAMENES);
+        var paralelo = new ExamenServiceParaleloImp(examenRepository, preguntaRepository, executor, 4, 10_000);
+
+        assertEquals(2L, paralelo.findExamenPorNombre("Seguridad").orElseThrow().getId());
+        assertEquals(0, paralelo.getBusquedasParalelas());
+    }
+}
@@ -0,0 +1,112 @@
+package org.ediaz.appmockito.services;
+
+import org.ediaz.appmockito.Datos;
+import org.ediaz.appmockito.models.Examen;
+import org.ediaz.appmockito.repositories.ExamenRepository;
+import org.ediaz.appmockito.repositories.ExamenRepositoryArchivo;
+import org.ediaz.appmockito.repositories.ExamenRepositoryParticionado;
+import org.ediaz.appmockito.repositories.PreguntaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IngestaExamenesTest {
+
+    @Mock
+    private ExamenRepository examenRepository;
+    @Mock
+    private PreguntaRepository preguntaRepository;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void divideEnLotesYRespetaElLimiteEnVuelo() {
+        var enVuelo = new AtomicInteger();
+        var maximo = new AtomicInteger();
+        doAnswer(invocation -> {
+            maximo.accumulateAndGet(enVuelo.incrementAndGet(), Math::max);
+            TimeUnit.MILLISECONDS.sleep(20);
+            enVuelo.decrementAndGet();
+            return invocation.getArgument(0);
+        }).when(examenRepository).saveAll(anyList());
+        var reportes = new CopyOnWriteArrayList<IngestaExamenes.ReporteLote>();
+        var ingesta = new IngestaExamenes(examenRepository, preguntaRepository, executor, 100, 2, reportes::add);
+
+        long guardados = ingesta.ingerir(generar(1_050));
+
+        assertEquals(1_050, guardados);
+        assertEquals(11, reportes.size());
+        assertEquals(1_050, reportes.stream().mapToInt(IngestaExamenes.ReporteLote::getExamenes).sum());
+        assertTrue(maximo.get() <= 2, "En vuelo: " + maximo.get());
+        verify(examenRepository, times(11)).saveAll(anyList());
+//        Las preguntas van despues de cada saveAll con los ids del lote, nunca sin id
+        verify(preguntaRepository, times(11)).guardarPreguntasDeExamenes(anyMap());
+        verify(preguntaRepository, never()).guardarVarias(anyList());
+        verify(examenRepository, never()).save(any(Examen.class));
+    }
+
+    @Test
+    void errorDeUnLoteDetieneLaIngesta() {
+        when(examenRepository.saveAll(anyList())).thenThrow(IllegalStateException.class);
+        var ingesta = new IngestaExamenes(examenRepository, preguntaRepository, executor, 10, 1, null);
+
+        assertThrows(IllegalStateException.class, () -> ingesta.ingerir(generar(1_000)));
+//        Con un solo lote en vuelo el error se ve antes de enviar el segundo lote
+        verify(examenRepository, atMost(2)).saveAll(anyList());
+        verify(preguntaRepository, never()).guardarPreguntasDeExamenes(anyMap());
+    }
+
+    @Test
+    void ingerirEnElParticionadoConservaLasPreguntas(@TempDir Path directorio) {
+        try (var a = new ExamenRepositoryArchivo(directorio.resolve("a.log"));
+             var b = new ExamenRepositoryArchivo(directorio.resolve("b.log"))) {
+            var particionado = new ExamenRepositoryParticionado(List.of(
+                    new ExamenRepositoryParticionado.Nodo("a", a, a), new ExamenRepositoryParticionado.Nodo("b", b, b)));
+            var ingesta = new IngestaExamenes(particionado, particionado, executor, 50, 2, null);
+
+            assertEquals(200, ingesta.ingerir(generar(200)));
+
+//            Con guardarVarias las preguntas no tendrian nodo y se perderian
+            for (long id = 1; id <= 200; id += 37) {
+                assertEquals(Datos.PREGUNTAS, particionado.findPreguntasPorExamenId(id));
+            }
+        }
+    }
+
+    private static List<Examen> generar(int cantidad) {
+        var examenes = new ArrayList<Examen>();
+        for (long id = 1; id <= cantidad; id++) {
+            var examen = new Examen(id, "Examen " + id);
+            examen.setPreguntas(Datos.PREGUNTAS);
+            examenes.add(examen);
+        }
+        return examenes;
+    }
+}